@@ -3,7 +3,6 @@ package com.example.oompa;
 import static android.view.View.VISIBLE;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -18,9 +17,15 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.oompa.services.AppBlockerService;
+import com.example.oompa.services.AppCatalog;
+import com.example.oompa.services.BlockerStateEngine;
 import com.example.oompa.services.PreferenceManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DialogFragment extends androidx.fragment.app.DialogFragment implements RecycleViewInterface {
 
@@ -31,8 +36,13 @@ public class DialogFragment extends androidx.fragment.app.DialogFragment impleme
     private RecycleViewAdapter adapter;
     private DialogFragmentListener<App> listener;
 
-    private static ArrayList<App> appArray;
     private PreferenceManager preferenceManager;
+    private AppCatalog catalog;
+    private Set<String> lockedAtOpen; // locked packages when the dialog opened
+    private final Map<String, Boolean> toggled = new HashMap<>(); // package -> new selection, only where it differs
+    // What the list shows, ahead of the adapter: its current list lags until the async diff commits
+    private final List<App> items = new ArrayList<>();
+    private final AppCatalog.Listener catalogListener = this::showAppList;
 
     @Nullable
     @Override
@@ -45,19 +55,30 @@ public class DialogFragment extends androidx.fragment.app.DialogFragment impleme
         titleText.setText(R.string.modify_blocked_apps);
 
         appView = rootView.findViewById(R.id.select_group_recycle);
-        appArray = new ArrayList<>();
-        showAppList();
+        lockedAtOpen = loadLockedPackages();
 
-        adapter = new RecycleViewAdapter(getActivity(), appArray, this);
+        adapter = new RecycleViewAdapter(getActivity(), this);
         appView.setAdapter(adapter);
         appView.setLayoutManager(new LinearLayoutManager(getActivity()));
 
+        // Show whatever is cached right away; the listener fills in the rest once it's built
+        catalog = AppCatalog.getInstance(requireContext());
+        catalog.addListener(catalogListener);
+        catalog.load();
+        showAppList(catalog.getEntries());
+
         confirmButton = rootView.findViewById(R.id.confirm_button);
         confirmButton.setVisibility(View.GONE);
 
         return rootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        catalog.removeListener(catalogListener);
+        super.onDestroyView();
+    }
+
     @Override
     public void onStart() {
         super.onStart();
@@ -68,9 +89,19 @@ public class DialogFragment extends androidx.fragment.app.DialogFragment impleme
 
     @Override
     public void onButtonClick(int position) {
-        App app = appArray.get(position);
-        app.setSelected(!app.getSelected());
-        adapter.notifyItemChanged(position);
+        if (position < 0 || position >= items.size()) return;
+        App app = items.get(position);
+        String packageName = app.getPackageName();
+        boolean selected = !app.getSelected();
+        if (selected == lockedAtOpen.contains(packageName)) {
+            toggled.remove(packageName); // back to how it was
+        } else {
+            toggled.put(packageName, selected);
+        }
+
+        // Swap in a copy of the row; the differ rebinds just that one
+        items.set(position, app.withSelected(selected));
+        adapter.submitList(new ArrayList<>(items));
 
         confirmButton.setVisibility(View.VISIBLE);
         confirmButton.setOnClickListener(v -> {
@@ -81,62 +112,32 @@ public class DialogFragment extends androidx.fragment.app.DialogFragment impleme
         });
     }
 
+    // Everything the user changed goes out as one change set
     private void handleAppSelection() {
-        ArrayList<App> selectedApps = getSelectedApps();
-        ArrayList<App> deselectedApps = getDeselectedApps();
-
-        AppBlockerService blocker = AppBlockerService.getInstance();
-
-        for (App app : selectedApps) {
-            if (blocker != null) {
-                blocker.addLockedApp(app);
-                blocker.updateActiveLocks();
+        if (toggled.isEmpty()) return;
+
+        ArrayList<App> locked = new ArrayList<>();
+        ArrayList<String> unlocked = new ArrayList<>();
+        ArrayList<App> changed = new ArrayList<>(toggled.size());
+        for (App app : items) {
+            Boolean selected = toggled.get(app.getPackageName());
+            if (selected == null) continue;
+            if (selected) {
+                locked.add(app);
             } else {
-                preferenceManager.addLockedApp(app);
+                unlocked.add(app.getPackageName());
             }
-            listener.onDataSelected(appArray.indexOf(app), app);
-        }
-
-        for (App app : deselectedApps) {
-            if (blocker != null) {
-                blocker.removeLockedApp(app.getPackageName());
-                blocker.updateActiveLocks();
-            } else {
-                preferenceManager.removeLockedApp(app.getPackageName());
-            }
-            listener.onDataSelected(appArray.indexOf(app), app);
-        }
-
-        if (blocker != null) {
-            Log.d("DialogFragment", "Total locked apps: " + blocker.getLockedApps().size());
-        }
-    }
-
-    private ArrayList<App> getSelectedApps() {
-        ArrayList<App> selected = new ArrayList<>();
-        for (App app : appArray) {
-            if (app.getSelected()) selected.add(app);
+            changed.add(app);
         }
-        return selected;
-    }
 
-    private ArrayList<App> getDeselectedApps() {
-        ArrayList<App> deselected = new ArrayList<>();
         AppBlockerService blocker = AppBlockerService.getInstance();
-
-        for (App app : appArray) {
-            if (!app.getSelected()) {
-                boolean wasLocked = false;
-                if (blocker != null) {
-                    wasLocked = blocker.isLocked(app.getPackageName());
-                }
-                if (!wasLocked) {
-                    wasLocked = preferenceManager.isLocked(app.getPackageName());
-                }
-                if (wasLocked) deselected.add(app);
-            }
+        if (blocker != null) {
+            blocker.applyLockedAppChanges(locked, unlocked);
+            Log.d("DialogFragment", "Total locked apps: " + blocker.getLockedAppCount());
+        } else {
+            preferenceManager.applyLockedAppChanges(locked, unlocked);
         }
-        return deselected;
+        listener.onDataSelected(changed);
     }
 
     @SuppressWarnings("unchecked")
@@ -150,36 +151,27 @@ public class DialogFragment extends androidx.fragment.app.DialogFragment impleme
         }
     }
 
-    private void showAppList() {
-        String[] nameList = getResources().getStringArray(R.array.category_name_array);
-        String[] packageList = getResources().getStringArray(R.array.category_package_array);
-        TypedArray imageArray = getResources().obtainTypedArray(R.array.category_item_array);
-
-        AppBlockerService blocker = AppBlockerService.getInstance();
+    // Locked set in one read: the live snapshot if the service is up, otherwise the store
+    private Set<String> loadLockedPackages() {
+        if (AppBlockerService.getInstance() != null) {
+            return BlockerStateEngine.getInstance().snapshot().getLockedPackages();
+        }
+        return preferenceManager.getLockedPackageNames();
+    }
 
-        for (int i = 0; i < nameList.length; i++) {
-            boolean exists = false;
-            for (App app : appArray) {
-                if (app.getPackageName().equals(packageList[i])) {
-                    exists = true;
-                    break;
-                }
-            }
-            if (!exists) {
-                int imageResId = imageArray.getResourceId(i, 0);
-                boolean isSelected = false;
-
-                if (blocker != null) {
-                    isSelected = blocker.isLocked(packageList[i]);
-                } else {
-                    isSelected = preferenceManager.isLocked(packageList[i]);
-                }
-
-                appArray.add(new App(packageList[i], nameList[i], isSelected, imageResId));
-                Log.d("DialogFragment", "Added app: " + nameList[i] + ", locked: " + isSelected);
+    private void showAppList(List<AppCatalog.Entry> entries) {
+        // Keep toggles the user already made if the catalog refreshes underneath them
+        ArrayList<App> apps = AppCatalog.toApps(entries, lockedAtOpen);
+        if (!toggled.isEmpty()) {
+            for (int i = 0; i < apps.size(); i++) {
+                Boolean selected = toggled.get(apps.get(i).getPackageName());
+                if (selected != null) apps.set(i, apps.get(i).withSelected(selected));
             }
         }
 
-        imageArray.recycle();
+        items.clear();
+        items.addAll(apps);
+        adapter.submitList(new ArrayList<>(items));
+        Log.d("DialogFragment", "Showing " + apps.size() + " apps, " + lockedAtOpen.size() + " locked");
     }
 }
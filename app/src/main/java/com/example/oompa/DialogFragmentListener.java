@@ -1,6 +1,9 @@
 package com.example.oompa;
 
+import java.util.List;
+
 public interface DialogFragmentListener<T> {
     //this interface allows data from a DialogFragment to populate a RecycleView
-    void onDataSelected(int position, T data);
+    //called once per confirm with every item whose selection changed (already saved)
+    void onDataSelected(List<T> changed);
 }
@@ -1,22 +1,34 @@
 package com.example.oompa;
 
+import android.Manifest;
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
+import android.view.Choreographer;
 import android.widget.Button;
 import android.widget.TextView;
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import com.example.oompa.history.StatsRollup;
 import com.example.oompa.services.AppBlockerService;
+import com.example.oompa.services.AppCatalog;
+import com.example.oompa.services.HistoryLog;
 import com.example.oompa.services.PreferenceManager;
+import com.example.oompa.services.WorkoutService;
 import com.example.oompa.services.earnedTimeCounter;
 import android.content.Context;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 
-public class MainActivity extends AppCompatActivity implements DialogFragmentListener<App>, SensorEventListener {
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MainActivity extends AppCompatActivity implements DialogFragmentListener<App> {
 
     private DialogFragment dialogFragment;
     private TextView appCount, exerciseCountInfo, remainingTime;
@@ -24,16 +36,24 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
 
     private PreferenceManager preferenceManager;
     private Handler handler = new Handler();
-    private SensorManager sensorManager;
-    private Sensor accelerometer;
 
     private earnedTimeCounter timeCounter;
     private ExerciseCounter exerciseCounter;
+    private HistoryLog history;
+
+    // Counting lives in WorkoutService; this activity only starts/stops it and draws
+    private WorkoutService workout;
+
+    // UI redraws are coalesced to at most one per display frame
+    private Choreographer choreographer;
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private ExerciseCounter.Snapshot drawnSnapshot;
+    private long drawnCredits = -1;
+    private StatsRollup drawnStats;   // swapped once the saved rollup finishes loading
 
     private long unlockTimeLeft;
-    private boolean isUnlockActive = false;
+    private volatile boolean isUnlockActive = false;
     private Runnable unlockRunnable;
-    private boolean isExercising = false; // Track exercise state
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,6 +73,12 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
 
         timeCounter = earnedTimeCounter.getInstance(this);
         exerciseCounter = ExerciseCounter.getInstance(timeCounter);
+        history = HistoryLog.getInstance(this);
+
+        choreographer = Choreographer.getInstance();
+
+        // Build the app picker list in the background before the dialog asks for it
+        AppCatalog.getInstance(this).load();
 
         // Start AppBlockerService
         startService(new Intent(this, AppBlockerService.class));
@@ -67,17 +93,10 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
 
         startExercisingButton.setOnClickListener(v -> {
             // Only allow exercise if not currently unlocking
-            if (!isUnlockActive) {
-                isExercising = true;
-                startExercisingButton.setText("Stop Exercise");
-                sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
-                accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-                if (accelerometer != null) {
-                    sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
-                }
-            } else {
-                // Stop exercising
+            if (isExercising()) {
                 stopExercising();
+            } else if (!isUnlockActive) {
+                startExercising();
             }
         });
 
@@ -107,18 +126,43 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
         });
     }
 
-    private void stopExercising() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+    private final ServiceConnection workoutConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            workout = ((WorkoutService.LocalBinder) service).getService();
+            workout.setOnCountsChangedListener(snapshot -> scheduleFrame());
+            updateUIForUnlockState();
+            updateExerciseDisplay();
         }
-        isExercising = false;
-        startExercisingButton.setText("Start Exercise");
 
-        // Reset exercise counters
-        if (exerciseCounter != null) {
-            exerciseCounter.reset();
-            updateExerciseDisplay();
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            workout = null;
+        }
+    };
+
+    private boolean isExercising() {
+        return workout != null && workout.isWorkingOut();
+    }
+
+    private void startExercising() {
+        // The workout notification needs this on 13+; counting works either way
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
         }
+        ContextCompat.startForegroundService(this,
+                new Intent(this, WorkoutService.class).setAction(WorkoutService.ACTION_START));
+        startExercisingButton.setText("Stop Exercise");
+    }
+
+    private void stopExercising() {
+        // Also resets the counters; the published snapshot then triggers a redraw
+        if (workout != null) {
+            workout.stopWorkout();
+        }
+        startExercisingButton.setText("Start Exercise");
     }
 
     private void updateUIForUnlockState() {
@@ -130,7 +174,7 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
         } else {
             startExercisingButton.setEnabled(true);
             startExercisingButton.setAlpha(1f);
-            startExercisingButton.setText("Start Exercise");
+            startExercisingButton.setText(isExercising() ? "Stop Exercise" : "Start Exercise");
             unlockAppsButton.setEnabled(true);
         }
     }
@@ -165,67 +209,113 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
             remainingTime.setText(timeCounter.getFormattedCredits());
             updateUIForUnlockState();
         }
+    }
 
-        // Only register sensor if we were exercising and not unlocking
-        if (isExercising && !isUnlockActive && accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, WorkoutService.class), workoutConnection, Context.BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // The workout keeps going in the service; we just stop drawing it
+        if (workout != null) {
+            workout.setOnCountsChangedListener(null);
+            workout = null;
         }
+        unbindService(workoutConnection);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        timeCounter.flush();
+        HistoryLog.getInstance(this).flush();
+
+        // Nothing to draw while hidden; onResume restarts both
+        if (unlockRunnable != null) {
+            handler.removeCallbacks(unlockRunnable);
+            unlockRunnable = null;
         }
+        handler.removeCallbacks(appCountRetry);
     }
 
+    private final Runnable appCountRetry = this::updateAppCount;
+
     private void updateAppCount() {
         AppBlockerService blocker = AppBlockerService.getInstance();
         int count;
         if (blocker != null) {
-            count = blocker.getLockedApps().size();
+            count = blocker.getLockedAppCount();
         } else {
             count = 0;
             for (App app : preferenceManager.getLockedApps()) {
                 if (app.getSelected()) count++;
             }
-            handler.postDelayed(this::updateAppCount, 500);
+            // Service not connected yet; retry while we're visible
+            handler.removeCallbacks(appCountRetry);
+            handler.postDelayed(appCountRetry, 500);
         }
         appCount.setText(String.valueOf(count));
     }
 
     @Override
-    public void onDataSelected(int position, App app) {
-        if (app.getSelected()) {
-            preferenceManager.addLockedApp(app);
-        } else {
-            preferenceManager.removeLockedApp(app.getPackageName());
-        }
+    public void onDataSelected(List<App> changed) {
+        // The dialog already saved the change set; just refresh the count
         updateAppCount();
     }
 
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        // Only process sensor data if exercising and not unlocking
-        if (isExercising && !isUnlockActive) {
-            exerciseCounter.onSensorChanged(event);
-            updateExerciseDisplay();
-
-            // Update remaining time display with earned credits
-            remainingTime.setText(timeCounter.getFormattedCredits());
+    // Safe to call from any thread
+    private void scheduleFrame() {
+        if (framePending.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(frameCallback);
         }
     }
 
-    private void updateExerciseDisplay() {
-        String info = "Jumps: " + exerciseCounter.getJumpCount() +
-                "\nJumping Jacks: " + exerciseCounter.getJumpingJackCount() +
-                "\nEarned Time: " + timeCounter.getFormattedCredits();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        framePending.set(false);
+        renderCounters();
+    };
+
+    /** Redraw counters, skipping the text work when nothing changed since the last frame */
+    private void renderCounters() {
+        ExerciseCounter.Snapshot snapshot = exerciseCounter.getSnapshot();
+        long credits = timeCounter.getEarnedTime();
+        StatsRollup stats = history.getStats();
+        if (snapshot == drawnSnapshot && credits == drawnCredits && stats == drawnStats) return;
+        drawnSnapshot = snapshot;
+        drawnCredits = credits;
+        drawnStats = stats;
+
+        String formattedCredits = timeCounter.formatMillis(credits);
+        StringBuilder info = new StringBuilder("Jumps: ").append(snapshot.jumpCount);
+        for (Exercise exercise : Exercise.values()) {
+            info.append('\n').append(exercise.label).append(": ").append(snapshot.getReps(exercise));
+        }
+        info.append("\nEarned Time: ").append(formattedCredits);
+
+        // Rollup reads are a few array lookups, fine to do per frame
+        long now = System.currentTimeMillis();
+        info.append("\nToday: ").append(stats.get(StatsRollup.DAY, StatsRollup.REPS, now)).append(" reps, ")
+                .append(timeCounter.formatMillis(stats.get(StatsRollup.DAY, StatsRollup.CREDIT_MS, now))).append(" earned, ")
+                .append(stats.get(StatsRollup.DAY, StatsRollup.UNLOCKS, now)).append(" unlocks, ")
+                .append(stats.get(StatsRollup.DAY, StatsRollup.BLOCKS, now)).append(" blocks");
+        info.append("\nThis week: ").append(stats.get(StatsRollup.WEEK, StatsRollup.REPS, now)).append(" reps, ")
+                .append(timeCounter.formatMillis(stats.get(StatsRollup.WEEK, StatsRollup.CREDIT_MS, now))).append(" earned");
         exerciseCountInfo.setText(info);
+
+        // Update remaining time display with earned credits
+        if (!isUnlockActive) {
+            remainingTime.setText(formattedCredits);
+        }
     }
 
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+    private void updateExerciseDisplay() {
+        drawnSnapshot = null;
+        renderCounters();
+    }
 
     private void startUnlockCountdown() {
         if (unlockRunnable != null) {
@@ -239,7 +329,8 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
 
                 if (isUnlockActive && unlockTimeLeft > 0) {
                     remainingTime.setText(timeCounter.formatMillis(unlockTimeLeft));
-                    handler.postDelayed(this, 1000);
+                    // Wake up exactly when the displayed second changes
+                    handler.postDelayed(this, unlockTimeLeft % 1000 + 1);
                 } else {
                     // Countdown finished
                     remainingTime.setText("00:00");
@@ -249,11 +340,14 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
                     // Force update exercise display to show current state
                     updateExerciseDisplay();
 
-                    // Ensure service state is updated and apps are blocked again
+                    // The service ends the unlock on its own timer; only step in if it hasn't yet
                     AppBlockerService blocker = AppBlockerService.getInstance();
                     if (blocker != null) {
-                        blocker.endExerciseUnlock();
-                        blocker.updateActiveLocks(); // Force immediate lock update
+                        if (blocker.isExerciseUnlockActive()) {
+                            blocker.endExerciseUnlock();
+                        }
+                    } else {
+                        timeCounter.stopCountdown();
                     }
 
                     unlockRunnable = null; // Clear the runnable
@@ -269,6 +363,7 @@ public class MainActivity extends AppCompatActivity implements DialogFragmentLis
         if (unlockRunnable != null) {
             handler.removeCallbacks(unlockRunnable);
         }
-        stopExercising();
+        choreographer.removeFrameCallback(frameCallback);
+        timeCounter.flush();
     }
 }
\ No newline at end of file
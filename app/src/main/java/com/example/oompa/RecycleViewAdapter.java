@@ -8,24 +8,63 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import com.example.oompa.services.IconLoader;
 
-public class RecycleViewAdapter extends RecyclerView.Adapter<RecycleViewAdapter.MyViewHolder> {
-    //RecycleView Adapter when selecting users to associate with certain items in AddPeople.java
+import java.util.HashMap;
+import java.util.Map;
+
+public class RecycleViewAdapter extends ListAdapter<App, RecycleViewAdapter.MyViewHolder> {
+    //RecycleView Adapter for picking which apps to lock. Lists are diffed off the UI thread
+    //by AsyncListDiffer, so submitList() only rebinds the rows that actually changed
     private Context context;
-    private ArrayList<App> appArray = new ArrayList<>();
     private final RecycleViewInterface recycleViewInterface;
+    private final IconLoader iconLoader;
+    private final int iconSizePx;
 
+    // Stable ids per package so rows keep their identity across submitList()
+    private final Map<String, Long> stableIds = new HashMap<>();
 
+    private static final DiffUtil.ItemCallback<App> DIFF = new DiffUtil.ItemCallback<App>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull App oldItem, @NonNull App newItem) {
+            return oldItem.getPackageName().equals(newItem.getPackageName());
+        }
 
+        @Override
+        public boolean areContentsTheSame(@NonNull App oldItem, @NonNull App newItem) {
+            return oldItem.getSelected() == newItem.getSelected()
+                    && oldItem.getAppIcon() == newItem.getAppIcon()
+                    && oldItem.getAppName().equals(newItem.getAppName());
+        }
+    };
 
     //default initialization
-    public RecycleViewAdapter(Context context, ArrayList<App> appArray, RecycleViewInterface recycleViewInterface){
+    public RecycleViewAdapter(Context context, RecycleViewInterface recycleViewInterface){
+        super(DIFF);
         this.context = context;
-        this.appArray = appArray;
         this.recycleViewInterface = recycleViewInterface;
+        this.iconLoader = IconLoader.getInstance(context);
+        this.iconSizePx = context.getResources().getDimensionPixelSize(R.dimen.app_icon_size);
+        setHasStableIds(true);
+    }
+
+    public App getApp(int position) {
+        return getItem(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String packageName = getItem(position).getPackageName();
+        Long id = stableIds.get(packageName);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(packageName, id);
+        }
+        return id;
     }
 
     @NonNull
@@ -40,9 +79,10 @@ public class RecycleViewAdapter extends RecyclerView.Adapter<RecycleViewAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull RecycleViewAdapter.MyViewHolder holder, int position) {
-        App currentApp = appArray.get(position);
+        App currentApp = getItem(position);
 
-        holder.icon.setImageResource(currentApp.getAppIcon());
+        // Decoded off the UI thread at row size, cached across binds
+        iconLoader.load(holder.icon, currentApp.getPackageName(), currentApp.getAppIcon(), iconSizePx);
         holder.nameText.setText(currentApp.getAppName());
 
         if (currentApp.getSelected()) {
@@ -52,11 +92,11 @@ public class RecycleViewAdapter extends RecyclerView.Adapter<RecycleViewAdapter.
         }
     }
 
-
     @Override
-    public int getItemCount() {
-        //number of items want displayed
-        return appArray.size();
+    public void onViewRecycled(@NonNull RecycleViewAdapter.MyViewHolder holder) {
+        // Row is going back to the pool, don't let its old load land on it
+        iconLoader.cancel(holder.icon);
+        super.onViewRecycled(holder);
     }
 
     public static class MyViewHolder extends RecyclerView.ViewHolder {
@@ -1,14 +1,13 @@
 package com.example.oompa.classes;
-import android.graphics.drawable.Drawable;
 
 public class LockedApp {
     private final String packageName;
     private final String appName;
-    private final Drawable appIcon;
+    private final int appIcon;   // bundled drawable res, 0 = installed app icon (see IconLoader)
 
     private boolean activeLocked;  // new: true during locking period
 
-    public LockedApp(String packageName, String appName, Drawable appIcon){
+    public LockedApp(String packageName, String appName, int appIcon){
         this.packageName = packageName;
         this.appName = appName;
         this.appIcon = appIcon;
@@ -20,7 +19,7 @@ public class LockedApp {
 
     public String getPackageName() { return packageName; }
     public String getAppName() { return appName; }
-    public Drawable getAppIcon() { return appIcon; }
+    public int getAppIcon() { return appIcon; }
 }
 
 
@@ -0,0 +1,172 @@
+package com.example.oompa.services;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.oompa.motion.SensorSource;
+
+/**
+ * Accelerometer as a {@link SensorSource}. Where the sensor has a hardware FIFO,
+ * it's registered with a report latency so the sensor hub buffers samples and
+ * wakes the CPU once per burst instead of once per sample. Events are collected
+ * into arrays on the handler's thread and handed over a burst at a time.
+ */
+public class AccelerometerSource implements SensorSource, SensorEventListener2 {
+    public static final int SAMPLING_PERIOD_US = 20_000;         // 50 Hz, same as SENSOR_DELAY_GAME
+    private static final int MAX_REPORT_LATENCY_US = 300_000;    // let the FIFO hold ~15 samples
+    private static final int BATCH_CAPACITY = 64;
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private final Handler handler;
+
+    // Only touched on the handler's thread
+    private final float[] xyz = new float[BATCH_CAPACITY * 3];
+    private final long[] timestamps = new long[BATCH_CAPACITY];
+    private int count = 0;
+    private boolean flushPosted = false;
+
+    private volatile Listener listener;
+    private volatile boolean batching = false;
+
+    // Rate changes (handler thread only)
+    private int periodUs = SAMPLING_PERIOD_US;
+    private int pendingPeriodUs = 0;       // waiting for the FIFO flush before re-registering
+    private boolean registered = false;
+
+    public AccelerometerSource(SensorManager sensorManager, Handler handler) {
+        this(sensorManager, handler, false);
+    }
+
+    /**
+     * With {@code wakeUp}, prefer the wake-up variant of the accelerometer: its FIFO
+     * keeps filling while the CPU sleeps and wakes it once per report latency, so
+     * counting carries on with the screen off without holding a wake lock.
+     */
+    public AccelerometerSource(SensorManager sensorManager, Handler handler, boolean wakeUp) {
+        this.sensorManager = sensorManager;
+        Sensor sensor = wakeUp ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER, true) : null;
+        this.accelerometer = sensor != null ? sensor : sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        this.handler = handler;
+    }
+
+    public boolean isAvailable() {
+        return accelerometer != null;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        if (accelerometer == null) return;
+        this.listener = listener;
+        // Only ask for batching if there's a FIFO to hold it; otherwise it's ignored anyway
+        batching = accelerometer.getFifoMaxEventCount() > 0;
+        handler.post(() -> {
+            periodUs = SAMPLING_PERIOD_US;
+            pendingPeriodUs = 0;
+            register();
+        });
+    }
+
+    @Override
+    public void stop() {
+        final Listener stopping = listener;
+        handler.post(() -> {
+            unregister();
+            flush();
+            // Unless start() already handed us a new one
+            if (listener == stopping) listener = null;
+        });
+    }
+
+    /**
+     * Switch sampling rate without losing samples: whatever the FIFO holds is
+     * flushed through to the listener first, then the sensor is re-registered.
+     * Filter and detector state carry straight over since they run on timestamps.
+     */
+    public void setSamplingPeriodUs(int newPeriodUs) {
+        handler.post(() -> {
+            if (!registered || newPeriodUs == periodUs) {
+                periodUs = newPeriodUs;
+                return;
+            }
+            if (batching) {
+                pendingPeriodUs = newPeriodUs;
+                sensorManager.flush(this);   // -> onFlushCompleted
+            } else {
+                switchPeriod(newPeriodUs);
+            }
+        });
+    }
+
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // Everything sampled at the old rate has been delivered
+        if (pendingPeriodUs != 0 && registered) {
+            int next = pendingPeriodUs;
+            pendingPeriodUs = 0;
+            switchPeriod(next);
+        }
+    }
+
+    private void switchPeriod(int newPeriodUs) {
+        unregister();
+        flush();
+        periodUs = newPeriodUs;
+        register();
+    }
+
+    private void register() {
+        int latencyUs = batching ? MAX_REPORT_LATENCY_US : 0;
+        registered = sensorManager.registerListener(this, accelerometer, periodUs, latencyUs, handler);
+        Log.d("AccelerometerSource", "Registered, periodUs=" + periodUs + " fifo="
+                + accelerometer.getFifoMaxEventCount() + " latencyUs=" + latencyUs);
+    }
+
+    private void unregister() {
+        if (!registered) return;
+        sensorManager.unregisterListener(this);
+        registered = false;
+    }
+
+    @Override
+    public boolean isBatching() {
+        return batching;
+    }
+
+    // A FIFO burst arrives as back-to-back callbacks; the posted flush runs after the last one
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        final float[] v = event.values;
+        int j = count * 3;
+        xyz[j] = v[0];
+        xyz[j + 1] = v[1];
+        xyz[j + 2] = v[2];
+        timestamps[count++] = event.timestamp;
+
+        if (count == BATCH_CAPACITY) {
+            flush();
+        } else if (!flushPosted) {
+            flushPosted = true;
+            handler.post(flushRunnable);
+        }
+    }
+
+    private final Runnable flushRunnable = () -> {
+        flushPosted = false;
+        flush();
+    };
+
+    private void flush() {
+        if (count == 0) return;
+        Listener l = listener;
+        if (l != null) l.onSamples(xyz, timestamps, count);
+        count = 0;
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) { }
+}
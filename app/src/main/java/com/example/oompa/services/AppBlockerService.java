@@ -1,37 +1,103 @@
 package com.example.oompa.services;
 
 import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.example.oompa.App;
-import com.example.oompa.MainActivity;
+import com.example.oompa.history.EventLog;
 
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 
 public class AppBlockerService extends AccessibilityService {
 
-    private static final Map<String, App> lockedApps = new HashMap<>();
+    // Locked set, unlock and schedule live here as immutable snapshots
+    private final BlockerStateEngine state = BlockerStateEngine.getInstance();
+
+    // Always-delivered packages besides the locked ones, so we see the user leaving a locked app
+    private static final String SYSTEM_UI_PACKAGE = "com.android.systemui";
+    private final Set<String> transitionPackages = new HashSet<>();
+    private String ownPackage;
+    private int ownPackageId = PackageTable.NO_ID;
     private PreferenceManager preferenceManager;
+    // Wildcard rules reach the event filter as the catalog packages they match
+    private AppCatalog catalog;
+    private final AppCatalog.Listener catalogListener = entries -> updateEventFilter();
 
     private earnedTimeCounter timeCounter;
-
-    private long dailyFullLock = System.currentTimeMillis();
-    private int lockUnlockDurationHours = 3;
-    private long dailyFullUnlock = dailyFullLock + (lockUnlockDurationHours * 60 * 60 * 1000L);
-    private boolean isExerciseUnlockActive = false;
+    private HistoryLog history;
 
     private long exerciseUnlockStart;
     private long exerciseUnlockEnd;
     private int maxDailyExerciseUnlocks = 2;
     private int exerciseUnlocksUsed = 0;
 
+    // Foreground time per app today, charged on window transitions; budgets become one timer
+    private final UsageAccountant usage = new UsageAccountant();
+    private final Set<String> budgetedPackages = new HashSet<>();
+    private final Runnable budgetTick = this::onBudgetTick;
+    private long armedBudgetTick = UsageAccountant.NO_DEADLINE;   // elapsedRealtime
+    private long usageDayStart;   // wall millis of the local midnight today's totals belong to
+    private long usageDayEnd;     // the next midnight, as elapsedRealtime
+
     private Handler handler = new Handler();
+    private UnlockScheduler unlockScheduler;
+    // Sleeps until the schedule's next lock/unlock edge
+    private final Runnable scheduleTick = this::onScheduleTransition;
+    private final BroadcastReceiver clockReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // Wall-clock edges moved; recompile in the new zone and re-arm
+            state.setScheduleRules(preferenceManager.getScheduleRules(), TimeZone.getDefault(),
+                    System.currentTimeMillis());
+            updateActiveLocks();
+            if (updateUsageDay(SystemClock.elapsedRealtime())) {
+                publishUsage();
+                saveUsage();
+            }
+            armBudgetTick();
+        }
+    };
+    // Nothing is in front while the screen is off; on again, bill whatever window is active
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            boolean off = Intent.ACTION_SCREEN_OFF.equals(intent.getAction());
+            int packageId = off ? PackageTable.NO_ID : activeWindowId();
+            if (usage.onForeground(packageId, SystemClock.elapsedRealtime())) {
+                publishUsage();
+                if (!off) blockForegroundIfLocked("budget used up");
+            }
+            // The process may well be killed while the screen is off
+            if (off) saveUsage();
+            armBudgetTick();
+        }
+    };
+    private BlockOverlay blockOverlay;
+
+    // Coalesces the burst of window-state events from one launch into one block
+    private static final long BLOCK_COALESCE_WINDOW_MS = 750L;
+    private final BlockDispatcher blockDispatcher = new BlockDispatcher(BLOCK_COALESCE_WINDOW_MS);
     private static AppBlockerService instance;
 
     public static AppBlockerService getInstance() {
@@ -42,122 +108,418 @@ public class AppBlockerService extends AccessibilityService {
     public void onServiceConnected() {
         super.onServiceConnected();
         instance = this;
+        ownPackage = getPackageName();
         preferenceManager = new PreferenceManager(this);
+        blockOverlay = new BlockOverlay(this);
+        blockOverlay.setOnHiddenListener(blockDispatcher::onBlockHidden);
+        blockOverlay.prepare();
+        loadTransitionPackages();
+        ownPackageId = state.setExemptPackages(transitionPackages).idOf(ownPackage);
+        state.setScheduleRules(preferenceManager.getScheduleRules(), TimeZone.getDefault(),
+                System.currentTimeMillis());
+        loadUsage();
+        loadLockPatterns();
+        catalog = AppCatalog.getInstance(this);
+        catalog.addListener(catalogListener);
+        catalog.load();
         loadSavedApps();
         timeCounter = earnedTimeCounter.getInstance(this);
-        handler.post(lockChecker);
-        Log.d("AppBlockerService", "Service connected, loaded " + lockedApps.size() + " apps");
+        history = HistoryLog.getInstance(this);
+        unlockScheduler = new UnlockScheduler(handler, this::onUnlockExpired);
+        timeCounter.setOnUnlockDeadlineChangedListener(deadline -> armUnlockTimer());
+        restoreUnlockState();
+        IntentFilter clockChanges = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        clockChanges.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        registerReceiver(clockReceiver, clockChanges);
+        IntentFilter screenChanges = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        screenChanges.addAction(Intent.ACTION_SCREEN_ON);
+        screenChanges.addAction(Intent.ACTION_USER_PRESENT);   // past the keyguard, the app behind it is back
+        registerReceiver(screenReceiver, screenChanges);
+        updateActiveLocks();
+        armBudgetTick();
+        Log.d("AppBlockerService", "Service connected, loaded " + state.snapshot().getLockedCount() + " apps");
     }
 
     private void loadSavedApps() {
-        lockedApps.clear();
+        List<String> packages = new ArrayList<>();
         for (App app : preferenceManager.getLockedApps()) {
-            if (app.getSelected()) lockedApps.put(app.getPackageName(), app);
+            if (app.getSelected()) packages.add(app.getPackageName());
+        }
+        state.setLockedPackages(packages);
+        updateEventFilter();
+    }
+
+    private void loadLockPatterns() {
+        try {
+            state.setLockPatterns(preferenceManager.getLockPatterns());
+        } catch (IllegalArgumentException e) {
+            Log.w("AppBlockerService", "Ignoring saved lock patterns", e);
+        }
+    }
+
+    // Launchers + system UI (recents, notification shade) + ourselves
+    private void loadTransitionPackages() {
+        transitionPackages.clear();
+        transitionPackages.add(ownPackage);
+        transitionPackages.add(SYSTEM_UI_PACKAGE);
+        Intent home = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_HOME);
+        for (ResolveInfo info : getPackageManager().queryIntentActivities(home, PackageManager.MATCH_DEFAULT_ONLY)) {
+            if (info.activityInfo != null) transitionPackages.add(info.activityInfo.packageName);
+        }
+    }
+
+    /**
+     * Narrow event delivery to the locked packages plus the transition packages.
+     * The system then filters on its side, so unrelated apps never cost us an IPC.
+     * The set always contains our own package; an empty filter would mean "everything".
+     * The filter only takes exact names, so wildcard rules are expanded against the
+     * app catalog; the catalog listener re-runs this when apps are installed.
+     */
+    private void updateEventFilter() {
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) return;
+        Set<String> packages = new HashSet<>(transitionPackages);
+        packages.addAll(state.snapshot().getLockedPackages());
+        packages.addAll(budgetedPackages);
+        PackagePatterns patterns = state.snapshot().getLockPatterns();
+        if (!patterns.isEmpty() && catalog != null) {
+            for (AppCatalog.Entry entry : catalog.getEntries()) {
+                if (patterns.matches(entry.packageName)) packages.add(entry.packageName);
+            }
         }
+        info.packageNames = packages.toArray(new String[0]);
+        setServiceInfo(info);
+        Log.d("AppBlockerService", "Event filter now covers " + packages.size() + " packages");
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (timeCounter != null) timeCounter.stopCountdown();
-        saveAppsToPreferences();
+        if (timeCounter != null) {
+            timeCounter.stopCountdown();
+            timeCounter.setOnUnlockDeadlineChangedListener(null);
+            timeCounter.flush();
+        }
+        if (history != null) history.flush();
+        if (preferenceManager != null) saveUsage();
+        if (catalog != null) catalog.removeListener(catalogListener);
+        if (unlockScheduler != null) unlockScheduler.cancel();
+        if (blockOverlay != null) blockOverlay.release();
+        if (preferenceManager != null) {
+            unregisterReceiver(clockReceiver);
+            unregisterReceiver(screenReceiver);
+        }
+        handler.removeCallbacks(scheduleTick);
+        handler.removeCallbacks(budgetTick);
+        state.setUnlock(false, 0L);
         instance = null;
     }
 
-    private void saveAppsToPreferences() {
-        preferenceManager.saveLockedApps(new ArrayList<>(lockedApps.values()));
-    }
-
-    private String currentForegroundApp = "";
+    // Interned id of the last foreground package we saw (ids are stable, see PackageTable)
+    private int currentForegroundId = PackageTable.NO_ID;
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
         if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
-            String packageName = event.getPackageName() != null ? event.getPackageName().toString() : "";
-            if (packageName.equals(getPackageName())) return;
+            // The expiry timer may be late if the device slept through it
+            unlockScheduler.checkOverdue();
+
+            // Probe the interned table with the event's CharSequence; no String copy
+            BlockerSnapshot snapshot = state.snapshot();
+            // Same for the schedule tick
+            long now = System.currentTimeMillis();
+            if (now >= snapshot.getNextScheduleTransition()) {
+                snapshot = state.evaluateSchedule(now);
+            }
+            int packageId = snapshot.idOf(event.getPackageName());
+            if (packageId == PackageTable.NO_ID && snapshot.matchesLockPattern(event.getPackageName())) {
+                // First sight of a wildcard-locked package: give it an id (one allocation per package, ever)
+                String packageName = event.getPackageName().toString();
+                snapshot = state.internPackages(Collections.singleton(packageName));
+                packageId = snapshot.idOf(packageName);
+            }
+
+            // Bill the time since the last transition to the app that was in front; totals are
+            // written on the budget tick and screen off, not per event
+            if (usage.onForeground(packageId, SystemClock.elapsedRealtime())) {
+                snapshot = publishUsage();
+            }
+            armBudgetTick();
+
+            if (packageId == ownPackageId && packageId != PackageTable.NO_ID) return;
 
             // Track current foreground app
-            currentForegroundApp = packageName;
+            currentForegroundId = packageId;
 
-            if (shouldBlockApp(packageName)) {
-                blockApp(packageName);
+            if (snapshot.shouldBlock(packageId)) {
+                blockApp(packageId, event.getEventTime());
+            } else if (blockOverlay.isShowing()) {
+                // User moved on (home, recents, an allowed app)
+                blockOverlay.hide();
             }
         }
     }
 
-    private void blockApp(String packageName) {
-        Intent i = new Intent(this, MainActivity.class);
-        i.putExtra("blockedApp", packageName);
-        i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        startActivity(i);
-        Log.d("AppBlockerService", "Blocked access to: " + packageName);
+    /** {@code eventTime} is the uptimeMillis of what triggered the block, for time-to-block stats. */
+    private void blockApp(int packageId, long eventTime) {
+        if (!blockDispatcher.offer(packageId, eventTime)) return;
+        String packageName = state.snapshot().packageName(packageId);
+        if (blockOverlay.show(packageName, eventTime)) {
+            blockDispatcher.onBlockShown(packageId);
+            history.record(EventLog.TYPE_BLOCK, EventLog.BLOCK_OVERLAY, packageName);
+            Log.d("AppBlockerService", "Blocked access to: " + packageName +
+                    " (dropped " + blockDispatcher.getDroppedCount() + " duplicate requests so far)");
+        } else {
+            // Still a block attempt for the stats, but tagged so it isn't read as an overlay block
+            history.record(EventLog.TYPE_BLOCK, EventLog.BLOCK_HOME, packageName);
+            Log.d("AppBlockerService", "Sent home from: " + packageName + " (overlay unavailable)");
+        }
     }
 
     private boolean shouldBlockApp(String packageName) {
-        App app = lockedApps.get(packageName);
-        if (app == null) return false;
-
         // Block if app is selected AND we're not in exercise unlock period
-        boolean shouldBlock = !isExerciseUnlockActive && app.getSelected();
-        Log.d("AppBlockerService", "Should block " + packageName + ": " + shouldBlock +
-                " (unlockActive: " + isExerciseUnlockActive + ", selected: " + app.getSelected() + ")");
-        return shouldBlock;
+        return state.snapshot().shouldBlock(packageName);
+    }
+
+    /**
+     * Events only arrive for filtered packages, so currentForegroundId can be stale if the
+     * user jumped straight to an unfiltered app. Ask the active window before acting on it.
+     */
+    private boolean isStillForeground(String packageName) {
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        if (root == null) return true; // can't tell; keep the old behaviour
+        try {
+            return TextUtils.equals(root.getPackageName(), packageName);
+        } finally {
+            root.recycle();
+        }
+    }
+
+    // Interned id of the package owning the active window, NO_ID if untracked or unknown
+    private int activeWindowId() {
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        if (root == null) return PackageTable.NO_ID;
+        try {
+            return state.snapshot().idOf(root.getPackageName());
+        } finally {
+            root.recycle();
+        }
     }
 
     @Override
     public void onInterrupt() { }
 
     public void addLockedApp(App app) {
-        app.setSelected(true);
-        lockedApps.put(app.getPackageName(), app);
-        preferenceManager.addLockedApp(app);
+        // Persist a selected copy rather than flipping the caller's object
+        preferenceManager.addLockedApp(new App(app.getPackageName(), app.getAppName(), true, app.getAppIcon()));
+        state.updateLockedPackages(Collections.singleton(app.getPackageName()), Collections.<String>emptySet());
+        updateEventFilter();
         Log.d("AppBlockerService", "Added locked app: " + app.getPackageName());
     }
 
     public void removeLockedApp(String packageName) {
-        lockedApps.remove(packageName);
         preferenceManager.removeLockedApp(packageName);
+        state.updateLockedPackages(Collections.<String>emptySet(), Collections.singleton(packageName));
+        updateEventFilter();
         Log.d("AppBlockerService", "Removed locked app: " + packageName);
     }
 
-    public List<App> getLockedApps() {
-        return new ArrayList<>(lockedApps.values());
+    /** Apply a whole picker change set: one store write, one snapshot, one filter and lock update. */
+    public void applyLockedAppChanges(Collection<App> locked, Collection<String> unlocked) {
+        preferenceManager.applyLockedAppChanges(locked, unlocked);
+        List<String> lockedNames = new ArrayList<>(locked.size());
+        for (App app : locked) lockedNames.add(app.getPackageName());
+        state.updateLockedPackages(lockedNames, unlocked);
+        updateEventFilter();
+        updateActiveLocks();
+        Log.d("AppBlockerService", "Applied " + locked.size() + " locks, " + unlocked.size() + " unlocks");
+    }
+
+    /**
+     * Replace the wildcard lock rules ("com.facebook.*", "com.google.android.apps.youtube*").
+     * @throws IllegalArgumentException for a star anywhere but the end; nothing is changed
+     */
+    public void setLockPatterns(Collection<String> patterns) {
+        BlockerSnapshot snapshot = state.setLockPatterns(patterns);
+        preferenceManager.saveLockPatterns(snapshot.getLockPatterns().getPatterns());
+        updateEventFilter();
+        blockForegroundIfLocked("wildcard rule covers it");
+        Log.d("AppBlockerService", "Lock patterns now: " + snapshot.getLockPatterns().getPatterns());
+    }
+
+    public int getLockedAppCount() {
+        return state.snapshot().getLockedCount();
     }
 
     public void updateActiveLocks() {
-        boolean dailyLock = System.currentTimeMillis() >= dailyFullLock && System.currentTimeMillis() < dailyFullUnlock;
-
-        for (App app : lockedApps.values()) {
-            // Apps are locked during daily lock period, unless exercise unlock is active
-            if (dailyLock) {
-                app.setSelected(true); // Always locked during daily lock period
-            } else {
-                app.setSelected(false); // Not in daily lock period
-            }
+        // Apps are locked while their schedule says so, unless exercise unlock is active
+        long now = System.currentTimeMillis();
+        BlockerSnapshot snapshot = state.evaluateSchedule(now);
+        armScheduleTick(snapshot, now);
+
+        Log.d("AppBlockerService", "Updated active locks. Scheduled classes locked: " +
+                snapshot.getActiveScheduleCount() + "/" + snapshot.getSchedule().classCount() +
+                ", Exercise unlock: " + snapshot.isUnlockActive() + ", Total apps: " + snapshot.getLockedCount());
+    }
+
+    /** Replace the lock schedule; an empty list keeps every locked app locked all day. */
+    public void setScheduleRules(List<ScheduleRule> rules) {
+        preferenceManager.saveScheduleRules(rules);
+        state.setScheduleRules(rules, TimeZone.getDefault(), System.currentTimeMillis());
+        updateActiveLocks();
+        Log.d("AppBlockerService", "Schedule now has " + rules.size() + " rules, " +
+                state.snapshot().getSchedule().namedPackageCount() + " apps with their own");
+    }
+
+    private void armScheduleTick(BlockerSnapshot snapshot, long now) {
+        handler.removeCallbacks(scheduleTick);
+        long next = snapshot.getNextScheduleTransition();
+        if (next != Long.MAX_VALUE) handler.postDelayed(scheduleTick, Math.max(0L, next - now));
+    }
+
+    // A window just opened or closed: the app in front may have become blocked
+    private void onScheduleTransition() {
+        updateActiveLocks();
+        blockForegroundIfLocked("schedule locked it");
+    }
+
+    private void blockForegroundIfLocked(String reason) {
+        String currentForegroundApp = state.snapshot().packageName(currentForegroundId);
+        if (currentForegroundApp != null && shouldBlockApp(currentForegroundApp)
+                && isStillForeground(currentForegroundApp)) {
+            Log.d("AppBlockerService", "Blocking currently running app, " + reason + ": " + currentForegroundApp);
+            blockApp(currentForegroundId, SystemClock.uptimeMillis());
+        }
+    }
+
+    // =========================
+    // Usage budgets
+    // =========================
+
+    /** Daily foreground allowance for {@code packageName}, locked or not; 0 removes it. */
+    public void setUsageBudget(String packageName, long dailyMillis) {
+        Map<String, Long> budgets = preferenceManager.getUsageBudgets();
+        if (dailyMillis > 0) {
+            budgets.put(packageName, dailyMillis);
+            budgetedPackages.add(packageName);
+        } else {
+            budgets.remove(packageName);
+            budgetedPackages.remove(packageName);
+        }
+        preferenceManager.saveUsageBudgets(budgets);
+        int packageId = state.internPackages(Collections.singleton(packageName)).idOf(packageName);
+        usage.setBudget(packageId, dailyMillis);
+        publishUsage();
+        updateEventFilter();
+        armBudgetTick();
+        blockForegroundIfLocked("budget used up");
+        Log.d("AppBlockerService", "Budget for " + packageName + ": " + dailyMillis + "ms, used " +
+                usage.getUsedMs(packageId, SystemClock.elapsedRealtime()) + "ms today");
+    }
+
+    /** Foreground millis today, counted only for apps we get events for (locked or budgeted). */
+    public long getUsedToday(String packageName) {
+        return usage.getUsedMs(state.snapshot().idOf(packageName), SystemClock.elapsedRealtime());
+    }
+
+    private void loadUsage() {
+        Map<String, Long> budgets = preferenceManager.getUsageBudgets();
+        budgetedPackages.clear();
+        budgetedPackages.addAll(budgets.keySet());
+        updateUsageDay(SystemClock.elapsedRealtime());
+        Map<String, Long> totals = preferenceManager.getUsageTotals(usageDayStart);
+
+        Set<String> tracked = new HashSet<>(budgets.keySet());
+        tracked.addAll(totals.keySet());
+        BlockerSnapshot snapshot = state.internPackages(tracked);
+        usage.clearBudgets();
+        for (Map.Entry<String, Long> entry : budgets.entrySet()) {
+            usage.setBudget(snapshot.idOf(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            usage.restore(snapshot.idOf(entry.getKey()), entry.getValue());
         }
+        publishUsage();
+    }
 
-        Log.d("AppBlockerService", "Updated active locks. Daily lock: " + dailyLock +
-                ", Exercise unlock: " + isExerciseUnlockActive + ", Total apps: " + lockedApps.size());
+    // Write today's totals for the apps we track: on the budget tick, day roll, screen off and onDestroy
+    private void saveUsage() {
+        long now = SystemClock.elapsedRealtime();
+        BlockerSnapshot snapshot = state.snapshot();
+        Set<String> tracked = new HashSet<>(budgetedPackages);
+        tracked.addAll(snapshot.getLockedPackages());
+        Map<String, Long> totals = new HashMap<>();
+        for (String packageName : tracked) {
+            long used = usage.getUsedMs(snapshot.idOf(packageName), now);
+            if (used > 0) totals.put(packageName, used);
+        }
+        preferenceManager.saveUsageTotals(usageDayStart, totals);
+    }
+
+    private BlockerSnapshot publishUsage() {
+        return state.setExhausted(usage.exhaustedIds());
+    }
+
+    /** Pin today's local midnight; returns true (and starts the totals over) if the day changed. */
+    private boolean updateUsageDay(long now) {
+        Calendar midnight = Calendar.getInstance();
+        long wallNow = System.currentTimeMillis();
+        midnight.setTimeInMillis(wallNow);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        long dayStart = midnight.getTimeInMillis();
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        usageDayEnd = now + (midnight.getTimeInMillis() - wallNow);
+        if (dayStart == usageDayStart) return false;
+        boolean rolled = usageDayStart != 0L;
+        usageDayStart = dayStart;
+        if (rolled) usage.resetDay(now);
+        return rolled;
+    }
+
+    // One timer for whichever comes first: the app in front running out, or midnight
+    private void armBudgetTick() {
+        long next = Math.min(usage.getDeadline(), usageDayEnd);
+        if (next == armedBudgetTick) return;
+        armedBudgetTick = next;
+        handler.removeCallbacks(budgetTick);
+        handler.postDelayed(budgetTick, Math.max(0L, next - SystemClock.elapsedRealtime()));
+    }
+
+    private void onBudgetTick() {
+        armedBudgetTick = UsageAccountant.NO_DEADLINE;
+        long now = SystemClock.elapsedRealtime();
+        if (now >= usageDayEnd) {
+            if (updateUsageDay(now)) publishUsage();
+        } else if (now >= usage.getDeadline()) {
+            // It may have left for an app we get no events for, at a time we don't know;
+            // stop billing it without charging it (or running it out) for the gap
+            String packageName = state.snapshot().packageName(usage.getCurrent());
+            if (packageName != null && !isStillForeground(packageName)) {
+                usage.leave(now);
+            } else if (usage.checkDeadline(now)) {
+                publishUsage();
+                blockForegroundIfLocked("budget used up");
+            }
+        }
+        saveUsage();
+        armBudgetTick();
     }
 
     public void endExerciseUnlock() {
-        Log.d("AppBlockerService", "Ending exercise unlock - was active: " + isExerciseUnlockActive);
-        isExerciseUnlockActive = false;
+        Log.d("AppBlockerService", "Ending exercise unlock - was active: " + isExerciseUnlockActive());
+        state.setUnlock(false, 0L);
         timeCounter.stopCountdown();
-        preferenceManager.clearUnlockCountdown();
 
-        // Force all locked apps to be active again
-        for (App app : lockedApps.values()) {
-            app.setSelected(true);
-        }
+        // Locked apps follow the schedule again
+        updateActiveLocks();
 
         // Check if we need to block the currently running app
-        if (!currentForegroundApp.isEmpty() && shouldBlockApp(currentForegroundApp)) {
-            Log.d("AppBlockerService", "Blocking currently running app after unlock expired: " + currentForegroundApp);
-            blockApp(currentForegroundApp);
-        }
+        blockForegroundIfLocked("unlock expired");
 
-        Log.d("AppBlockerService", "Exercise unlock ended - apps now locked: " + lockedApps.size());
+        Log.d("AppBlockerService", "Exercise unlock ended - apps now locked: " + getLockedAppCount());
     }
 
     public void startExerciseUnlock(long earnedMillis) {
@@ -168,21 +530,21 @@ public class AppBlockerService extends AccessibilityService {
 
         // Only add newly earned time if provided
         if (earnedMillis > 0) {
-            preferenceManager.addEarnedCredits(earnedMillis);
+            timeCounter.addTime(earnedMillis);
         }
 
-        // Get total available credits and start unlock session
-        long available = preferenceManager.getEarnedCredits();
+        // Take all available credits (consume them) and start unlock session
+        long available = timeCounter.takeCredits();
         if (available > 0) {
-            // Start countdown and clear credits (consume them)
-            preferenceManager.startUnlockCountdown(available);
-            preferenceManager.clearEarnedCredits();
+            timeCounter.startCountdown(available);
 
             exerciseUnlockStart = System.currentTimeMillis();
             exerciseUnlockEnd = exerciseUnlockStart + available;
             exerciseUnlocksUsed++;
-            isExerciseUnlockActive = true;
+            state.setUnlock(true, exerciseUnlockEnd);
             updateActiveLocks();
+            blockOverlay.hide();
+            history.record(EventLog.TYPE_UNLOCK, 0, 0, (int) available);
 
             Log.d("AppBlockerService", "Exercise unlock started for " + available + "ms");
         } else {
@@ -195,52 +557,50 @@ public class AppBlockerService extends AccessibilityService {
         exerciseUnlockStart = System.currentTimeMillis();
         exerciseUnlockEnd = exerciseUnlockStart + earnedMillis;
         exerciseUnlocksUsed++;
-        isExerciseUnlockActive = true;
+        state.setUnlock(true, exerciseUnlockEnd);
+        unlockScheduler.arm(earnedMillis);
         updateActiveLocks();
+        blockOverlay.hide();
+        history.record(EventLog.TYPE_UNLOCK, 0, 0, (int) earnedMillis);
     }
 
-    private final Runnable lockChecker = new Runnable() {
-        @Override
-        public void run() {
-            long remaining = preferenceManager.getUnlockRemainingTime();
-            boolean wasUnlockActive = isExerciseUnlockActive;
-
-            if (remaining > 0 && !isExerciseUnlockActive) {
-                // We have an active countdown but unlock isn't active - restore state
-                timeCounter.resetCredits();
-                timeCounter.addTime(remaining);
-                timeCounter.startCountdown(remaining);
-                isExerciseUnlockActive = true;
-                Log.d("AppBlockerService", "Restored unlock state with " + remaining + "ms remaining");
-            } else if (remaining <= 0 && isExerciseUnlockActive) {
-                // Countdown finished - immediately end unlock
-                Log.d("AppBlockerService", "Countdown expired, ending unlock immediately");
-                endExerciseUnlock();
-            }
+    // A countdown may still be running from before the service was (re)started
+    private void restoreUnlockState() {
+        long remaining = timeCounter.getRemainingUnlockTime();
+        if (remaining > 0) {
+            state.setUnlock(true, System.currentTimeMillis() + remaining);
+            unlockScheduler.arm(remaining);
+            updateActiveLocks();
+            Log.d("AppBlockerService", "Restored unlock state with " + remaining + "ms remaining");
+        }
+    }
 
-            // Update lock states if unlock status changed
-            if (wasUnlockActive != isExerciseUnlockActive) {
-                updateActiveLocks();
+    // Follows the ledger's deadline: one timer for the exact expiry, nothing armed otherwise
+    private void armUnlockTimer() {
+        long remaining = timeCounter.getRemainingUnlockTime();
+        if (remaining > 0) {
+            unlockScheduler.arm(remaining);
+        } else if (!isExerciseUnlockActive()) {
+            unlockScheduler.cancel();
+        }
+    }
 
-                // If unlock just ended, check current app immediately
-                if (wasUnlockActive && !isExerciseUnlockActive &&
-                        !currentForegroundApp.isEmpty() && shouldBlockApp(currentForegroundApp)) {
-                    Log.d("AppBlockerService", "Immediately blocking current app after unlock ended: " + currentForegroundApp);
-                    blockApp(currentForegroundApp);
-                }
-            }
+    private void onUnlockExpired() {
+        if (!isExerciseUnlockActive()) return;
 
-            // Check more frequently during unlock periods for better responsiveness
-            handler.postDelayed(this, isExerciseUnlockActive ? 1000 : 2000);
-        }
-    };
+        // Countdown finished - immediately end unlock
+        Log.d("AppBlockerService", "Countdown expired, ending unlock immediately");
+        endExerciseUnlock();
+    }
 
     public earnedTimeCounter getTimeCounter() { return timeCounter; }
-    public boolean isExerciseUnlockActive() { return isExerciseUnlockActive; }
+    public LatencyStats getTimeToBlock() { return blockOverlay.getTimeToBlock(); }
+    public LatencyStats getTimeToHome() { return blockOverlay.getTimeToHome(); }
+    public long getDroppedBlockRequests() { return blockDispatcher.getDroppedCount(); }
+    public boolean isExerciseUnlockActive() { return state.snapshot().isUnlockActive(); }
 
     public boolean isLocked(String packageName) {
-        App app = lockedApps.get(packageName);
-        boolean locked = app != null && app.getSelected() && !isExerciseUnlockActive;
+        boolean locked = state.snapshot().shouldBlock(packageName);
         Log.d("AppBlockerService", "Is " + packageName + " locked: " + locked);
         return locked;
     }
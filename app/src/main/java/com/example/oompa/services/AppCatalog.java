@@ -0,0 +1,231 @@
+package com.example.oompa.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.oompa.App;
+import com.example.oompa.R;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide list of apps the user can lock: the bundled suggestions from
+ * arrays.xml plus every launchable installed app. Built once on a background
+ * executor, kept in memory, and patched per package on PACKAGE_ADDED / PACKAGE_REMOVED.
+ * Listeners are called on the main thread.
+ */
+public class AppCatalog {
+
+    public static final int CATEGORY_UNKNOWN = -1;
+
+    /** Immutable catalog row. iconRes is a bundled drawable, or 0 to use the installed app's icon. */
+    public static final class Entry {
+        public final String packageName;
+        public final String label;
+        public final int iconRes;
+        public final int category;     // ApplicationInfo.CATEGORY_*, or CATEGORY_UNKNOWN
+        public final boolean installed;
+
+        Entry(String packageName, String label, int iconRes, int category, boolean installed) {
+            this.packageName = packageName;
+            this.label = label;
+            this.iconRes = iconRes;
+            this.category = category;
+            this.installed = installed;
+        }
+    }
+
+    public interface Listener {
+        void onCatalogChanged(List<Entry> entries);
+    }
+
+    private static AppCatalog instance;
+
+    private final Context context;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Only touched on the executor
+    private final Map<String, Entry> suggested = new LinkedHashMap<>();
+    private final Map<String, Entry> byPackage = new HashMap<>();
+
+    // Published copy, sorted: suggestions first, then installed apps by label
+    private volatile List<Entry> entries = Collections.emptyList();
+    private volatile boolean loaded = false;
+    private boolean loadRequested = false;
+
+    private AppCatalog(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized AppCatalog getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppCatalog(context);
+        }
+        return instance;
+    }
+
+    /** Start the background build (once) and begin listening for package changes. */
+    public synchronized void load() {
+        if (loadRequested) return;
+        loadRequested = true;
+        registerPackageReceiver();
+        executor.execute(this::buildAll);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Current entries; empty until the first build finishes. */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Join the catalog with the locked set in one pass. */
+    public static ArrayList<App> toApps(List<Entry> entries, Set<String> lockedPackages) {
+        ArrayList<App> apps = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            apps.add(new App(e.packageName, e.label, lockedPackages.contains(e.packageName), e.iconRes));
+        }
+        return apps;
+    }
+
+    // --- Building (executor) ---
+    private void buildAll() {
+        long start = System.currentTimeMillis();
+        loadSuggestions();
+        PackageManager pm = context.getPackageManager();
+        for (ResolveInfo info : pm.queryIntentActivities(launcherIntent(), 0)) {
+            if (info.activityInfo == null) continue;
+            String pkg = info.activityInfo.packageName;
+            if (pkg.equals(context.getPackageName()) || byPackage.containsKey(pkg)) continue;
+            byPackage.put(pkg, entryFor(pm, info.activityInfo.applicationInfo, info.loadLabel(pm)));
+        }
+        publish();
+        loaded = true;
+        Log.d("AppCatalog", "Built catalog of " + entries.size() + " apps in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void loadSuggestions() {
+        Resources res = context.getResources();
+        String[] names = res.getStringArray(R.array.category_name_array);
+        String[] packages = res.getStringArray(R.array.category_package_array);
+        TypedArray icons = res.obtainTypedArray(R.array.category_item_array);
+        for (int i = 0; i < names.length; i++) {
+            suggested.put(packages[i], new Entry(packages[i], names[i], icons.getResourceId(i, 0), CATEGORY_UNKNOWN, false));
+        }
+        icons.recycle();
+    }
+
+    private void updatePackage(String pkg) {
+        PackageManager pm = context.getPackageManager();
+        Intent launcher = launcherIntent().setPackage(pkg);
+        List<ResolveInfo> infos = pm.queryIntentActivities(launcher, 0);
+        if (infos.isEmpty() || infos.get(0).activityInfo == null) {
+            byPackage.remove(pkg);
+        } else {
+            ResolveInfo info = infos.get(0);
+            byPackage.put(pkg, entryFor(pm, info.activityInfo.applicationInfo, info.loadLabel(pm)));
+        }
+        publish();
+    }
+
+    private void removePackage(String pkg) {
+        if (byPackage.remove(pkg) != null) publish();
+    }
+
+    private Entry entryFor(PackageManager pm, ApplicationInfo appInfo, CharSequence label) {
+        String pkg = appInfo.packageName;
+        Entry suggestion = suggested.get(pkg);
+        int category = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? appInfo.category : CATEGORY_UNKNOWN;
+        // Keep the bundled name/icon for suggested apps, but note they're installed
+        if (suggestion != null) {
+            return new Entry(pkg, suggestion.label, suggestion.iconRes, category, true);
+        }
+        return new Entry(pkg, label.toString(), 0, category, true);
+    }
+
+    private void publish() {
+        List<Entry> next = new ArrayList<>(suggested.size() + byPackage.size());
+        for (Entry s : suggested.values()) {
+            Entry installed = byPackage.get(s.packageName);
+            next.add(installed != null ? installed : s);
+        }
+        List<Entry> others = new ArrayList<>(byPackage.size());
+        for (Entry e : byPackage.values()) {
+            if (!suggested.containsKey(e.packageName)) others.add(e);
+        }
+        Collections.sort(others, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.label, b.label));
+        next.addAll(others);
+
+        final List<Entry> published = Collections.unmodifiableList(next);
+        entries = published;
+        mainHandler.post(() -> {
+            for (Listener l : listeners) l.onCatalogChanged(published);
+        });
+    }
+
+    private static Intent launcherIntent() {
+        return new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER);
+    }
+
+    // --- Package changes ---
+    private void registerPackageReceiver() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        ContextCompat.registerReceiver(context, packageReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context c, Intent intent) {
+            Uri data = intent.getData();
+            if (data == null) return;
+            final String pkg = data.getSchemeSpecificPart();
+            boolean replacing = intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())) {
+                // An update sends REMOVED then ADDED; wait for the ADDED
+                if (!replacing) executor.execute(() -> removePackage(pkg));
+            } else {
+                executor.execute(() -> updatePackage(pkg));
+            }
+        }
+    };
+}
@@ -0,0 +1,150 @@
+package com.example.oompa.services;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.Intent;
+import android.graphics.PixelFormat;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+import com.example.oompa.MainActivity;
+import com.example.oompa.R;
+
+/**
+ * Full-screen block screen drawn by the accessibility service itself.
+ * The view is inflated and attached (hidden) once when the service connects,
+ * so blocking is just a visibility flip that lands on the next frame, instead
+ * of launching MainActivity. If the overlay can't be attached we fall back to
+ * sending the user home.
+ */
+public class BlockOverlay {
+    private final AccessibilityService service;
+    private final WindowManager windowManager;
+    private final LatencyStats timeToBlock = new LatencyStats();   // overlay drawn
+    private final LatencyStats timeToHome = new LatencyStats();    // HOME fallback, kept apart
+    private Runnable onHiddenListener;
+
+    private View root;
+    private TextView appText;
+    private boolean attached = false;
+    private boolean showing = false;
+    private String blockedPackage;
+    private long pendingEventTime = 0L;   // uptimeMillis of the event being measured, 0 = none
+
+    private final Choreographer.FrameCallback drawnCallback = frameTimeNanos -> {
+        if (pendingEventTime == 0L) return;
+        timeToBlock.record(SystemClock.uptimeMillis() - pendingEventTime);
+        pendingEventTime = 0L;
+        Log.d("BlockOverlay", "Time to block " + blockedPackage + ": " + timeToBlock);
+    };
+
+    public BlockOverlay(AccessibilityService service) {
+        this.service = service;
+        this.windowManager = (WindowManager) service.getSystemService(AccessibilityService.WINDOW_SERVICE);
+    }
+
+    /** Inflate and attach the hidden overlay. Call once from onServiceConnected. */
+    public void prepare() {
+        root = LayoutInflater.from(new ContextThemeWrapper(service, R.style.AppTheme))
+                .inflate(R.layout.block_overlay, null);
+        appText = root.findViewById(R.id.block_overlay_app);
+        root.findViewById(R.id.block_overlay_home_button).setOnClickListener(v -> goHome());
+        root.findViewById(R.id.block_overlay_exercise_button).setOnClickListener(v -> openApp());
+        root.setVisibility(View.GONE);
+
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.TYPE_ACCESSIBILITY_OVERLAY,
+                WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                PixelFormat.OPAQUE);
+        try {
+            windowManager.addView(root, params);
+            attached = true;
+        } catch (RuntimeException e) {
+            // BadTokenException and friends; we'll use the HOME fallback
+            Log.w("BlockOverlay", "Could not attach block overlay", e);
+            attached = false;
+        }
+    }
+
+    /**
+     * Cover the screen for {@code packageName}.
+     * {@code eventTime} is the triggering event's uptimeMillis, used to measure time-to-block.
+     * Returns false if it had to fall back to sending the user home.
+     */
+    public boolean show(String packageName, long eventTime) {
+        blockedPackage = packageName;
+        if (!attached) {
+            service.performGlobalAction(AccessibilityService.GLOBAL_ACTION_HOME);
+            timeToHome.record(SystemClock.uptimeMillis() - eventTime);
+            Log.d("BlockOverlay", "Sent home from " + packageName + " (no overlay): " + timeToHome);
+            return false;
+        }
+        appText.setText(packageName);
+        if (!showing) {
+            root.setVisibility(View.VISIBLE);
+            showing = true;
+        }
+        pendingEventTime = eventTime;
+        Choreographer.getInstance().postFrameCallback(drawnCallback);
+        return true;
+    }
+
+    public void hide() {
+        if (!showing) return;
+        root.setVisibility(View.GONE);
+        showing = false;
+        pendingEventTime = 0L;
+        if (onHiddenListener != null) onHiddenListener.run();
+    }
+
+    public void setOnHiddenListener(Runnable listener) {
+        onHiddenListener = listener;
+    }
+
+    public boolean isShowing() {
+        return showing;
+    }
+
+    public String getBlockedPackage() {
+        return showing ? blockedPackage : null;
+    }
+
+    /** Event to overlay on screen; blocks that fell back to HOME aren't in here. */
+    public LatencyStats getTimeToBlock() {
+        return timeToBlock;
+    }
+
+    /** Event to GLOBAL_ACTION_HOME issued, for blocks made without the overlay. */
+    public LatencyStats getTimeToHome() {
+        return timeToHome;
+    }
+
+    public void release() {
+        if (attached) {
+            windowManager.removeViewImmediate(root);
+            attached = false;
+        }
+        showing = false;
+    }
+
+    private void goHome() {
+        service.performGlobalAction(AccessibilityService.GLOBAL_ACTION_HOME);
+        hide();
+    }
+
+    // The old behaviour: take the user to oompa to earn time
+    private void openApp() {
+        Intent i = new Intent(service, MainActivity.class);
+        i.putExtra("blockedApp", blockedPackage);
+        i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        service.startActivity(i);
+        hide();
+    }
+}
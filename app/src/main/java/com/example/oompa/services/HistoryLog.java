@@ -0,0 +1,148 @@
+package com.example.oompa.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.oompa.ExerciseCounter;
+import com.example.oompa.history.EventLog;
+import com.example.oompa.history.StatsRollup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * App-wide owner of the {@link EventLog} in files/events and the {@link StatsRollup}
+ * built over it (files/rollups.bin), which the dashboard reads.
+ * Everything touching the files happens on one background thread: opening the log and
+ * loading the rollup (getInstance is called from onCreate), appending (recording just
+ * stamps the time and posts, so the sensor and accessibility threads never do I/O, even
+ * when a batch fills), writing both out a little later or on {@link #flush()}, and
+ * compacting old segments once per process. History is best effort: if the log can't
+ * be opened, recording is a no-op rather than a crash.
+ */
+public class HistoryLog implements ExerciseCounter.HistorySink {
+    private static HistoryLog instance;
+
+    private static final int BATCH_RECORDS = 256;                 // 4 KB per write
+    private static final long FLUSH_DELAY_MS = 30_000L;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long COMPACT_AFTER_MS = 7 * DAY_MS;      // per-minute detail is plenty after a week
+    private static final long RETAIN_MS = 400 * DAY_MS;
+
+    private volatile EventLog log;                 // null until opened, or if it can't be
+    private volatile StatsRollup stats = new StatsRollup(TimeZone.getDefault());   // empty until loaded
+    private final File statsFile;
+    private final Handler handler;
+    private final Runnable flushRunnable = this::flushNow;
+    private boolean flushScheduled = false;   // log thread only
+
+    private HistoryLog(Context context) {
+        HandlerThread thread = new HandlerThread("HistoryLog", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+
+        File files = context.getApplicationContext().getFilesDir();
+        statsFile = new File(files, "rollups.bin");
+        File logDir = new File(files, "events");
+        handler.post(() -> open(logDir));
+    }
+
+    private void open(File logDir) {
+        EventLog opened = null;
+        StatsRollup loaded = new StatsRollup(TimeZone.getDefault());
+        try {
+            opened = new EventLog(logDir, BATCH_RECORDS);
+            // Catches up from the saved watermark; only a full rebuild reads the whole log
+            loaded.load(statsFile, opened);
+        } catch (IOException e) {
+            Log.d("HistoryLog", "Can't open event log: " + e.getMessage());
+        }
+        stats = loaded;
+        log = opened;
+        if (opened != null) compact();
+    }
+
+    public static synchronized HistoryLog getInstance(Context context) {
+        if (instance == null) {
+            instance = new HistoryLog(context);
+        }
+        return instance;
+    }
+
+    /** Null until opened, or if it couldn't be. Reads ({@code scan}) belong off the main thread. */
+    public EventLog getLog() {
+        return log;
+    }
+
+    /**
+     * Hour/day/week totals; queries are cheap enough for the main thread. Empty until
+     * the saved rollup has loaded, then replaced, so fetch it per read rather than keeping it.
+     */
+    public StatsRollup getStats() {
+        return stats;
+    }
+
+    // Safe from any thread; stamped with the time it happened, written on the log thread
+    @Override
+    public void record(int type, int aux, int packageHash, int value) {
+        long now = System.currentTimeMillis();
+        handler.post(() -> append(now, type, aux, packageHash, value));
+    }
+
+    // Log thread, so records reach the log and the rollup in the same order
+    private void append(long now, int type, int aux, int packageHash, int value) {
+        EventLog log = this.log;
+        if (log == null) return;
+        try {
+            // The rollup's watermark has to match what the log stored, clamp included
+            long stored = log.append(now, type, aux, packageHash, value);
+            stats.add(stored, type, aux, packageHash, value);
+        } catch (IOException e) {
+            Log.d("HistoryLog", "Append failed: " + e.getMessage());
+            return;
+        }
+        if (flushScheduled) return;
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+    }
+
+    public void record(int type, String packageName) {
+        record(type, 0, EventLog.packageHash(packageName), 0);
+    }
+
+    public void record(int type, int aux, String packageName) {
+        record(type, aux, EventLog.packageHash(packageName), 0);
+    }
+
+    /** Write pending records soon, on the log thread; call from onPause/onDestroy. */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        handler.post(flushRunnable);
+    }
+
+    private void flushNow() {
+        flushScheduled = false;
+        EventLog log = this.log;
+        if (log == null) return;
+        try {
+            log.flush();
+            stats.save(statsFile);
+        } catch (IOException e) {
+            Log.d("HistoryLog", "Flush failed: " + e.getMessage());
+        }
+    }
+
+    private void compact() {
+        long now = System.currentTimeMillis();
+        try {
+            log.compact(now - COMPACT_AFTER_MS, now - RETAIN_MS);
+            Log.d("HistoryLog", "Event log: " + log.segmentCount() + " segments, " + log.sizeBytes() + " bytes");
+        } catch (IOException e) {
+            Log.d("HistoryLog", "Compaction failed: " + e.getMessage());
+        }
+    }
+}
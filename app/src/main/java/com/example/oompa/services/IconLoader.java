@@ -0,0 +1,163 @@
+package com.example.oompa.services;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.example.oompa.R;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads app icons off the main thread, scaled down to the size they're shown at,
+ * and keeps them in an LRU cache bounded by bitmap bytes.
+ * Each ImageView has at most one load in flight; binding it again (or calling
+ * {@link #cancel}) drops the previous one so recycled rows never get a stale icon.
+ */
+public class IconLoader {
+
+    // Hard ceiling for cached icons, whatever the device heap is
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static IconLoader instance;
+
+    private final Context context;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> cache;
+
+    private IconLoader(Context context) {
+        this.context = context.getApplicationContext();
+        int bytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        cache = new LruCache<String, Bitmap>(bytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    public static synchronized IconLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new IconLoader(context);
+        }
+        return instance;
+    }
+
+    /** One pending load, kept in the view's tag so a rebind can cancel it. */
+    private static final class Request {
+        final String key;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        Request(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Show the icon for an app in the view: the bundled drawable if iconRes != 0,
+     * otherwise the installed app's launcher icon. sizePx is the view's target size.
+     */
+    public void load(ImageView view, String packageName, int iconRes, int sizePx) {
+        cancel(view);
+        final String key = (iconRes != 0 ? "res:" + iconRes : "pkg:" + packageName) + "@" + sizePx;
+
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        view.setImageResource(R.drawable.avatar);
+        final Request request = new Request(key);
+        view.setTag(R.id.icon_loader_request, request);
+        request.future = executor.submit(() -> {
+            if (request.cancelled) return;
+            Bitmap bitmap = iconRes != 0 ? decodeResource(iconRes, sizePx) : renderPackageIcon(packageName, sizePx);
+            if (bitmap == null) return;
+            cache.put(key, bitmap);
+            mainHandler.post(() -> {
+                // Only apply if the view still wants this icon
+                if (!request.cancelled && view.getTag(R.id.icon_loader_request) == request) {
+                    view.setImageBitmap(bitmap);
+                    view.setTag(R.id.icon_loader_request, null);
+                }
+            });
+        });
+    }
+
+    /** Drop any pending load for the view (e.g. when its ViewHolder is recycled). */
+    public void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.icon_loader_request);
+        if (tag instanceof Request) {
+            Request request = (Request) tag;
+            request.cancelled = true;
+            if (request.future != null) request.future.cancel(false);
+            view.setTag(R.id.icon_loader_request, null);
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    // --- Decoding (executor) ---
+    private Bitmap decodeResource(int resId, int sizePx) {
+        Resources res = context.getResources();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, sizePx);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = BitmapFactory.decodeResource(res, resId, options);
+        if (decoded == null) return null;
+        return scaleDown(decoded, sizePx);
+    }
+
+    private Bitmap renderPackageIcon(String packageName, int sizePx) {
+        try {
+            Drawable drawable = context.getPackageManager().getApplicationIcon(packageName);
+            Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, sizePx, sizePx);
+            drawable.draw(canvas);
+            return bitmap;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.d("IconLoader", "No icon for " + packageName);
+            return null;
+        }
+    }
+
+    // Largest power of two that keeps both sides >= the target
+    static int sampleSize(int width, int height, int sizePx) {
+        int sample = 1;
+        while (width / (sample * 2) >= sizePx && height / (sample * 2) >= sizePx) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static Bitmap scaleDown(Bitmap bitmap, int sizePx) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest <= sizePx) return bitmap;
+        float scale = sizePx / (float) longest;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) bitmap.recycle();
+        return scaled;
+    }
+}
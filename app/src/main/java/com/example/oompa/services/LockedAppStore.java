@@ -0,0 +1,116 @@
+package com.example.oompa.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.oompa.App;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locked apps stored one record per package (key = package name, value = {@link LockedAppCodec}),
+ * so a lookup or update only touches that package instead of the whole list.
+ * Several changes can be grouped in a {@link Transaction} and written with a single apply().
+ */
+public class LockedAppStore {
+    private static final String STORE_NAME = "LockedApps";
+
+    private final SharedPreferences records;
+
+    public LockedAppStore(Context context) {
+        records = context.getSharedPreferences(STORE_NAME, Context.MODE_PRIVATE);
+    }
+
+    public App get(String packageName) {
+        return LockedAppCodec.decode(packageName, records.getString(packageName, null));
+    }
+
+    public boolean contains(String packageName) {
+        return records.contains(packageName);
+    }
+
+    public boolean isLocked(String packageName) {
+        return LockedAppCodec.isSelected(records.getString(packageName, null));
+    }
+
+    public List<App> getAll() {
+        Map<String, ?> all = records.getAll();
+        List<App> apps = new ArrayList<>(all.size());
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            if (!(entry.getValue() instanceof String)) continue;
+            App app = LockedAppCodec.decode(entry.getKey(), (String) entry.getValue());
+            if (app != null) apps.add(app);
+        }
+        return apps;
+    }
+
+    /** Package names of the selected records, read in one pass. */
+    public Set<String> getLockedPackageNames() {
+        Map<String, ?> all = records.getAll();
+        Set<String> names = new HashSet<>(all.size() * 2);
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            if (entry.getValue() instanceof String && LockedAppCodec.isSelected((String) entry.getValue())) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    public boolean isEmpty() {
+        return records.getAll().isEmpty();
+    }
+
+    public void put(App app) {
+        edit().put(app).commit();
+    }
+
+    public void remove(String packageName) {
+        edit().remove(packageName).commit();
+    }
+
+    public Transaction edit() {
+        return new Transaction(records.edit());
+    }
+
+    /** Batches puts/removes into one disk write. Not thread-safe; use from one thread. */
+    public static class Transaction {
+        private final SharedPreferences.Editor editor;
+        private int changes = 0;
+
+        Transaction(SharedPreferences.Editor editor) {
+            this.editor = editor;
+        }
+
+        public Transaction put(App app) {
+            editor.putString(app.getPackageName(), LockedAppCodec.encode(app));
+            changes++;
+            return this;
+        }
+
+        public Transaction remove(String packageName) {
+            editor.remove(packageName);
+            changes++;
+            return this;
+        }
+
+        /** Replace everything in the store with {@code apps}. */
+        public Transaction replaceAll(List<App> apps) {
+            editor.clear();
+            for (App app : apps) put(app);
+            changes++;
+            return this;
+        }
+
+        public int size() {
+            return changes;
+        }
+
+        public void commit() {
+            if (changes > 0) editor.apply();
+        }
+    }
+}
@@ -2,116 +2,201 @@ package com.example.oompa.services;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
 
 import com.example.oompa.App;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 
 
-public class PreferenceManager {
+public class PreferenceManager implements CreditLedger.Store {
     private static final String PREF_NAME = "MyAppPreferences";
     private static final String KEY_LOCKED_APPS = "locked_apps";
     private static final String KEY_UNLOCK_TIME = "unlock_time_millis";
     private static final String KEY_EARNED_CREDITS = "earned_credits";
+    private static final String KEY_SCHEDULE_RULES = "schedule_rules";
+    private static final String KEY_LOCK_PATTERNS = "lock_patterns";
+    private static final String KEY_USAGE_BUDGETS = "usage_budgets";
+    private static final String KEY_USAGE_DAY = "usage_day";
+    private static final String KEY_USAGE_TOTALS = "usage_totals";
+
+    private static final Type USAGE_MAP_TYPE = new TypeToken<HashMap<String, Long>>(){}.getType();
 
     private SharedPreferences sharedPreferences;
     private SharedPreferences.Editor editor;
-    private Gson gson;
+    private LockedAppStore lockedAppStore;
 
     public PreferenceManager(Context context) {
         sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         editor = sharedPreferences.edit();
-        gson = new Gson();
+        lockedAppStore = new LockedAppStore(context);
+        migrateLockedApps();
     }
 
     // =========================
     // Locked apps management
     // =========================
     public void saveLockedApps(List<App> apps) {
-        String json = gson.toJson(apps);
-        editor.putString(KEY_LOCKED_APPS, json);
-        editor.apply();
+        lockedAppStore.edit().replaceAll(apps).commit();
     }
 
     public List<App> getLockedApps() {
-        String json = sharedPreferences.getString(KEY_LOCKED_APPS, null);
-        if (json == null) return new ArrayList<>();
-        Type type = new TypeToken<ArrayList<App>>(){}.getType();
-        return gson.fromJson(json, type);
+        return lockedAppStore.getAll();
     }
 
     public void addLockedApp(App app) {
-        List<App> apps = getLockedApps();
-        boolean exists = false;
-        for (App a : apps) {
-            if (a.getPackageName().equals(app.getPackageName())) {
-                exists = true;
-                break;
-            }
-        }
-        if (!exists) apps.add(app);
-        saveLockedApps(apps);
+        if (!lockedAppStore.contains(app.getPackageName())) lockedAppStore.put(app);
     }
 
     public void removeLockedApp(String packageName) {
-        List<App> apps = getLockedApps();
-        List<App> updated = new ArrayList<>();
-        for (App a : apps) {
-            if (!a.getPackageName().equals(packageName)) updated.add(a);
-        }
-        saveLockedApps(updated);
+        if (lockedAppStore.contains(packageName)) lockedAppStore.remove(packageName);
+    }
+
+    /** Lock and unlock several apps with one write. */
+    public void applyLockedAppChanges(Collection<App> locked, Collection<String> unlocked) {
+        LockedAppStore.Transaction transaction = lockedAppStore.edit();
+        for (App app : locked) transaction.put(app.withSelected(true));
+        for (String packageName : unlocked) transaction.remove(packageName);
+        transaction.commit();
     }
 
     public boolean isLocked(String packageName) {
-        for (App a : getLockedApps()) {
-            if (a.getPackageName().equals(packageName) && a.getSelected()) return true;
+        return lockedAppStore.isLocked(packageName);
+    }
+
+    public Set<String> getLockedPackageNames() {
+        return lockedAppStore.getLockedPackageNames();
+    }
+
+    /** Group several locked-app changes into one write. */
+    public LockedAppStore.Transaction editLockedApps() {
+        return lockedAppStore.edit();
+    }
+
+    // One-time move from the old single Gson blob under KEY_LOCKED_APPS
+    private void migrateLockedApps() {
+        String json = sharedPreferences.getString(KEY_LOCKED_APPS, null);
+        if (json == null) return;
+
+        List<App> legacy = null;
+        try {
+            legacy = LockedAppCodec.decodeLegacyJson(json);
+        } catch (JsonParseException e) {
+            Log.w("PreferenceManager", "Dropping unreadable locked_apps blob", e);
         }
-        return false;
+
+        if (legacy != null) {
+            LockedAppStore.Transaction tx = lockedAppStore.edit();
+            for (App app : legacy) {
+                // Records already in the new store are newer than the blob
+                if (app != null && app.getPackageName() != null && !lockedAppStore.contains(app.getPackageName())) {
+                    tx.put(app);
+                }
+            }
+            tx.commit();
+        }
+        editor.remove(KEY_LOCKED_APPS);
+        editor.apply();
     }
 
     // =========================
-    // Earned credits (static)
+    // Earned credits + unlock deadline
+    // (owned in memory by CreditLedger, written back in batches)
     // =========================
-    public void addEarnedCredits(long millis) {
-        long current = getEarnedCredits();
-        editor.putLong(KEY_EARNED_CREDITS, current + millis);
-        editor.apply();
+    @Override
+    public long loadEarnedCredits() {
+        return sharedPreferences.getLong(KEY_EARNED_CREDITS, 0L);
     }
 
-    public long getEarnedCredits() {
-        return sharedPreferences.getLong(KEY_EARNED_CREDITS, 0L);
+    @Override
+    public long loadUnlockDeadline() {
+        return sharedPreferences.getLong(KEY_UNLOCK_TIME, 0L);
+    }
+
+    @Override
+    public void writeCreditState(long earnedCredits, long unlockDeadline) {
+        editor.putLong(KEY_EARNED_CREDITS, earnedCredits);
+        if (unlockDeadline > 0) {
+            editor.putLong(KEY_UNLOCK_TIME, unlockDeadline);
+        } else {
+            editor.remove(KEY_UNLOCK_TIME);
+        }
+        editor.apply();
     }
 
-    public void clearEarnedCredits() {
-        editor.putLong(KEY_EARNED_CREDITS, 0L);
+    // Wildcard rules such as "com.facebook.*", on top of the exact locked apps
+    public void saveLockPatterns(Collection<String> patterns) {
+        editor.putStringSet(KEY_LOCK_PATTERNS, new HashSet<>(patterns));
         editor.apply();
     }
 
+    public Set<String> getLockPatterns() {
+        return new HashSet<>(sharedPreferences.getStringSet(KEY_LOCK_PATTERNS, Collections.<String>emptySet()));
+    }
+
     // =========================
-    // Unlock countdown (dynamic)
+    // Lock schedule
     // =========================
-    public void startUnlockCountdown(long durationMillis) {
-        long endTime = System.currentTimeMillis() + durationMillis;
-        editor.putLong(KEY_UNLOCK_TIME, endTime);
+    public void saveScheduleRules(List<ScheduleRule> rules) {
+        editor.putString(KEY_SCHEDULE_RULES, ScheduleRule.toJson(rules));
         editor.apply();
     }
 
-    public long getUnlockRemainingTime() {
-        long endTime = sharedPreferences.getLong(KEY_UNLOCK_TIME, 0L);
-        long remaining = endTime - System.currentTimeMillis();
-        return Math.max(remaining, 0);
+    /** Empty (lock on all day) if nothing was saved or the saved rules can't be read; invalid rules are left out. */
+    public List<ScheduleRule> getScheduleRules() {
+        try {
+            return ScheduleRule.fromJson(sharedPreferences.getString(KEY_SCHEDULE_RULES, null));
+        } catch (JsonParseException | IllegalArgumentException e) {
+            Log.w("PreferenceManager", "Dropping unreadable schedule_rules", e);
+            return new ArrayList<>();
+        }
+    }
+
+    // =========================
+    // Usage budgets and today's totals (package -> millis)
+    // =========================
+    public void saveUsageBudgets(Map<String, Long> budgets) {
+        editor.putString(KEY_USAGE_BUDGETS, new Gson().toJson(budgets, USAGE_MAP_TYPE));
+        editor.apply();
     }
 
-    public boolean isUnlockActive() {
-        return getUnlockRemainingTime() > 0;
+    public Map<String, Long> getUsageBudgets() {
+        return readUsageMap(KEY_USAGE_BUDGETS);
     }
 
-    public void clearUnlockCountdown() {
-        editor.remove(KEY_UNLOCK_TIME);
+    /** {@code dayStart} is the wall millis of the local midnight the totals belong to. */
+    public void saveUsageTotals(long dayStart, Map<String, Long> totals) {
+        editor.putLong(KEY_USAGE_DAY, dayStart);
+        editor.putString(KEY_USAGE_TOTALS, new Gson().toJson(totals, USAGE_MAP_TYPE));
         editor.apply();
     }
+
+    /** Totals saved for the day starting at {@code dayStart}; empty if they're from another day. */
+    public Map<String, Long> getUsageTotals(long dayStart) {
+        if (sharedPreferences.getLong(KEY_USAGE_DAY, 0L) != dayStart) return new HashMap<>();
+        return readUsageMap(KEY_USAGE_TOTALS);
+    }
+
+    private Map<String, Long> readUsageMap(String key) {
+        String json = sharedPreferences.getString(key, null);
+        if (json == null) return new HashMap<>();
+        try {
+            Map<String, Long> map = new Gson().fromJson(json, USAGE_MAP_TYPE);
+            return map != null ? map : new HashMap<String, Long>();
+        } catch (JsonParseException e) {
+            Log.w("PreferenceManager", "Dropping unreadable " + key, e);
+            return new HashMap<>();
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.example.oompa.services;
+
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.oompa.motion.ActivityMonitor;
+
+/**
+ * Drops the accelerometer to a low rate while the user rests between sets and
+ * brings it back to full rate when they move. Idle/active comes from the
+ * pipeline's {@link ActivityMonitor}. While idle the accelerometer keeps running
+ * at 10 Hz (still batched), so the variance trigger sees the first rep of the next
+ * set. Significant motion is only an extra wake where the device has it: it's
+ * tuned for walking-type motion and can fire seconds late, or never, for exercise
+ * in place, so it can't be the only thing watching. The decisions themselves
+ * live in {@link SamplingRatePolicy}; this class only makes the sensor calls.
+ */
+public class SamplingRateController implements ActivityMonitor.Listener {
+    private static final int IDLE_PERIOD_US = 100_000;   // 10 Hz
+
+    private final AccelerometerSource accelerometer;
+    private final SensorManager sensorManager;
+    private final Sensor significantMotion;
+    private final Handler sensorHandler;
+
+    private final SamplingRatePolicy policy = new SamplingRatePolicy();
+    private volatile boolean triggerArmed = false;
+
+    public SamplingRateController(AccelerometerSource accelerometer, SensorManager sensorManager, Handler sensorHandler) {
+        this.accelerometer = accelerometer;
+        this.sensorManager = sensorManager;
+        this.significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        this.sensorHandler = sensorHandler;
+    }
+
+    // Runs on the sensor thread (from the pipeline)
+    @Override
+    public void onActivityChanged(boolean active) {
+        if (!policy.onActivityChanged(active)) return;
+        if (active) {
+            restoreFullRate("variance");
+        } else {
+            accelerometer.setSamplingPeriodUs(IDLE_PERIOD_US);
+            triggerArmed = significantMotion != null
+                    && sensorManager.requestTriggerSensor(significantMotionListener, significantMotion);
+            Log.d("SamplingRateController", "Idle, accelerometer at 10 Hz"
+                    + (triggerArmed ? " plus significant motion" : ""));
+        }
+    }
+
+    private final TriggerEventListener significantMotionListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // One-shot: it disarms itself
+            triggerArmed = false;
+            sensorHandler.post(() -> {
+                if (policy.onSignificantMotion()) restoreFullRate("significant motion");
+            });
+        }
+    };
+
+    private void restoreFullRate(String reason) {
+        cancelTrigger();
+        accelerometer.setSamplingPeriodUs(AccelerometerSource.SAMPLING_PERIOD_US);
+        Log.d("SamplingRateController", "Active (" + reason + "), accelerometer at full rate");
+    }
+
+    private void cancelTrigger() {
+        if (triggerArmed) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+            triggerArmed = false;
+        }
+    }
+
+    /** Call when the session ends so nothing is left armed. */
+    public void stop() {
+        policy.stop();
+        cancelTrigger();
+    }
+}
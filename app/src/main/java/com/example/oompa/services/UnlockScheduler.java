@@ -0,0 +1,66 @@
+package com.example.oompa.services;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * One-shot timer for the end of an exercise unlock.
+ * Instead of polling, a single callback is armed for the exact expiry and re-armed
+ * whenever the deadline moves; with nothing armed it never wakes up.
+ * The deadline is kept on the elapsedRealtime clock so wall-clock changes don't move it.
+ */
+public class UnlockScheduler {
+
+    public interface Listener {
+        void onUnlockExpired();
+    }
+
+    private final Handler handler;
+    private final Listener listener;
+    private long deadlineElapsed = 0L;   // 0 = nothing armed
+
+    private final Runnable expiry = this::fire;
+
+    public UnlockScheduler(Handler handler, Listener listener) {
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    /** Arm (or re-arm) for {@code remainingMillis} from now. Non-positive values expire right away. */
+    public void arm(long remainingMillis) {
+        handler.removeCallbacks(expiry);
+        if (remainingMillis <= 0) {
+            deadlineElapsed = 0L;
+            handler.post(listener::onUnlockExpired);
+            return;
+        }
+        deadlineElapsed = SystemClock.elapsedRealtime() + remainingMillis;
+        handler.postDelayed(expiry, remainingMillis);
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(expiry);
+        deadlineElapsed = 0L;
+    }
+
+    public boolean isArmed() {
+        return deadlineElapsed != 0L;
+    }
+
+    /**
+     * Handler delays run on uptimeMillis, which stops in deep sleep, so the callback can
+     * be late after the device slept. Event handlers call this to catch an expiry that
+     * already passed on the real clock.
+     */
+    public void checkOverdue() {
+        if (deadlineElapsed != 0L && SystemClock.elapsedRealtime() >= deadlineElapsed) {
+            fire();
+        }
+    }
+
+    private void fire() {
+        handler.removeCallbacks(expiry);
+        deadlineElapsed = 0L;
+        listener.onUnlockExpired();
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.oompa.services;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.hardware.SensorManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+
+import com.example.oompa.ExerciseCounter;
+import com.example.oompa.MainActivity;
+import com.example.oompa.R;
+import com.example.oompa.history.EventLog;
+
+/**
+ * Foreground service that owns a workout: the accelerometer, the motion pipeline
+ * (through {@link ExerciseCounter}) and credit accrual. It keeps counting with the
+ * screen off or the app in the background. MainActivity binds to it only to start,
+ * stop and draw.
+ * Samples arrive in batches from the wake-up accelerometer's FIFO on a background
+ * looper, and the rate drops while the user rests, so the CPU is mostly asleep.
+ */
+public class WorkoutService extends Service {
+    public static final String ACTION_START = "com.example.oompa.action.START_WORKOUT";
+    public static final String ACTION_STOP = "com.example.oompa.action.STOP_WORKOUT";
+
+    private static final String CHANNEL_ID = "workout";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final long NOTIFICATION_MIN_INTERVAL_MS = 1000;
+
+    public class LocalBinder extends Binder {
+        public WorkoutService getService() {
+            return WorkoutService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+    private AccelerometerSource accelerometer;
+    private SamplingRateController rateController;
+    private earnedTimeCounter timeCounter;
+    private HistoryLog history;
+    private ExerciseCounter exerciseCounter;
+    private NotificationManager notificationManager;
+
+    private volatile boolean workingOut = false;
+    private volatile ExerciseCounter.OnCountsChangedListener uiListener;
+    private long lastNotificationMs = 0L;
+    private long workoutStartElapsed = 0L;
+    private boolean notificationPending = false;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        timeCounter = earnedTimeCounter.getInstance(this);
+        exerciseCounter = ExerciseCounter.getInstance(timeCounter);
+        history = HistoryLog.getInstance(this);
+        exerciseCounter.setHistorySink(history);
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+
+        sensorThread = new HandlerThread("ExerciseSensor", Process.THREAD_PRIORITY_BACKGROUND);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+
+        SensorManager sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        accelerometer = new AccelerometerSource(sensorManager, sensorHandler, true);
+        // Drop to a low rate (or off) while the user rests between sets
+        rateController = new SamplingRateController(accelerometer, sensorManager, sensorHandler);
+        exerciseCounter.setOnActivityChangedListener(rateController);
+        exerciseCounter.setOnCountsChangedListener(countsListener);
+
+        createNotificationChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_STOP.equals(action)) {
+            stopWorkout();
+        } else if (ACTION_START.equals(action)) {
+            startWorkout();
+        }
+        // A killed workout shouldn't silently restart without the user
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    /** Start via startForegroundService(ACTION_START) so the service may go foreground. */
+    private void startWorkout() {
+        if (workingOut) return;
+        // startForegroundService obliges us to go foreground even if we're about to stop,
+        // or the system kills the app
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE
+                ? ServiceInfo.FOREGROUND_SERVICE_TYPE_HEALTH : 0;
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(exerciseCounter.getSnapshot()), type);
+        if (!accelerometer.isAvailable()) {
+            Log.d("WorkoutService", "No accelerometer, not starting");
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            stopSelf();
+            return;
+        }
+
+        workingOut = true;
+        workoutStartElapsed = SystemClock.elapsedRealtime();
+        history.record(EventLog.TYPE_SESSION_START, 0, 0, 0);
+        // Batched where the hardware supports it: samples arrive a burst at a time on sensorThread
+        accelerometer.start(exerciseCounter);
+        Log.d("WorkoutService", "Workout started, batching=" + accelerometer.isBatching());
+    }
+
+    public void stopWorkout() {
+        if (!workingOut) return;
+        workingOut = false;
+        rateController.stop();
+        accelerometer.stop();
+
+        // Reset on the sensor thread, after the last batch, so it can't race an in-flight sample
+        sensorHandler.post(exerciseCounter::reset);
+        timeCounter.flush();
+        int seconds = (int) ((SystemClock.elapsedRealtime() - workoutStartElapsed) / 1000);
+        history.record(EventLog.TYPE_SESSION_END, 0, 0, seconds);
+        history.flush();
+
+        mainHandler.removeCallbacks(notificationUpdate);
+        notificationPending = false;
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+        Log.d("WorkoutService", "Workout stopped");
+    }
+
+    public boolean isWorkingOut() {
+        return workingOut;
+    }
+
+    /** UI hook for count changes; called on the sensor thread. Pass null when unbinding. */
+    public void setOnCountsChangedListener(ExerciseCounter.OnCountsChangedListener listener) {
+        uiListener = listener;
+    }
+
+    // Runs on sensorThread
+    private final ExerciseCounter.OnCountsChangedListener countsListener = snapshot -> {
+        ExerciseCounter.OnCountsChangedListener l = uiListener;
+        if (l != null) l.onCountsChanged(snapshot);
+        if (workingOut) mainHandler.post(scheduleNotification);
+    };
+
+    // Notification updates are throttled; a rep every half second shouldn't repost it every time
+    private final Runnable scheduleNotification = () -> {
+        if (notificationPending) return;
+        notificationPending = true;
+        long wait = lastNotificationMs + NOTIFICATION_MIN_INTERVAL_MS - SystemClock.uptimeMillis();
+        mainHandler.postDelayed(this.notificationUpdate, Math.max(0L, wait));
+    };
+
+    private final Runnable notificationUpdate = () -> {
+        notificationPending = false;
+        if (!workingOut) return;
+        lastNotificationMs = SystemClock.uptimeMillis();
+        notificationManager.notify(NOTIFICATION_ID, buildNotification(exerciseCounter.getSnapshot()));
+    };
+
+    private Notification buildNotification(ExerciseCounter.Snapshot snapshot) {
+        PendingIntent open = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop = PendingIntent.getService(this, 1,
+                new Intent(this, WorkoutService.class).setAction(ACTION_STOP), PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.workout_notification_title))
+                .setContentText(getString(R.string.workout_notification_text,
+                        snapshot.jumpingJackCount, timeCounter.getFormattedCredits()))
+                .setContentIntent(open)
+                .addAction(0, getString(R.string.workout_stop), stop)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setCategory(NotificationCompat.CATEGORY_WORKOUT)
+                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE)
+                .build();
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.workout_channel_name), NotificationManager.IMPORTANCE_LOW);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        stopWorkout();
+        mainHandler.removeCallbacks(notificationUpdate);
+        exerciseCounter.setOnCountsChangedListener(null);
+        exerciseCounter.setOnActivityChangedListener(null);
+        sensorThread.quitSafely();
+        timeCounter.flush();
+        super.onDestroy();
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.oompa.services;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
+import com.example.oompa.ExerciseCounter;
 
-public class earnedTimeCounter {
+public class earnedTimeCounter implements ExerciseCounter.CreditSink {
     private static earnedTimeCounter instance;
-    private final PreferenceManager pref;
+    // Write-behind window: at most this many reps / this long before credits hit disk
+    private static final int FLUSH_MAX_PENDING = 32;
+    private static final long FLUSH_MAX_DELAY_MS = 30_000L;
+
+    private final CreditLedger ledger;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
 
     private earnedTimeCounter(Context context) {
-        pref = new PreferenceManager(context.getApplicationContext());
+        PreferenceManager pref = new PreferenceManager(context.getApplicationContext());
+        ledger = new CreditLedger(pref, FLUSH_MAX_PENDING, FLUSH_MAX_DELAY_MS,
+                delayMillis -> handler.postDelayed(flushRunnable, delayMillis));
     }
 
     public static synchronized earnedTimeCounter getInstance(Context context) {
@@ -26,33 +37,51 @@ public class earnedTimeCounter {
     }
 
     // --- Credits (static) ---
+    @Override
     public void addTime(long millis) {
-        pref.addEarnedCredits(millis);
+        ledger.addCredits(millis);
     }
 
     public long getEarnedTime() {
-        return pref.getEarnedCredits();
+        return ledger.getEarnedCredits();
+    }
+
+    /** Consume the whole credit balance, e.g. to start an unlock with it. */
+    public long takeCredits() {
+        return ledger.takeCredits();
     }
 
     public void resetCredits() {
-        pref.clearEarnedCredits();
+        ledger.clearCredits();
     }
 
     // --- Unlock session ---
     public void startCountdown(long durationMillis) {
-        pref.startUnlockCountdown(durationMillis);
+        ledger.setUnlockDeadline(System.currentTimeMillis() + durationMillis);
     }
 
     public void stopCountdown() {
-        pref.clearUnlockCountdown();
+        ledger.clearUnlockDeadline();
     }
 
     public boolean isCountingDown() {
-        return pref.isUnlockActive();
+        return getRemainingUnlockTime() > 0;
     }
 
     public long getRemainingUnlockTime() {
-        return pref.getUnlockRemainingTime();
+        return ledger.getUnlockRemaining(System.currentTimeMillis());
+    }
+
+    /** Called on the changing thread whenever the unlock deadline is set or cleared. */
+    public void setOnUnlockDeadlineChangedListener(CreditLedger.DeadlineListener listener) {
+        ledger.setDeadlineListener(listener);
+    }
+
+    // --- Persistence ---
+    /** Write pending changes now; call from onPause/onDestroy so nothing waits on the timer. */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        ledger.flush();
     }
 
     // --- Formatting helper ---
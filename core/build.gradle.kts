@@ -0,0 +1,30 @@
+// Android-independent logic (exercise detection, lock decisions, record codecs),
+// kept as a plain JVM module so it can be unit tested and benchmarked off-device.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Sources carry non-ASCII comments (units, arrows, emoji); don't depend on the build machine's locale
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(libs.gson)
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :core:jmh   (results in core/build/results/jmh/results.json)
+jmh {
+    jmhVersion = libs.versions.jmhCore.get()
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    resultFormat = "JSON"
+}
@@ -0,0 +1,86 @@
+package com.example.oompa.benchmark;
+
+import com.example.oompa.services.BlockerSnapshot;
+import com.example.oompa.services.BlockerStateEngine;
+import com.example.oompa.services.ScheduleRule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event block decision latency. The probe is a CharSequence, like
+ * AccessibilityEvent.getPackageName(), and is looked up without copying it.
+ * Every tenth package gets a schedule of its own, so the schedule lookup
+ * searches a week of windows across lockedCount / 10 + 1 classes.
+ * The wildcard probe is a package no one interned, matched through the rule trie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockDecisionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int lockedCount;
+
+    private BlockerSnapshot snapshot;
+    private CharSequence lockedProbe;
+    private CharSequence unlockedProbe;
+    private CharSequence wildcardProbe;
+    private long probeTime;
+
+    @Setup
+    public void setUp() {
+        List<String> packages = new ArrayList<>();
+        for (int i = 0; i < lockedCount; i++) {
+            packages.add("com.vendor" + i + ".android.app");
+        }
+        List<ScheduleRule> rules = new ArrayList<>();
+        rules.add(ScheduleRule.lock(null, ScheduleRule.WEEKDAYS, 9 * 60, 17 * 60));
+        for (int i = 0; i < lockedCount; i += 10) {
+            int start = (i * 7) % ScheduleRule.MINUTES_PER_DAY;
+            rules.add(ScheduleRule.lock(Collections.singletonList(packages.get(i)),
+                    ScheduleRule.EVERY_DAY, start, (start + 90) % ScheduleRule.MINUTES_PER_DAY));
+        }
+        BlockerStateEngine engine = BlockerStateEngine.getInstance();
+        probeTime = System.currentTimeMillis();
+        engine.setScheduleRules(rules, TimeZone.getTimeZone("UTC"), probeTime);
+        engine.setLockPatterns(Arrays.asList("com.facebook.*", "com.google.android.apps.youtube*"));
+        snapshot = engine.setLockedPackages(packages);
+        lockedProbe = new StringBuilder("com.vendor" + (lockedCount / 2) + ".android.app");
+        unlockedProbe = new StringBuilder("com.example.notlocked.android.app");
+        wildcardProbe = new StringBuilder("com.google.android.apps.youtube.music");
+    }
+
+    @Benchmark
+    public boolean lockedPackage() {
+        return snapshot.shouldBlock(lockedProbe);
+    }
+
+    @Benchmark
+    public boolean unrelatedPackage() {
+        return snapshot.shouldBlock(unlockedProbe);
+    }
+
+    @Benchmark
+    public boolean wildcardPackage() {
+        return snapshot.shouldBlock(wildcardProbe);
+    }
+
+    @Benchmark
+    public boolean scheduledLookup() {
+        return snapshot.isScheduledLocked(lockedProbe, probeTime);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.oompa.benchmark;
+
+import com.example.oompa.ExerciseCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample cost of the accelerometer path (pipeline, shared features, cadence
+ * SDFT and every registered exercise detector), fed with a synthetic 50 Hz jumping
+ * trace, plus the per-rep cadence confidence query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExerciseCounterBenchmark {
+    private static final int TRACE_LENGTH = 4096;   // power of two, wraps with a mask
+    private static final long SAMPLE_PERIOD_NS = 20_000_000L;
+
+    private final float[] xs = new float[TRACE_LENGTH];
+    private final float[] ys = new float[TRACE_LENGTH];
+    private final float[] zs = new float[TRACE_LENGTH];
+    private ExerciseCounter counter;
+    private long sample = 0L;
+
+    @Setup
+    public void setUp() {
+        counter = ExerciseCounter.getInstance(millis -> { });
+        counter.reset();
+        Traces.jumping(new Random(42), xs, ys, zs);
+        // Fill the cadence window so the query does real work
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            counter.onSample(xs[i], ys[i], zs[i], sample++ * SAMPLE_PERIOD_NS);
+        }
+    }
+
+    @Benchmark
+    public int onSample() {
+        int i = (int) (sample & (TRACE_LENGTH - 1));
+        counter.onSample(xs[i], ys[i], zs[i], sample * SAMPLE_PERIOD_NS);
+        sample++;
+        return counter.getJumpCount();
+    }
+
+    @Benchmark
+    public float cadenceQuery() {
+        return counter.getCadenceHz();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.oompa.benchmark;
+
+import com.example.oompa.App;
+import com.example.oompa.services.LockedAppCodec;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locked-app persistence cost as the list grows: the old whole-list Gson blob
+ * against per-package records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LockedAppSerializationBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int appCount;
+
+    private final Gson gson = new Gson();
+    private final List<App> apps = new ArrayList<>();
+    private String legacyJson;
+    private String[] records;
+    private String lookupPackage;
+
+    @Setup
+    public void setUp() {
+        apps.clear();
+        for (int i = 0; i < appCount; i++) {
+            apps.add(new App("com.vendor" + i + ".android.app", "App " + i, i % 3 != 0, 0x7f080000 + i));
+        }
+        legacyJson = gson.toJson(apps);
+        records = new String[appCount];
+        for (int i = 0; i < appCount; i++) {
+            records[i] = LockedAppCodec.encode(apps.get(i));
+        }
+        lookupPackage = apps.get(appCount - 1).getPackageName();
+    }
+
+    @Benchmark
+    public String legacySerialize() {
+        return gson.toJson(apps);
+    }
+
+    @Benchmark
+    public List<App> legacyDeserialize() {
+        return LockedAppCodec.decodeLegacyJson(legacyJson);
+    }
+
+    // What isLocked() used to cost: parse everything, then scan
+    @Benchmark
+    public boolean legacyIsLocked() {
+        for (App a : LockedAppCodec.decodeLegacyJson(legacyJson)) {
+            if (a.getPackageName().equals(lookupPackage) && a.getSelected()) return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public void recordSerialize(Blackhole bh) {
+        for (int i = 0; i < appCount; i++) {
+            bh.consume(LockedAppCodec.encode(apps.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void recordDeserialize(Blackhole bh) {
+        for (int i = 0; i < appCount; i++) {
+            bh.consume(LockedAppCodec.decode(apps.get(i).getPackageName(), records[i]));
+        }
+    }
+
+    // isLocked() now: one keyed record, flag read without decoding
+    @Benchmark
+    public boolean recordIsLocked() {
+        return LockedAppCodec.isSelected(records[appCount - 1]);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.oompa.benchmark;
+
+import java.util.Random;
+
+/** Synthetic accelerometer traces for the benchmarks. */
+final class Traces {
+
+    // One jump at 50 Hz: push-off, flight, landing impact, then standing still
+    private static final float[] JUMP = {
+            9.8f, 14f, 15f, 12f, 5f, 3f, 4f, 8f, 18f, 20f, 12f, 9.8f,
+            9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f, 9.8f
+    };
+
+    private Traces() { }
+
+    static void jumping(Random random, float[] xs, float[] ys, float[] zs) {
+        for (int i = 0; i < xs.length; i++) {
+            float noise = (float) random.nextGaussian() * 0.3f;
+            xs[i] = (float) random.nextGaussian() * 0.2f;
+            ys[i] = (float) random.nextGaussian() * 0.2f;
+            zs[i] = JUMP[i % JUMP.length] + noise;
+        }
+    }
+}
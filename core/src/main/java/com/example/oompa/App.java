@@ -1,7 +1,5 @@
 package com.example.oompa;
 
-import android.widget.ImageView;
-
 public class App {
 
     String packageName;
@@ -16,6 +14,11 @@ public class App {
         this.appIcon = appIcon;
     }
 
+    /** Copy with a different selection, so list rows can be diffed instead of mutated in place. */
+    public App withSelected(boolean selected) {
+        return new App(packageName, appName, selected, appIcon);
+    }
+
     public int getAppIcon() {
         return appIcon;
     }
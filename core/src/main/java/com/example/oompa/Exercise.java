@@ -0,0 +1,23 @@
+package com.example.oompa;
+
+/**
+ * Exercises the counter recognises, with what one rep earns.
+ * Rhythmic ones only earn while the cadence estimator hears a steady beat;
+ * slow ones (squats, push-ups) are below its band and rely on their detector's own checks.
+ */
+public enum Exercise {
+    JUMPING_JACK("Jumping jacks", 60_000L, true),
+    SQUAT("Squats", 30_000L, false),
+    PUSH_UP("Push-ups", 60_000L, false),
+    HIGH_KNEE("High knees", 5_000L, true);
+
+    public final String label;
+    public final long creditMillisPerRep;
+    public final boolean rhythmic;
+
+    Exercise(String label, long creditMillisPerRep, boolean rhythmic) {
+        this.label = label;
+        this.creditMillisPerRep = creditMillisPerRep;
+        this.rhythmic = rhythmic;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.oompa;
+
+import com.example.oompa.history.EventLog;
+import com.example.oompa.motion.ActivityMonitor;
+import com.example.oompa.motion.CadenceEstimator;
+import com.example.oompa.motion.DetectorEngine;
+import com.example.oompa.motion.FeatureWindow;
+import com.example.oompa.motion.GravityFilter;
+import com.example.oompa.motion.JumpDetector;
+import com.example.oompa.motion.LegLiftDetector;
+import com.example.oompa.motion.LowPassFilter;
+import com.example.oompa.motion.MotionPipeline;
+import com.example.oompa.motion.PushUpDetector;
+import com.example.oompa.motion.SensorSource;
+
+import java.util.Arrays;
+
+public class ExerciseCounter implements DetectorEngine.OnRepListener, SensorSource.Listener {
+
+    /** Immutable counter values; a new one is published on every change. */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(0, new int[Exercise.values().length]);
+
+        public final int jumpCount;
+        public final int jumpingJackCount;
+        private final int[] reps;   // by Exercise ordinal, never mutated once published
+
+        Snapshot(int jumpCount, int[] reps) {
+            this.jumpCount = jumpCount;
+            this.jumpingJackCount = reps[Exercise.JUMPING_JACK.ordinal()];
+            this.reps = reps;
+        }
+
+        public int getReps(Exercise exercise) {
+            return reps[exercise.ordinal()];
+        }
+
+        /** Copy with one more rep of {@code exercise} (and {@code jumps} more raw jumps) */
+        Snapshot plus(Exercise exercise, int jumps) {
+            int[] next = reps.clone();
+            if (exercise != null) next[exercise.ordinal()]++;
+            return new Snapshot(jumpCount + jumps, next);
+        }
+    }
+
+    /** Where earned time goes (earnedTimeCounter in the app) */
+    public interface CreditSink {
+        void addTime(long millis);
+    }
+
+    /** Where reps and credits are recorded ({@link EventLog} record types; HistoryLog in the app) */
+    public interface HistorySink {
+        void record(int type, int aux, int packageHash, int value);
+    }
+
+    public interface OnCountsChangedListener {
+        // Called on whichever thread feeds the samples
+        void onCountsChanged(Snapshot snapshot);
+    }
+
+    // Written only by the sensor thread, read lock-free from anywhere
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile OnCountsChangedListener countsListener;
+
+    private volatile CreditSink timeCounter;
+    private volatile HistorySink history;
+
+    // Singleton instance
+    private static ExerciseCounter instance;
+
+    // Pipeline tuning (time constants, so independent of the sensor rate)
+    private static final long SMOOTHING_TAU_NS = 10_000_000L;   // ~16 Hz cutoff, keeps landing spikes
+    private static final long GRAVITY_TAU_NS = 800_000_000L;
+    private static final int HISTORY_SIZE = 128;                // ~2.5 s at SENSOR_DELAY_GAME
+    private static final long MAX_JACK_HALF_NS = 1_500_000_000L; // out and in jumps of one jack
+    private static final int CADENCE_WINDOW = 256;              // ~5 s at 50 Hz, ~2.5 s at 100 Hz
+    private static final float MIN_CADENCE_CONFIDENCE = 0.5f;   // below this it's shaking, not reps
+    private static final long IDLE_AFTER_NS = 10_000_000_000L;  // still this long = resting between sets
+
+    private long pendingHalfNs = Long.MIN_VALUE;                // first half of the current jack (sensor thread)
+    private final int[] deferredReps = new int[Exercise.values().length]; // rhythmic reps done before the cadence window (re)filled
+    private volatile long rejectedJacks = 0L;
+
+    private final CadenceEstimator cadence = new CadenceEstimator(CADENCE_WINDOW);
+    private final ActivityMonitor activity = new ActivityMonitor(IDLE_AFTER_NS);
+    private volatile ActivityMonitor.Listener activityListener;
+    private final FeatureWindow features = new FeatureWindow(HISTORY_SIZE);
+    private final DetectorEngine detectors = new DetectorEngine(features);
+
+    // Detector id -> exercise it counts; the jump detector's id maps to null (jumps pair into jacks)
+    private final Exercise[] exerciseById;
+    private final int jumpDetectorId;
+
+    private final MotionPipeline pipeline;
+
+    // 🔹 Private constructor to enforce singleton
+    private ExerciseCounter(CreditSink counter) {
+        this.timeCounter = counter;
+        this.jumpDetectorId = detectors.register(new JumpDetector());
+        int squats = detectors.register(LegLiftDetector.squats());
+        int pushUps = detectors.register(new PushUpDetector());
+        int highKnees = detectors.register(LegLiftDetector.highKnees());
+        this.exerciseById = new Exercise[detectors.getDetectorCount()];
+        exerciseById[squats] = Exercise.SQUAT;
+        exerciseById[pushUps] = Exercise.PUSH_UP;
+        exerciseById[highKnees] = Exercise.HIGH_KNEE;
+        detectors.setListener(this);
+        activity.setListener(this::onActivityChanged);
+
+        // Features first: everything after reads them instead of recomputing
+        this.pipeline = new MotionPipeline(HISTORY_SIZE,
+                new LowPassFilter(SMOOTHING_TAU_NS),
+                new GravityFilter(GRAVITY_TAU_NS),
+                features,
+                activity,
+                cadence,
+                detectors);
+    }
+
+    // 🔹 Get singleton instance (pass earnedTimeCounter once at startup)
+    public static synchronized ExerciseCounter getInstance(CreditSink counter) {
+        if (instance == null) {
+            instance = new ExerciseCounter(counter);
+        }
+        return instance;
+    }
+
+    // 🔹 Get existing instance (after initialization)
+    public static ExerciseCounter getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("ExerciseCounter not initialized. Call getInstance(earnedTimeCounter) first.");
+        }
+        return instance;
+    }
+
+    /** Process one accelerometer sample (m/s², timestamp in ns) */
+    public void onSample(float x, float y, float z, long timestampNs) {
+        pipeline.onSample(x, y, z, timestampNs);
+    }
+
+    /** Process a batch from a {@link SensorSource} (x, y, z interleaved) */
+    @Override
+    public void onSamples(float[] xyz, long[] timestampsNs, int count) {
+        pipeline.onSamples(xyz, timestampsNs, count);
+    }
+
+    @Override
+    public void onRep(int detectorId, long timestampNs) {
+        if (detectorId == jumpDetectorId) {
+            onJump(timestampNs);
+            return;
+        }
+        Exercise exercise = exerciseById[detectorId];
+        record(EventLog.TYPE_REP, exercise, 1);
+        award(exercise);
+        publish(snapshot.plus(exercise, 0));
+    }
+
+    // Sensor thread. Runs before the cadence stage sees the frame that woke it
+    private void onActivityChanged(boolean active) {
+        if (active) {
+            // After a rest the cadence window is full of stillness and would reject the first
+            // reps of the set; start it over so they're deferred until it holds the new set
+            cadence.reset();
+        }
+        ActivityMonitor.Listener l = activityListener;
+        if (l != null) l.onActivityChanged(active);
+    }
+
+    private void onJump(long timestampNs) {
+        // A jack is an out-jump and an in-jump close together; a lone jump after a pause starts a new one
+        if (pendingHalfNs != Long.MIN_VALUE && timestampNs - pendingHalfNs <= MAX_JACK_HALF_NS) {
+            pendingHalfNs = Long.MIN_VALUE;
+            record(EventLog.TYPE_REP, Exercise.JUMPING_JACK, 1);
+            award(Exercise.JUMPING_JACK);
+            publish(snapshot.plus(Exercise.JUMPING_JACK, 1));
+        } else {
+            pendingHalfNs = timestampNs;
+            publish(snapshot.plus(null, 1));
+        }
+    }
+
+    // 🔹 Award earned time; rhythmic exercises only earn at a steady cadence
+    private void award(Exercise exercise) {
+        if (!exercise.rhythmic) {
+            credit(exercise, exercise.creditMillisPerRep);
+            return;
+        }
+        int i = exercise.ordinal();
+        if (!cadence.isReady()) {
+            // Not enough history yet (new session, or just back from a rest); decide once it has
+            deferredReps[i]++;
+            return;
+        }
+        int reps = 1 + deferredReps[i];
+        deferredReps[i] = 0;
+        if (cadence.getConfidence() >= MIN_CADENCE_CONFIDENCE) {
+            credit(exercise, exercise.creditMillisPerRep * reps);
+        } else if (exercise == Exercise.JUMPING_JACK) {
+            rejectedJacks += reps;
+        }
+    }
+
+    private void credit(Exercise exercise, long millis) {
+        CreditSink sink = timeCounter;
+        if (sink != null) {
+            sink.addTime(millis);
+        }
+        record(EventLog.TYPE_CREDIT, exercise, (int) millis);
+    }
+
+    private void record(int type, Exercise exercise, int value) {
+        HistorySink h = history;
+        if (h != null) h.record(type, exercise.ordinal(), 0, value);
+    }
+
+    /** Replace the sink given to getInstance; the singleton outlives whoever created it (tests) */
+    public void setCreditSink(CreditSink sink) {
+        timeCounter = sink;
+    }
+
+    /** Keep a history of reps and earned credit (survives {@link #reset()}) */
+    public void setHistorySink(HistorySink sink) {
+        history = sink;
+    }
+
+    private void publish(Snapshot next) {
+        snapshot = next;
+        OnCountsChangedListener l = countsListener;
+        if (l != null) l.onCountsChanged(next);
+    }
+
+    public void setOnCountsChangedListener(OnCountsChangedListener listener) {
+        countsListener = listener;
+    }
+
+    /** Told when the user goes still between sets and starts moving again (sensor thread) */
+    public void setOnActivityChangedListener(ActivityMonitor.Listener listener) {
+        activityListener = listener;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getJumpCount() {
+        return snapshot.jumpCount;
+    }
+
+    public int getJumpingJackCount() {
+        return snapshot.jumpingJackCount;
+    }
+
+    public int getReps(Exercise exercise) {
+        return snapshot.getReps(exercise);
+    }
+
+    /** Current rep rate in Hz (sensor thread view; approximate from elsewhere) */
+    public float getCadenceHz() {
+        return cadence.getCadenceHz();
+    }
+
+    /** Jacks counted this session that earned nothing because the motion wasn't rhythmic */
+    public long getRejectedJacks() {
+        return rejectedJacks;
+    }
+
+    /** Must run on the thread that feeds samples (or while no samples are arriving) */
+    public void reset() {
+        pipeline.reset();
+        pendingHalfNs = Long.MIN_VALUE;
+        Arrays.fill(deferredReps, 0);
+        rejectedJacks = 0L;
+        publish(Snapshot.EMPTY);
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.oompa.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only history of reps, workout sessions, credits, unlocks and blocks.
+ *
+ * Records are fixed width (16 bytes) and go into segment files in {@code dir}:
+ * a 16-byte header (magic, version, flags, base wall time) followed by records
+ * holding a millisecond offset from that base, so times only ever grow within a
+ * segment. Appends are collected in a direct buffer and written in batches. Reads
+ * memory-map each segment and binary search to the start of the range, so a scan
+ * touches only the pages it needs and allocates nothing per record.
+ *
+ * A segment rolls after a day or {@link #MAX_SEGMENT_RECORDS} records. Old
+ * segments can be compacted (reps and credits merged per minute) and dropped
+ * after a retention period. All methods are synchronized; callers on any thread.
+ * Sticks to java.io channels (no java.nio.file) so it runs on API 24.
+ */
+public class EventLog implements Closeable {
+
+    // Record types
+    public static final int TYPE_REP = 1;             // aux = Exercise ordinal, value = reps
+    public static final int TYPE_SESSION_START = 2;
+    public static final int TYPE_SESSION_END = 3;     // value = session length in seconds
+    public static final int TYPE_CREDIT = 4;          // aux = Exercise ordinal, value = earned millis
+    public static final int TYPE_UNLOCK = 5;          // value = unlock length in millis
+    public static final int TYPE_BLOCK = 6;           // packageHash = the blocked app, aux = BLOCK_*
+
+    // How a TYPE_BLOCK was carried out
+    public static final int BLOCK_OVERLAY = 0;        // the block screen covered the app
+    public static final int BLOCK_HOME = 1;           // no overlay; the user was sent home instead
+
+    public interface Visitor {
+        // Called for every record in the range, oldest first
+        void onEvent(long timeMs, int type, int aux, int packageHash, int value);
+    }
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    private static final int MAGIC = 0x4F455631;      // "OEV1"
+    private static final short VERSION = 1;
+    private static final short FLAG_COMPACTED = 1;
+
+    public static final int MAX_SEGMENT_RECORDS = 1 << 16;        // 1 MB
+    private static final long SEGMENT_SPAN_MS = 24L * 60 * 60 * 1000;
+    private static final long COMPACT_BUCKET_MS = 60_000L;
+    private static final int MERGE_SLOTS = 16;                     // distinct (type, exercise, app) per minute
+
+    private static final String PREFIX = "events-";
+    private static final String SUFFIX = ".log";
+
+    private static final class Segment {
+        final File file;
+        final long sequence;
+        final long baseMs;
+
+        Segment(File file, long sequence, long baseMs) {
+            this.file = file;
+            this.sequence = sequence;
+            this.baseMs = baseMs;
+        }
+    }
+
+    private final File dir;
+    private final ByteBuffer batch;
+    private final List<Segment> segments = new ArrayList<>();   // oldest first, last one is open
+
+    private FileChannel channel;          // append channel of the last segment, null until first write
+    private long activeRecords = 0L;      // records in the last segment, flushed or not
+    private long lastTimeMs = Long.MIN_VALUE;
+
+    public EventLog(File dir, int batchRecords) throws IOException {
+        if (batchRecords <= 0) {
+            throw new IllegalArgumentException("batchRecords must be > 0");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        this.dir = dir;
+        this.batch = ByteBuffer.allocateDirect(batchRecords * RECORD_SIZE);
+        loadSegments();
+    }
+
+    /** How package names are stored: an int, resolved back by hashing the names you know. */
+    public static int packageHash(String packageName) {
+        return packageName == null ? 0 : packageName.hashCode();
+    }
+
+    public long append(int type, int aux, int packageHash, int value) throws IOException {
+        return append(System.currentTimeMillis(), type, aux, packageHash, value);
+    }
+
+    /**
+     * Returns the time actually stored, which is later than {@code timeMs} if the
+     * clock stepped back; anything mirroring the log (the rollup) must use that one.
+     */
+    public synchronized long append(long timeMs, int type, int aux, int packageHash, int value) throws IOException {
+        // Keep times non-decreasing so reads can binary search; a clock step back just pins them
+        if (timeMs < lastTimeMs) timeMs = lastTimeMs;
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || activeRecords >= MAX_SEGMENT_RECORDS || timeMs - active.baseMs >= SEGMENT_SPAN_MS) {
+            active = roll(timeMs);
+        }
+        if (!batch.hasRemaining()) flushBatch();
+
+        batch.putInt((int) (timeMs - active.baseMs));
+        batch.putInt(packageHash);
+        batch.putInt(value);
+        batch.putShort((short) type);
+        batch.putShort((short) aux);
+        activeRecords++;
+        lastTimeMs = timeMs;
+        return timeMs;
+    }
+
+    /** Write buffered records to disk. Cheap when nothing is pending. */
+    public synchronized void flush() throws IOException {
+        flushBatch();
+    }
+
+    /** Records buffered but not written yet. */
+    public synchronized int pendingRecords() {
+        return batch.position() / RECORD_SIZE;
+    }
+
+    /**
+     * Visit every record with {@code fromMs <= time < toMs}, oldest first.
+     * Flushes first so the scan also sees the latest appends.
+     */
+    public synchronized void scan(long fromMs, long toMs, Visitor visitor) throws IOException {
+        flushBatch();
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            if (segment.baseMs >= toMs) break;
+            // Everything in this segment is older than the next one's base
+            if (s + 1 < segments.size() && segments.get(s + 1).baseMs <= fromMs) continue;
+            scanSegment(segment, fromMs, toMs, visitor);
+        }
+    }
+
+    private void scanSegment(Segment segment, long fromMs, long toMs, Visitor visitor) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(segment.file, "r")) {
+            FileChannel in = raf.getChannel();
+            long size = in.size();
+            int count = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            if (count <= 0) return;
+            MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) count * RECORD_SIZE);
+
+            // Clamped, so open-ended ranges (Long.MIN_VALUE / MAX_VALUE) don't overflow
+            long from = Math.max(fromMs, segment.baseMs) - segment.baseMs;
+            long to = Math.min(toMs, segment.baseMs + Integer.MAX_VALUE) - segment.baseMs;
+            // First record at or after fromMs
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (map.getInt(HEADER_SIZE + mid * RECORD_SIZE) < from) lo = mid + 1;
+                else hi = mid;
+            }
+            for (int i = lo; i < count; i++) {
+                int at = HEADER_SIZE + i * RECORD_SIZE;
+                int offset = map.getInt(at);
+                if (offset >= to) break;
+                visitor.onEvent(segment.baseMs + offset, map.getShort(at + 12), map.getShort(at + 14),
+                        map.getInt(at + 4), map.getInt(at + 8));
+            }
+        }
+    }
+
+    /**
+     * Housekeeping, run occasionally off the main thread. Drops segments that ended
+     * before {@code retainAfterMs} and compacts closed segments that ended before
+     * {@code compactBeforeMs}: reps and credits of the same exercise in the same
+     * minute become one record carrying the sum, at the time of the first.
+     */
+    public synchronized void compact(long compactBeforeMs, long retainAfterMs) throws IOException {
+        flushBatch();
+        // The last segment is still being written to, leave it alone
+        for (int s = segments.size() - 2; s >= 0; s--) {
+            Segment segment = segments.get(s);
+            long endMs = segments.get(s + 1).baseMs;
+            if (endMs <= retainAfterMs) {
+                if (!segment.file.delete() && segment.file.exists()) {
+                    throw new IOException("Can't delete " + segment.file);
+                }
+                segments.remove(s);
+            } else if (endMs <= compactBeforeMs) {
+                compactSegment(segment);
+            }
+        }
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        File tmp = new File(dir, segment.file.getName() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(segment.file, "r")) {
+            FileChannel in = raf.getChannel();
+            in.read(header, 0);
+            if ((header.getShort(6) & FLAG_COMPACTED) != 0) return;
+
+            int count = (int) ((in.size() - HEADER_SIZE) / RECORD_SIZE);
+            MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) count * RECORD_SIZE);
+            ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+            out.putInt(MAGIC).putShort(VERSION).putShort(FLAG_COMPACTED).putLong(segment.baseMs);
+
+            // Mergeable records already written for the current minute, by position in out
+            int[] open = new int[MERGE_SLOTS];
+            int openCount = 0;
+            long bucket = -1;
+            for (int i = 0; i < count; i++) {
+                int at = HEADER_SIZE + i * RECORD_SIZE;
+                int offset = map.getInt(at);
+                int pkg = map.getInt(at + 4);
+                int value = map.getInt(at + 8);
+                short type = map.getShort(at + 12);
+                short aux = map.getShort(at + 14);
+                if (offset / COMPACT_BUCKET_MS != bucket) {
+                    bucket = offset / COMPACT_BUCKET_MS;
+                    openCount = 0;
+                }
+                if (type == TYPE_REP || type == TYPE_CREDIT) {
+                    int match = -1;
+                    for (int k = 0; k < openCount && match < 0; k++) {
+                        int p = open[k];
+                        if (out.getShort(p + 12) == type && out.getShort(p + 14) == aux && out.getInt(p + 4) == pkg) {
+                            match = p;
+                        }
+                    }
+                    if (match >= 0) {
+                        out.putInt(match + 8, out.getInt(match + 8) + value);
+                        continue;
+                    }
+                    if (openCount < MERGE_SLOTS) open[openCount++] = out.position();
+                }
+                out.putInt(offset).putInt(pkg).putInt(value).putShort(type).putShort(aux);
+            }
+            out.flip();
+
+            try (FileOutputStream w = new FileOutputStream(tmp)) {
+                FileChannel wc = w.getChannel();
+                while (out.hasRemaining()) wc.write(out);
+                wc.force(false);
+            }
+        }
+        // Same directory, so the rename is atomic: readers see the old or the new file, never half
+        if (!tmp.renameTo(segment.file)) {
+            throw new IOException("Can't replace " + segment.file);
+        }
+    }
+
+    /** Bytes on disk across all segments (plus what's buffered). */
+    public synchronized long sizeBytes() {
+        long total = batch.position();
+        for (Segment segment : segments) total += segment.file.length();
+        return total;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flushBatch();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private Segment roll(long baseMs) throws IOException {
+        flushBatch();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        long sequence = segments.isEmpty() ? 0L : segments.get(segments.size() - 1).sequence + 1;
+        File file = new File(dir, String.format("%s%010d%s", PREFIX, sequence, SUFFIX));
+        Segment segment = new Segment(file, sequence, baseMs);
+
+        channel = new FileOutputStream(file).getChannel();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(baseMs);
+        header.flip();
+        while (header.hasRemaining()) channel.write(header);
+
+        segments.add(segment);
+        activeRecords = 0L;
+        return segment;
+    }
+
+    private void flushBatch() throws IOException {
+        if (batch.position() == 0) return;
+        if (channel == null) {
+            // Reopened log: the last segment exists but hasn't been written to this session
+            Segment active = segments.get(segments.size() - 1);
+            channel = new FileOutputStream(active.file, true).getChannel();
+        }
+        batch.flip();
+        while (batch.hasRemaining()) channel.write(batch);
+        batch.clear();
+    }
+
+    private void loadSegments() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.sort(files);   // zero-padded sequence numbers sort by name
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        for (File file : files) {
+            long sequence;
+            try {
+                sequence = Long.parseLong(file.getName().substring(PREFIX.length(),
+                        file.getName().length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                FileChannel in = raf.getChannel();
+                header.clear();
+                if (in.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) continue;
+                // A crash mid-write can leave a partial record at the end
+                long size = in.size();
+                long whole = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+                if (whole != size) in.truncate(whole);
+                segments.add(new Segment(file, sequence, header.getLong(8)));
+            }
+        }
+
+        if (!segments.isEmpty()) {
+            Segment active = segments.get(segments.size() - 1);
+            long size = active.file.length();
+            activeRecords = (size - HEADER_SIZE) / RECORD_SIZE;
+            lastTimeMs = active.baseMs;
+            if (activeRecords > 0) {
+                try (RandomAccessFile raf = new RandomAccessFile(active.file, "r")) {
+                    ByteBuffer last = ByteBuffer.allocate(4);
+                    raf.getChannel().read(last, size - RECORD_SIZE);
+                    lastTimeMs = active.baseMs + last.getInt(0);
+                }
+            }
+        }
+    }
+}
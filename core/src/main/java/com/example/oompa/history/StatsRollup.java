@@ -0,0 +1,378 @@
+package com.example.oompa.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Running totals over the {@link EventLog}, bucketed per hour, day and week (local
+ * time, weeks start on Monday), so dashboard queries cost O(buckets) however much
+ * history there is. Buckets live in ring arrays of primitives keyed by bucket
+ * number; a slot whose key doesn't match the asked-for bucket reads as zero.
+ * Block attempts are also kept per app (by package hash) per day and per week.
+ *
+ * It is fed the same records as the log ({@link #add}), saved next to it, and
+ * on load catches up by replaying the log from its watermark. All methods are
+ * synchronized; callers on any thread.
+ */
+public class StatsRollup implements EventLog.Visitor {
+
+    // Granularity
+    public static final int HOUR = 0;
+    public static final int DAY = 1;
+    public static final int WEEK = 2;
+
+    // Metrics
+    public static final int REPS = 0;
+    public static final int CREDIT_MS = 1;
+    public static final int UNLOCKS = 2;
+    public static final int UNLOCK_MS = 3;
+    public static final int BLOCKS = 4;
+    public static final int WORKOUT_SECONDS = 5;
+    public static final int METRIC_COUNT = 6;
+
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final int[] SLOTS = {24 * 14, 400, 104};      // two weeks of hours, ~13 months of days, 2 years of weeks
+    private static final int APP_DAY_SLOTS = 35;                 // per-app detail is only shown for recent weeks
+    private static final int APP_WEEK_SLOTS = 104;
+
+    private static final int MAGIC = 0x4F525531;                 // "ORU1"
+
+    private final TimeZone timeZone;
+    private final long[][] keys = new long[3][];                 // bucket number held by each slot, -1 = empty
+    private final long[][] values = new long[3][];               // slot * METRIC_COUNT + metric
+
+    // Per-app blocks: open-addressed table of package hashes -> app index
+    private int[] appHashes = new int[0];
+    private int[] appTable = newTable(64);
+    private long[] appDayKeys = new long[0];                     // app * APP_DAY_SLOTS + slot
+    private int[] appDayBlocks = new int[0];
+    private long[] appWeekKeys = new long[0];
+    private int[] appWeekBlocks = new int[0];
+
+    // Everything up to and including this point is counted
+    private long watermarkMs = Long.MIN_VALUE;
+    private int atWatermark = 0;   // events counted with time == watermarkMs
+
+    public StatsRollup(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        for (int unit = HOUR; unit <= WEEK; unit++) {
+            keys[unit] = new long[SLOTS[unit]];
+            Arrays.fill(keys[unit], -1L);
+            values[unit] = new long[SLOTS[unit] * METRIC_COUNT];
+        }
+    }
+
+    /** Count one log record. Same arguments as {@link EventLog#append}. */
+    public synchronized void add(long timeMs, int type, int aux, int packageHash, int value) {
+        if (timeMs == watermarkMs) {
+            atWatermark++;
+        } else if (timeMs > watermarkMs) {
+            watermarkMs = timeMs;
+            atWatermark = 1;
+        }
+        switch (type) {
+            case EventLog.TYPE_REP:
+                bump(timeMs, REPS, value);
+                break;
+            case EventLog.TYPE_CREDIT:
+                bump(timeMs, CREDIT_MS, value);
+                break;
+            case EventLog.TYPE_UNLOCK:
+                bump(timeMs, UNLOCKS, 1);
+                bump(timeMs, UNLOCK_MS, value);
+                break;
+            case EventLog.TYPE_BLOCK:
+                bump(timeMs, BLOCKS, 1);
+                bumpApp(timeMs, packageHash);
+                break;
+            case EventLog.TYPE_SESSION_END:
+                bump(timeMs, WORKOUT_SECONDS, value);
+                break;
+        }
+    }
+
+    @Override
+    public void onEvent(long timeMs, int type, int aux, int packageHash, int value) {
+        add(timeMs, type, aux, packageHash, value);
+    }
+
+    // --- Queries ---
+
+    /** Value of {@code metric} in the {@code unit} bucket containing {@code timeMs}. */
+    public synchronized long get(int unit, int metric, long timeMs) {
+        long bucket = bucketOf(unit, timeMs);
+        int slot = slot(unit, bucket);
+        return keys[unit][slot] == bucket ? values[unit][slot * METRIC_COUNT + metric] : 0L;
+    }
+
+    /**
+     * The last {@code out.length} buckets of {@code metric}, oldest first, ending with
+     * the one containing {@code endMs}. Buckets older than the ring hold read as 0.
+     */
+    public synchronized void series(int unit, int metric, long endMs, long[] out) {
+        long last = bucketOf(unit, endMs);
+        for (int i = 0; i < out.length; i++) {
+            long bucket = last - (out.length - 1 - i);
+            int slot = slot(unit, bucket);
+            out[i] = keys[unit][slot] == bucket ? values[unit][slot * METRIC_COUNT + metric] : 0L;
+        }
+    }
+
+    /** Block attempts on one app in the DAY or WEEK bucket containing {@code timeMs}. */
+    public synchronized int getAppBlocks(int unit, int packageHash, long timeMs) {
+        int app = findApp(packageHash);
+        if (app < 0) return 0;
+        return appBlocks(unit, app, bucketOf(unit, timeMs));
+    }
+
+    /**
+     * Apps blocked in the DAY or WEEK bucket containing {@code timeMs}: fills the
+     * arrays (up to their length) and returns how many apps there were. O(apps).
+     */
+    public synchronized int getBlockedApps(int unit, long timeMs, int[] hashesOut, int[] countsOut) {
+        long bucket = bucketOf(unit, timeMs);
+        int n = 0;
+        for (int app = 0; app < appHashes.length; app++) {
+            int count = appBlocks(unit, app, bucket);
+            if (count == 0) continue;
+            if (n < hashesOut.length) {
+                hashesOut[n] = appHashes[app];
+                countsOut[n] = count;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    public synchronized long getWatermarkMs() {
+        return watermarkMs;
+    }
+
+    // --- Buckets ---
+
+    private long bucketOf(int unit, long timeMs) {
+        long local = timeMs + timeZone.getOffset(timeMs);
+        switch (unit) {
+            case HOUR:
+                return Math.floorDiv(local, HOUR_MS);
+            case DAY:
+                return Math.floorDiv(local, DAY_MS);
+            default:
+                // Epoch day 0 was a Thursday; shift so weeks start on Monday
+                return Math.floorDiv(Math.floorDiv(local, DAY_MS) + 3, 7);
+        }
+    }
+
+    private static int slot(int unit, long bucket) {
+        return (int) Math.floorMod(bucket, (long) SLOTS[unit]);
+    }
+
+    private void bump(long timeMs, int metric, long amount) {
+        for (int unit = HOUR; unit <= WEEK; unit++) {
+            long bucket = bucketOf(unit, timeMs);
+            int slot = slot(unit, bucket);
+            long key = keys[unit][slot];
+            if (key > bucket) continue;   // older than the ring keeps
+            if (key < bucket) {
+                keys[unit][slot] = bucket;
+                Arrays.fill(values[unit], slot * METRIC_COUNT, (slot + 1) * METRIC_COUNT, 0L);
+            }
+            values[unit][slot * METRIC_COUNT + metric] += amount;
+        }
+    }
+
+    private void bumpApp(long timeMs, int packageHash) {
+        int app = findApp(packageHash);
+        if (app < 0) app = addApp(packageHash);
+        bumpApp(appDayKeys, appDayBlocks, APP_DAY_SLOTS, app, bucketOf(DAY, timeMs));
+        bumpApp(appWeekKeys, appWeekBlocks, APP_WEEK_SLOTS, app, bucketOf(WEEK, timeMs));
+    }
+
+    private static void bumpApp(long[] keys, int[] counts, int slots, int app, long bucket) {
+        int i = app * slots + (int) Math.floorMod(bucket, (long) slots);
+        if (keys[i] > bucket) return;
+        if (keys[i] < bucket) {
+            keys[i] = bucket;
+            counts[i] = 0;
+        }
+        counts[i]++;
+    }
+
+    private int appBlocks(int unit, int app, long bucket) {
+        long[] k = unit == WEEK ? appWeekKeys : appDayKeys;
+        int[] c = unit == WEEK ? appWeekBlocks : appDayBlocks;
+        int slots = unit == WEEK ? APP_WEEK_SLOTS : APP_DAY_SLOTS;
+        int i = app * slots + (int) Math.floorMod(bucket, (long) slots);
+        return k[i] == bucket ? c[i] : 0;
+    }
+
+    // --- App table ---
+
+    private static int[] newTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private int findApp(int packageHash) {
+        int mask = appTable.length - 1;
+        for (int i = mix(packageHash) & mask; ; i = (i + 1) & mask) {
+            int app = appTable[i];
+            if (app < 0) return -1;
+            if (appHashes[app] == packageHash) return app;
+        }
+    }
+
+    private int addApp(int packageHash) {
+        int app = appHashes.length;
+        appHashes = Arrays.copyOf(appHashes, app + 1);
+        appHashes[app] = packageHash;
+        appDayKeys = grow(appDayKeys, APP_DAY_SLOTS);
+        appDayBlocks = Arrays.copyOf(appDayBlocks, appDayBlocks.length + APP_DAY_SLOTS);
+        appWeekKeys = grow(appWeekKeys, APP_WEEK_SLOTS);
+        appWeekBlocks = Arrays.copyOf(appWeekBlocks, appWeekBlocks.length + APP_WEEK_SLOTS);
+        // Keep the table at most half full
+        if ((app + 1) * 2 > appTable.length) {
+            appTable = newTable(appTable.length * 2);
+            for (int a = 0; a < app; a++) insert(a);
+        }
+        insert(app);
+        return app;
+    }
+
+    private void insert(int app) {
+        int mask = appTable.length - 1;
+        int i = mix(appHashes[app]) & mask;
+        while (appTable[i] >= 0) i = (i + 1) & mask;
+        appTable[i] = app;
+    }
+
+    private static long[] grow(long[] keys, int slots) {
+        long[] next = Arrays.copyOf(keys, keys.length + slots);
+        Arrays.fill(next, keys.length, next.length, -1L);
+        return next;
+    }
+
+    // String hashes of similar package names share low bits; spread them
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // --- Persistence ---
+
+    /** Write the whole rollup to {@code file} (via a temp file and rename). */
+    public synchronized void save(File file) throws IOException {
+        int apps = appHashes.length;
+        int size = 4 + 8 + 4 + 4;
+        for (int unit = HOUR; unit <= WEEK; unit++) size += SLOTS[unit] * 8 * (1 + METRIC_COUNT);
+        size += apps * (4 + (APP_DAY_SLOTS + APP_WEEK_SLOTS) * 12);
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putLong(watermarkMs).putInt(atWatermark).putInt(apps);
+        for (int unit = HOUR; unit <= WEEK; unit++) {
+            for (long k : keys[unit]) out.putLong(k);
+            for (long v : values[unit]) out.putLong(v);
+        }
+        for (int h : appHashes) out.putInt(h);
+        for (long k : appDayKeys) out.putLong(k);
+        for (int c : appDayBlocks) out.putInt(c);
+        for (long k : appWeekKeys) out.putLong(k);
+        for (int c : appWeekBlocks) out.putInt(c);
+        out.flip();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream w = new FileOutputStream(tmp)) {
+            FileChannel channel = w.getChannel();
+            while (out.hasRemaining()) channel.write(out);
+            channel.force(false);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    /**
+     * Load a saved rollup (if there is a readable one) and count whatever the log
+     * holds past its watermark. Without a saved file this rebuilds from the whole log.
+     */
+    public synchronized void load(File file, EventLog log) throws IOException {
+        if (!read(file)) {
+            clear();
+        }
+        // Records sharing the watermark's millisecond come round again; skip the ones we have
+        final int[] skip = {atWatermark};
+        final long mark = watermarkMs;
+        log.scan(mark, Long.MAX_VALUE, (timeMs, type, aux, packageHash, value) -> {
+            if (timeMs == mark && skip[0] > 0) {
+                skip[0]--;
+                return;
+            }
+            add(timeMs, type, aux, packageHash, value);
+        });
+    }
+
+    private boolean read(File file) throws IOException {
+        if (!file.isFile()) return false;
+        ByteBuffer in;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            in = ByteBuffer.allocate((int) raf.length());
+            raf.getChannel().read(in, 0);
+        }
+        in.flip();
+        try {
+            if (in.getInt() != MAGIC) return false;
+            long mark = in.getLong();
+            int at = in.getInt();
+            int apps = in.getInt();
+            for (int unit = HOUR; unit <= WEEK; unit++) {
+                for (int i = 0; i < keys[unit].length; i++) keys[unit][i] = in.getLong();
+                for (int i = 0; i < values[unit].length; i++) values[unit][i] = in.getLong();
+            }
+            appHashes = new int[apps];
+            appDayKeys = new long[apps * APP_DAY_SLOTS];
+            appDayBlocks = new int[apps * APP_DAY_SLOTS];
+            appWeekKeys = new long[apps * APP_WEEK_SLOTS];
+            appWeekBlocks = new int[apps * APP_WEEK_SLOTS];
+            for (int i = 0; i < apps; i++) appHashes[i] = in.getInt();
+            for (int i = 0; i < appDayKeys.length; i++) appDayKeys[i] = in.getLong();
+            for (int i = 0; i < appDayBlocks.length; i++) appDayBlocks[i] = in.getInt();
+            for (int i = 0; i < appWeekKeys.length; i++) appWeekKeys[i] = in.getLong();
+            for (int i = 0; i < appWeekBlocks.length; i++) appWeekBlocks[i] = in.getInt();
+
+            int tableSize = 64;
+            while (apps * 2 > tableSize) tableSize *= 2;
+            appTable = newTable(tableSize);
+            for (int a = 0; a < apps; a++) insert(a);
+            watermarkMs = mark;
+            atWatermark = at;
+            return true;
+        } catch (BufferUnderflowException e) {
+            // Truncated file: rebuild from the log instead
+            return false;
+        }
+    }
+
+    private void clear() {
+        for (int unit = HOUR; unit <= WEEK; unit++) {
+            Arrays.fill(keys[unit], -1L);
+            Arrays.fill(values[unit], 0L);
+        }
+        appHashes = new int[0];
+        appTable = newTable(64);
+        appDayKeys = new long[0];
+        appDayBlocks = new int[0];
+        appWeekKeys = new long[0];
+        appWeekBlocks = new int[0];
+        watermarkMs = Long.MIN_VALUE;
+        atWatermark = 0;
+    }
+}
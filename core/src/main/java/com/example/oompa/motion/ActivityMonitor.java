@@ -0,0 +1,82 @@
+package com.example.oompa.motion;
+
+/**
+ * Decides whether the phone is moving enough to need full-rate sampling.
+ * Reads the running variance of the filtered magnitude that the {@link FeatureWindow}
+ * keeps (timestamp-based, so it works the same at any rate), so it must run after it.
+ * It reports idle after the variance has stayed low for a while, and active as soon
+ * as it rises again. Low/high thresholds give hysteresis so it doesn't flap.
+ */
+public class ActivityMonitor implements MotionStage {
+
+    public interface Listener {
+        // Called on the thread that feeds the pipeline
+        void onActivityChanged(boolean active);
+    }
+
+    private static final float IDLE_VARIANCE = 0.5f * 0.5f;      // (m/s²)²: standing or lying still
+    private static final float ACTIVE_VARIANCE = 1.5f * 1.5f;    // a step, a swing, a push-off
+
+    private final long idleAfterNs;
+    private volatile Listener listener;
+
+    private boolean primed = false;
+    private boolean active = true;
+    private long quietSinceNs = Long.MIN_VALUE;
+    private float variance;
+
+    public ActivityMonitor(long idleAfterNs) {
+        this.idleAfterNs = idleAfterNs;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        final long now = frame.timestampNs;
+        variance = frame.magnitudeVariance;
+        if (!primed) {
+            primed = true;
+            quietSinceNs = now;
+            return;
+        }
+
+        if (active) {
+            if (variance > IDLE_VARIANCE) {
+                quietSinceNs = now;
+            } else if (now - quietSinceNs >= idleAfterNs) {
+                setActive(false);
+            }
+        } else if (variance > ACTIVE_VARIANCE) {
+            quietSinceNs = now;
+            setActive(true);
+        }
+    }
+
+    private void setActive(boolean next) {
+        active = next;
+        Listener l = listener;
+        if (l != null) l.onActivityChanged(next);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public float getVariance() {
+        return variance;
+    }
+
+    /**
+     * After a gap the stream is restarting, which only happens when someone woke
+     * it up, so start from active again (without telling the listener).
+     */
+    @Override
+    public void reset() {
+        primed = false;
+        active = true;
+        quietSinceNs = Long.MIN_VALUE;
+    }
+}
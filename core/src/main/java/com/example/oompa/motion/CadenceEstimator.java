@@ -0,0 +1,213 @@
+package com.example.oompa.motion;
+
+import java.util.Arrays;
+
+/**
+ * Sliding DFT over the last {@code windowSize} filtered magnitudes (as computed by
+ * the {@link FeatureWindow}), updated per sample. Repetitive exercise puts most of
+ * the signal's AC energy on the rep rate and its harmonics. Shaking and random
+ * handling spread it out or sit outside the band. So the share of energy on the
+ * best in-band harmonic comb is a cheap confidence value.
+ *
+ * Cost per sample is O(N/2): one complex rotation for each of the N/2-1 bins, plus
+ * O(1) running sums. Per-sample cost doesn't get any lower than that here. The comb
+ * reads up to the 6th harmonic of a 4 Hz cadence (plus a neighbour), which at 50 Hz
+ * and N=256 is bin 124 of 127. So restricting the update to the bins the queries
+ * read would save almost nothing. A Goertzel per read bin costs the same per bin, and
+ * the bins read grow with N at a fixed rate anyway. At N=256 and 50 Hz that's about
+ * 6k rotations a second, well under what the detectors cost.
+ * Everything lives in arrays allocated once, so nothing is allocated per sample.
+ * The queries are O(bins) and meant to be called per rep, not per sample.
+ */
+public class CadenceEstimator implements MotionStage {
+
+    // Rep rates we'd believe for jumping (per second)
+    public static final float MIN_CADENCE_HZ = 0.6f;
+    public static final float MAX_CADENCE_HZ = 4f;
+
+    // Slight damping keeps the recursive bins from drifting (standard SDFT trick)
+    private static final double DAMPING = 0.99995;
+    private static final long RATE_TAU_NS = 1_000_000_000L;
+    private static final int HARMONICS = 6;
+    private static final double HARMONIC_PRESENT = 0.1;   // share of the comb a harmonic needs to count
+    private static final double CANDIDATE_STEP = 0.25;    // bins; harmonics of a coarse guess drift off-bin
+
+    private final int windowSize;
+    private final int bins;                 // tracks k = 1..N/2-1
+    private final double[] re;
+    private final double[] im;
+    private final double[] twiddleCos;
+    private final double[] twiddleSin;
+    private final double dampingN;
+    private final float[] window;           // raw inputs, circular
+
+    private int head = 0;                   // next slot to overwrite (= oldest sample once full)
+    private int filled = 0;
+    private double sum = 0.0;
+    private double sumSq = 0.0;
+    private float meanDtNs = 0f;
+
+    public CadenceEstimator(int windowSize) {
+        if (windowSize < 8) {
+            throw new IllegalArgumentException("windowSize=" + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.bins = windowSize / 2 - 1;
+        this.re = new double[bins + 1];
+        this.im = new double[bins + 1];
+        this.twiddleCos = new double[bins + 1];
+        this.twiddleSin = new double[bins + 1];
+        for (int k = 1; k <= bins; k++) {
+            double w = 2.0 * Math.PI * k / windowSize;
+            twiddleCos[k] = DAMPING * Math.cos(w);
+            twiddleSin[k] = DAMPING * Math.sin(w);
+        }
+        this.dampingN = Math.pow(DAMPING, windowSize);
+        this.window = new float[windowSize];
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        final float x = frame.filteredMagnitude;
+        final float oldest = window[head];
+        final double delta = x - dampingN * (filled == windowSize ? oldest : 0f);
+
+        for (int k = 1; k <= bins; k++) {
+            double r = re[k] + delta;
+            double i = im[k];
+            re[k] = r * twiddleCos[k] - i * twiddleSin[k];
+            im[k] = r * twiddleSin[k] + i * twiddleCos[k];
+        }
+
+        window[head] = x;
+        head = (head + 1) % windowSize;
+        if (filled < windowSize) {
+            filled++;
+            sum += x;
+            sumSq += (double) x * x;
+        } else {
+            sum += x - oldest;
+            sumSq += (double) x * x - (double) oldest * oldest;
+            // Re-sum once per lap so the running sums can't drift
+            if (head == 0) resum();
+        }
+
+        if (frame.dtNs > 0) {
+            meanDtNs = meanDtNs == 0f ? frame.dtNs
+                    : meanDtNs + MotionFrame.alpha(frame.dtNs, RATE_TAU_NS) * (frame.dtNs - meanDtNs);
+        }
+    }
+
+    private void resum() {
+        double s = 0.0, sq = 0.0;
+        for (float v : window) {
+            s += v;
+            sq += (double) v * v;
+        }
+        sum = s;
+        sumSq = sq;
+    }
+
+    /** True once a full window has been seen since the last reset. */
+    public boolean isReady() {
+        return filled == windowSize && meanDtNs > 0f;
+    }
+
+    /** Dominant in-band rep rate in Hz, or 0 if not ready or nothing periodic. */
+    public float getCadenceHz() {
+        double f = fundamental();
+        return f < 0 ? 0f : (float) (f * binHz());
+    }
+
+    /**
+     * How much of the window's AC energy sits on the harmonic comb of the
+     * detected cadence, 0..1, rescaled so white noise lands near 0.
+     * Steady reps score high; shaking, handling and a still phone score low.
+     */
+    public float getConfidence() {
+        double f = fundamental();
+        if (f < 0) return 0f;
+        // Parseval: sum over all non-DC bins of |X|² = N·Σx² − (Σx)²
+        double acEnergy = windowSize * sumSq - sum * sum;
+        if (acEnergy <= 1e-9) return 0f;
+        // Real input: bin k and N-k carry the same energy, hence the 2s
+        double share = Math.min(1.0, 2.0 * combEnergy(f) / acEnergy);
+        double flat = 2.0 * 3 * harmonicsOf(f) / (windowSize - 1);
+        return (float) Math.max(0.0, (share - flat) / (1.0 - flat));
+    }
+
+    /**
+     * Candidate rep rate (in fractional bins) with the most energy on its first few
+     * harmonics, or -1. Impacts put more energy in the harmonics than the fundamental,
+     * so a plain peak pick would report a multiple of the rate. A candidate only
+     * counts if at least two of its harmonics carry energy, so an out-of-band
+     * vibration that lands on one harmonic of a slow rate doesn't pass as reps.
+     */
+    private double fundamental() {
+        if (!isReady()) return -1;
+        double hz = binHz();
+        double lo = Math.max(1.0, MIN_CADENCE_HZ / hz);
+        double hi = Math.min(bins - 1, MAX_CADENCE_HZ / hz);
+        double best = -1;
+        double bestEnergy = 0.0;
+        for (double f = lo; f <= hi; f += CANDIDATE_STEP) {
+            double comb = combEnergy(f);
+            if (comb <= bestEnergy) continue;
+            int present = 0;
+            for (int h = 1; h <= HARMONICS && harmonicBin(f, h) <= bins; h++) {
+                if (groupEnergy(harmonicBin(f, h)) >= HARMONIC_PRESENT * comb) present++;
+            }
+            if (present >= 2) {
+                bestEnergy = comb;
+                best = f;
+            }
+        }
+        return best;
+    }
+
+    private double combEnergy(double f) {
+        double e = 0.0;
+        for (int h = 1; h <= HARMONICS && harmonicBin(f, h) <= bins; h++) {
+            e += groupEnergy(harmonicBin(f, h));
+        }
+        return e;
+    }
+
+    private int harmonicsOf(double f) {
+        int n = 0;
+        for (int h = 1; h <= HARMONICS && harmonicBin(f, h) <= bins; h++) n++;
+        return n;
+    }
+
+    private static int harmonicBin(double f, int h) {
+        return (int) Math.round(f * h);
+    }
+
+    // A harmonic rarely sits exactly on a bin, so take its neighbours too
+    private double groupEnergy(int k) {
+        return power(k - 1) + power(k) + power(k + 1);
+    }
+
+    private double binHz() {
+        return 1e9 / (meanDtNs * (double) windowSize);
+    }
+
+    private double power(int k) {
+        if (k < 1 || k > bins) return 0.0;
+        return re[k] * re[k] + im[k] * im[k];
+    }
+
+    @Override
+    public void reset() {
+        for (int k = 0; k <= bins; k++) {
+            re[k] = 0.0;
+            im[k] = 0.0;
+        }
+        Arrays.fill(window, 0f);
+        head = 0;
+        filled = 0;
+        sum = 0.0;
+        sumSq = 0.0;
+        meanDtNs = 0f;
+    }
+}
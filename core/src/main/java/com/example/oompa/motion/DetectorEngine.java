@@ -0,0 +1,61 @@
+package com.example.oompa.motion;
+
+import java.util.Arrays;
+
+/**
+ * Runs every registered {@link ExerciseDetector} over the shared {@link FeatureWindow}
+ * in one pass per sample. The features are computed once, upstream, so adding an
+ * exercise type only adds that detector's own state machine to the per-sample cost.
+ * Register detectors before samples start flowing; the array isn't touched afterwards.
+ */
+public class DetectorEngine implements MotionStage {
+
+    public interface OnRepListener {
+        // Called on the thread that feeds the pipeline
+        void onRep(int detectorId, long timestampNs);
+    }
+
+    private final FeatureWindow window;
+    private ExerciseDetector[] detectors = new ExerciseDetector[0];
+    private OnRepListener listener;
+
+    public DetectorEngine(FeatureWindow window) {
+        this.window = window;
+    }
+
+    /** Adds a detector and returns its id (the index reported to the listener). */
+    public int register(ExerciseDetector detector) {
+        int id = detectors.length;
+        detectors = Arrays.copyOf(detectors, id + 1);
+        detectors[id] = detector;
+        return id;
+    }
+
+    public void setListener(OnRepListener listener) {
+        this.listener = listener;
+    }
+
+    public int getDetectorCount() {
+        return detectors.length;
+    }
+
+    public ExerciseDetector getDetector(int id) {
+        return detectors[id];
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        for (int i = 0; i < detectors.length; i++) {
+            if (detectors[i].process(frame, window) && listener != null) {
+                listener.onRep(i, frame.timestampNs);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (ExerciseDetector detector : detectors) {
+            detector.reset();
+        }
+    }
+}
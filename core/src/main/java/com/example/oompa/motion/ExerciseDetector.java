@@ -0,0 +1,16 @@
+package com.example.oompa.motion;
+
+/**
+ * One kind of rep, recognised from the shared features. Detectors are registered
+ * with a {@link DetectorEngine} and see every sample after the {@link FeatureWindow}
+ * has filled in the frame. They only read the frame and the window, so each
+ * detector costs a few comparisons per sample, however many are registered.
+ * Same rules as {@link MotionStage}: no allocation, timestamps rather than sample counts.
+ */
+public interface ExerciseDetector {
+    /** Returns true when a rep completed on this sample. */
+    boolean process(MotionFrame frame, FeatureWindow window);
+
+    /** Drop any half-finished rep, e.g. after a long gap in the stream. */
+    void reset();
+}
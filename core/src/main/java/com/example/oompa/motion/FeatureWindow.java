@@ -0,0 +1,172 @@
+package com.example.oompa.motion;
+
+/**
+ * Computes the features every exercise detector needs, once per sample, and keeps
+ * a short history of them. Runs right after the gravity filter. It writes the
+ * feature fields of the {@link MotionFrame} (magnitude, vertical acceleration,
+ * variance, uprightness, confirmed peaks) so later stages and detectors only read
+ * them and never repeat the sqrt or the filtering.
+ *
+ * Peaks are found on the vertical acceleration with a fixed prominence: a max is
+ * confirmed once the signal has dropped that far below it (and a min the other
+ * way round), so each swing produces exactly one max and one min.
+ */
+public class FeatureWindow implements MotionStage {
+
+    private static final long VARIANCE_TAU_NS = 1_000_000_000L;
+    private static final float PEAK_PROMINENCE = 1f;   // m/s², below this it's hand tremor
+    private static final float GRAVITY_NORM_TOLERANCE = 0.01f;   // of |g|², i.e. ~0.5% error in 1/|g|
+
+    private final FloatRingBuffer magnitude;
+    private final FloatRingBuffer vertical;
+    private final FloatRingBuffer uprightness;
+
+    private boolean primed = false;
+    private float mean;
+    private float variance;
+
+    // |g| barely moves (only the direction does), so 1/|g| is cached and refreshed
+    // only when |g|² drifts past the tolerance; most samples skip that sqrt
+    private float gravityNormSq = 0f;
+    private float inverseGravityNorm = 0f;
+
+    // Peak finder: alternates between looking for a max and a min
+    private boolean seekingMax = true;
+    private float extreme;
+    private long extremeNs;
+    private float lastMax = 0f;
+    private long lastMaxNs = Long.MIN_VALUE;
+    private float lastMin = 0f;
+    private long lastMinNs = Long.MIN_VALUE;
+
+    public FeatureWindow(int historySize) {
+        this.magnitude = new FloatRingBuffer(historySize);
+        this.vertical = new FloatRingBuffer(historySize);
+        this.uprightness = new FloatRingBuffer(historySize);
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        final long now = frame.timestampNs;
+        // The one per-sample sqrt: detectors and cadence need |a| in m/s², not |a|²
+        final float m = (float) Math.sqrt(frame.filteredMagnitudeSq);
+        frame.filteredMagnitude = m;
+
+        // Project the linear part onto gravity; the accelerometer reports gravity pointing up
+        float gSq = frame.gx * frame.gx + frame.gy * frame.gy + frame.gz * frame.gz;
+        float v = 0f;
+        if (gSq > 1e-6f) {
+            if (Math.abs(gSq - gravityNormSq) > GRAVITY_NORM_TOLERANCE * gravityNormSq) {
+                gravityNormSq = gSq;
+                inverseGravityNorm = (float) (1.0 / Math.sqrt(gSq));
+            }
+            v = (frame.lx * frame.gx + frame.ly * frame.gy + frame.lz * frame.gz) * inverseGravityNorm;
+        }
+        frame.vertical = v;
+        // Orientation from the lightly filtered axes, so it follows a swinging leg
+        frame.uprightness = frame.filteredMagnitudeSq > 1e-6f ? frame.fy * frame.fy / frame.filteredMagnitudeSq : 0f;
+
+        if (!primed) {
+            mean = m;
+            variance = 0f;
+            extreme = v;
+            extremeNs = now;
+            primed = true;
+        } else {
+            float a = MotionFrame.alpha(frame.dtNs, VARIANCE_TAU_NS);
+            float d = m - mean;
+            mean += a * d;
+            variance = (1f - a) * (variance + a * d * d);
+            findPeak(frame, v, now);
+        }
+        frame.magnitudeVariance = variance;
+
+        magnitude.push(m);
+        vertical.push(v);
+        uprightness.push(frame.uprightness);
+    }
+
+    private void findPeak(MotionFrame frame, float v, long now) {
+        if (seekingMax) {
+            if (v > extreme) {
+                extreme = v;
+                extremeNs = now;
+            } else if (extreme - v >= PEAK_PROMINENCE) {
+                lastMax = extreme;
+                lastMaxNs = extremeNs;
+                emit(frame, 1, extreme, extremeNs);
+                seekingMax = false;
+                extreme = v;
+                extremeNs = now;
+            }
+        } else {
+            if (v < extreme) {
+                extreme = v;
+                extremeNs = now;
+            } else if (v - extreme >= PEAK_PROMINENCE) {
+                lastMin = extreme;
+                lastMinNs = extremeNs;
+                emit(frame, -1, extreme, extremeNs);
+                seekingMax = true;
+                extreme = v;
+                extremeNs = now;
+            }
+        }
+    }
+
+    private static void emit(MotionFrame frame, int sign, float value, long timestampNs) {
+        frame.peak = sign;
+        frame.peakValue = value;
+        frame.peakTimestampNs = timestampNs;
+    }
+
+    /** Filtered |a| in m/s², newest first. */
+    public FloatRingBuffer getMagnitude() {
+        return magnitude;
+    }
+
+    /** Vertical linear acceleration in m/s², newest first. */
+    public FloatRingBuffer getVertical() {
+        return vertical;
+    }
+
+    public FloatRingBuffer getUprightness() {
+        return uprightness;
+    }
+
+    public float getVariance() {
+        return variance;
+    }
+
+    /** Most recent confirmed max of the vertical acceleration. */
+    public float getLastMax() {
+        return lastMax;
+    }
+
+    /** Timestamp of {@link #getLastMax()}, or Long.MIN_VALUE if none yet. */
+    public long getLastMaxNs() {
+        return lastMaxNs;
+    }
+
+    public float getLastMin() {
+        return lastMin;
+    }
+
+    public long getLastMinNs() {
+        return lastMinNs;
+    }
+
+    @Override
+    public void reset() {
+        primed = false;
+        gravityNormSq = 0f;
+        seekingMax = true;
+        lastMax = 0f;
+        lastMaxNs = Long.MIN_VALUE;
+        lastMin = 0f;
+        lastMinNs = Long.MIN_VALUE;
+        magnitude.clear();
+        vertical.clear();
+        uprightness.clear();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.oompa.motion;
+
+/**
+ * Fixed-capacity ring buffer over a primitive float[].
+ * Once full, each push overwrites the oldest value. Never allocates after construction.
+ */
+public final class FloatRingBuffer {
+    private final float[] data;
+    private int head = 0;   // index of the next write
+    private int size = 0;
+
+    public FloatRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        data = new float[capacity];
+    }
+
+    public void push(float value) {
+        data[head] = value;
+        head = (head + 1) % data.length;
+        if (size < data.length) size++;
+    }
+
+    /** Value pushed {@code age} samples ago (0 = newest). */
+    public float get(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("age " + age + " outside [0, " + size + ")");
+        }
+        int index = head - 1 - age;
+        if (index < 0) index += data.length;
+        return data[index];
+    }
+
+    public float newest() {
+        return get(0);
+    }
+
+    /** Oldest value still held, i.e. the one the next push will overwrite once full. */
+    public float oldest() {
+        return get(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    public boolean isFull() {
+        return size == data.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
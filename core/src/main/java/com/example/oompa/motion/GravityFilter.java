@@ -0,0 +1,43 @@
+package com.example.oompa.motion;
+
+/**
+ * Tracks the slow gravity component with a long time-constant low-pass and
+ * subtracts it from the filtered signal. Writes {@code gx/gy/gz}, {@code lx/ly/lz}
+ * and {@code linearMagnitudeSq}.
+ */
+public class GravityFilter implements MotionStage {
+    private final long tauNs;
+    private boolean primed = false;
+    private float gx, gy, gz;
+
+    public GravityFilter(long tauNs) {
+        this.tauNs = tauNs;
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        if (!primed) {
+            gx = frame.fx;
+            gy = frame.fy;
+            gz = frame.fz;
+            primed = true;
+        } else {
+            float a = MotionFrame.alpha(frame.dtNs, tauNs);
+            gx += a * (frame.fx - gx);
+            gy += a * (frame.fy - gy);
+            gz += a * (frame.fz - gz);
+        }
+        frame.gx = gx;
+        frame.gy = gy;
+        frame.gz = gz;
+        frame.lx = frame.fx - gx;
+        frame.ly = frame.fy - gy;
+        frame.lz = frame.fz - gz;
+        frame.linearMagnitudeSq = frame.lx * frame.lx + frame.ly * frame.ly + frame.lz * frame.lz;
+    }
+
+    @Override
+    public void reset() {
+        primed = false;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.oompa.motion;
+
+/**
+ * Jump state machine (push-off peak, free-fall dip, landing peak) with thresholds
+ * that adapt to the wearer and the phone. The resting magnitude (gravity as this
+ * sensor reports it) and the noise floor are tracked online. Each threshold is the
+ * largest of a fixed minimum, a multiple of the noise floor and a fraction of the
+ * wearer's recent jump height.
+ * Candidates are checked against flight time and spacing from the previous landing,
+ * all on sensor timestamps. State is a handful of scalars, so memory is constant.
+ */
+public class JumpDetector implements ExerciseDetector {
+
+    private static final int ON_GROUND = 0;
+    private static final int PUSH_OFF = 1;
+    private static final int FREE_FALL = 2;
+
+    // Online estimates
+    private static final long BASELINE_TAU_NS = 2_000_000_000L;  // slow: over a set |a| averages to g
+    private static final long NOISE_TAU_NS = 1_000_000_000L;
+    private static final long WARMUP_NS = 500_000_000L;          // no detections until the baseline settles
+    private static final float ENVELOPE_ALPHA = 0.25f;           // per accepted jump
+
+    // Threshold shape (m/s² above/below the baseline)
+    private static final float MIN_RISE = 2f;
+    private static final float MIN_DIP = 2f;
+    private static final float NOISE_K = 3f;
+    private static final float ENVELOPE_FRACTION = 0.4f;
+
+    // Timing gates
+    private static final long PHASE_TIMEOUT_NS = 1_000_000_000L;  // give up on a half-finished jump after 1 s
+    private static final long MIN_FLIGHT_NS = 40_000_000L;        // push-off to landing, shorter is a jolt
+    private static final long MAX_FLIGHT_NS = 800_000_000L;       // longer is a slow swing (push-up, squat), not a jump
+    private static final long MIN_INTERVAL_NS = 250_000_000L;     // faster than 4 landings/s is shaking
+
+    private int state = ON_GROUND;
+    private long phaseStartNs = 0L;
+    private long pushOffNs = 0L;
+    private long lastLandingNs = Long.MIN_VALUE;   // any landing candidate, accepted or not
+
+    private boolean primed = false;
+    private long startNs = 0L;
+    private float baseline;
+    private float noise;
+    private float riseEnvelope = 0f;   // typical landing peak above the baseline
+    private float dipEnvelope = 0f;    // typical free-fall depth below the baseline
+    private float deepestDip;
+
+    private long acceptedJumps = 0L;
+    private long rejectedJumps = 0L;
+
+    @Override
+    public boolean process(MotionFrame frame, FeatureWindow window) {
+        final long now = frame.timestampNs;
+        final float m = frame.filteredMagnitude;
+
+        if (!primed) {
+            // First sample ever
+            baseline = m;
+            noise = 0f;
+            startNs = now;
+            primed = true;
+            return false;
+        }
+
+        baseline += MotionFrame.alpha(frame.dtNs, BASELINE_TAU_NS) * (m - baseline);
+        final float d = m - baseline;
+        final float rise = Math.max(MIN_RISE, Math.max(NOISE_K * noise, ENVELOPE_FRACTION * riseEnvelope));
+
+        if (state == ON_GROUND && Math.abs(d) < rise) {
+            // Only quiet samples feed the noise floor, so the reps themselves don't raise it
+            noise += MotionFrame.alpha(frame.dtNs, NOISE_TAU_NS) * (Math.abs(d) - noise);
+        }
+        if (now - startNs < WARMUP_NS) return false;
+
+        if (state != ON_GROUND && now - phaseStartNs > PHASE_TIMEOUT_NS) {
+            state = ON_GROUND;
+        }
+
+        switch (state) {
+            case ON_GROUND:
+                if (d > rise) {
+                    state = PUSH_OFF;
+                    phaseStartNs = now;
+                    pushOffNs = now;
+                }
+                break;
+
+            case PUSH_OFF: {
+                float dip = Math.max(MIN_DIP, Math.max(NOISE_K * noise, ENVELOPE_FRACTION * dipEnvelope));
+                if (-d > dip) {
+                    state = FREE_FALL;
+                    phaseStartNs = now;
+                    deepestDip = -d;
+                }
+                break;
+            }
+
+            case FREE_FALL:
+                if (-d > deepestDip) deepestDip = -d;
+                if (d > rise) {
+                    state = ON_GROUND;
+                    return onLanding(now, d);
+                }
+                break;
+        }
+        return false;
+    }
+
+    private boolean onLanding(long now, float height) {
+        long flight = now - pushOffNs;
+        boolean plausible = flight >= MIN_FLIGHT_NS && flight <= MAX_FLIGHT_NS;
+        // Spacing is measured from the last candidate, so sustained shaking keeps itself rejected
+        boolean spaced = lastLandingNs == Long.MIN_VALUE || now - lastLandingNs >= MIN_INTERVAL_NS;
+        lastLandingNs = now;
+        if (!plausible || !spaced) {
+            rejectedJumps++;
+            return false;
+        }
+
+        if (acceptedJumps == 0) {
+            riseEnvelope = height;
+            dipEnvelope = deepestDip;
+        } else {
+            riseEnvelope += ENVELOPE_ALPHA * (height - riseEnvelope);
+            dipEnvelope += ENVELOPE_ALPHA * (deepestDip - dipEnvelope);
+        }
+        acceptedJumps++;
+        return true;
+    }
+
+    /** Current resting magnitude estimate in m/s². */
+    public float getBaseline() {
+        return baseline;
+    }
+
+    /** Mean absolute deviation of quiet samples around the baseline, m/s². */
+    public float getNoiseFloor() {
+        return noise;
+    }
+
+    public long getAcceptedJumps() {
+        return acceptedJumps;
+    }
+
+    public long getRejectedJumps() {
+        return rejectedJumps;
+    }
+
+    @Override
+    public void reset() {
+        // Keeps the learned envelopes, baseline and noise floor; they describe the wearer
+        // and the phone, not the session, so a gap (or a rate switch) needs no new warm-up
+        state = ON_GROUND;
+        phaseStartNs = 0L;
+        pushOffNs = 0L;
+        lastLandingNs = Long.MIN_VALUE;
+    }
+}
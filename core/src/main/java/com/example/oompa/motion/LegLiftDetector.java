@@ -0,0 +1,86 @@
+package com.example.oompa.motion;
+
+/**
+ * Counts the thigh carrying the phone (front trouser pocket, long edge along the
+ * leg) going from vertical to roughly horizontal and back, from the shared
+ * uprightness feature. How long the thigh stays up tells the exercises apart: a
+ * squat holds it for a while, a high knee is a quick flick. So one class with two
+ * configurations covers both.
+ */
+public class LegLiftDetector implements ExerciseDetector {
+
+    // Hysteresis on uprightness (cos² of the thigh angle): above 0.65 is within ~36°
+    // of vertical, below 0.35 is more than ~54° off
+    private static final float UPRIGHT = 0.65f;
+    private static final float LIFTED = 0.35f;
+
+    private static final int UNKNOWN = 0;
+    private static final int STANDING = 1;
+    private static final int UP = 2;
+
+    private final long minLiftNs;
+    private final long maxLiftNs;
+    private final long minIntervalNs;
+
+    private int state = UNKNOWN;
+    private long liftedNs = 0L;
+    private long lastRepNs = Long.MIN_VALUE;
+
+    public LegLiftDetector(long minLiftNs, long maxLiftNs, long minIntervalNs) {
+        this.minLiftNs = minLiftNs;
+        this.maxLiftNs = maxLiftNs;
+        this.minIntervalNs = minIntervalNs;
+    }
+
+    /** Down, hold, up: the thigh stays near horizontal for 0.5–5 s. */
+    public static LegLiftDetector squats() {
+        return new LegLiftDetector(500_000_000L, 5_000_000_000L, 1_000_000_000L);
+    }
+
+    /** Quick lifts of the phone-side knee, well under half a second each. */
+    public static LegLiftDetector highKnees() {
+        return new LegLiftDetector(80_000_000L, 450_000_000L, 250_000_000L);
+    }
+
+    @Override
+    public boolean process(MotionFrame frame, FeatureWindow window) {
+        final long now = frame.timestampNs;
+        final float u = frame.uprightness;
+        switch (state) {
+            case UNKNOWN:
+                // Don't count a rep that started before we saw the leg straight
+                if (u >= UPRIGHT) state = STANDING;
+                break;
+
+            case STANDING:
+                if (u < LIFTED) {
+                    state = UP;
+                    liftedNs = now;
+                }
+                break;
+
+            case UP:
+                if (now - liftedNs > maxLiftNs) {
+                    // Sitting or lying down, not a rep; wait for the leg to straighten again
+                    state = UNKNOWN;
+                } else if (u >= UPRIGHT) {
+                    state = STANDING;
+                    long held = now - liftedNs;
+                    boolean spaced = lastRepNs == Long.MIN_VALUE || now - lastRepNs >= minIntervalNs;
+                    if (held >= minLiftNs && spaced) {
+                        lastRepNs = now;
+                        return true;
+                    }
+                }
+                break;
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        state = UNKNOWN;
+        liftedNs = 0L;
+        lastRepNs = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.oompa.motion;
+
+/**
+ * First-order low-pass on the raw axes. Writes {@code fx/fy/fz} and {@code filteredMagnitudeSq}.
+ * The coefficient is derived from the real sample interval, so the cutoff stays
+ * the same whatever rate the sensor actually delivers.
+ */
+public class LowPassFilter implements MotionStage {
+    private final long tauNs;
+    private boolean primed = false;
+    private float fx, fy, fz;
+
+    public LowPassFilter(long tauNs) {
+        this.tauNs = tauNs;
+    }
+
+    @Override
+    public void process(MotionFrame frame) {
+        if (!primed) {
+            fx = frame.x;
+            fy = frame.y;
+            fz = frame.z;
+            primed = true;
+        } else {
+            float a = MotionFrame.alpha(frame.dtNs, tauNs);
+            fx += a * (frame.x - fx);
+            fy += a * (frame.y - fy);
+            fz += a * (frame.z - fz);
+        }
+        frame.fx = fx;
+        frame.fy = fy;
+        frame.fz = fz;
+        frame.filteredMagnitudeSq = fx * fx + fy * fy + fz * fz;
+    }
+
+    @Override
+    public void reset() {
+        primed = false;
+    }
+}
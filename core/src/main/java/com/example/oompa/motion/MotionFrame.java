@@ -0,0 +1,56 @@
+package com.example.oompa.motion;
+
+/**
+ * Mutable per-sample scratch record passed through the {@link MotionStage}s.
+ * A single instance is owned by {@link MotionPipeline} and reused for every sample,
+ * so stages must not keep a reference to it.
+ */
+public final class MotionFrame {
+    // Input, straight from the sensor
+    public long timestampNs;
+    public long dtNs;           // time since the previous accepted sample, 0 for the first one
+    public float x, y, z;
+
+    // Written by the stages
+    public float fx, fy, fz;    // low-passed acceleration
+    public float gx, gy, gz;    // gravity estimate
+    public float lx, ly, lz;    // linear acceleration (filtered - gravity)
+
+    // Squared magnitudes, so nothing on the hot path needs a sqrt
+    public float magnitudeSq;
+    public float filteredMagnitudeSq;
+    public float linearMagnitudeSq;
+
+    // Shared features, written once per sample by the FeatureWindow
+    public float filteredMagnitude;
+    public float vertical;          // linear acceleration along gravity, + is up
+    public float magnitudeVariance; // running variance of filteredMagnitude, (m/s²)²
+    public float uprightness;       // share of the filtered vector on the device y axis, 0..1
+    public int peak;                // +1 / -1 when a max / min of vertical was confirmed this sample, else 0
+    public float peakValue;
+    public long peakTimestampNs;
+
+    void set(float x, float y, float z, long timestampNs, long dtNs) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.timestampNs = timestampNs;
+        this.dtNs = dtNs;
+        this.fx = x;
+        this.fy = y;
+        this.fz = z;
+        this.magnitudeSq = x * x + y * y + z * z;
+        this.filteredMagnitudeSq = magnitudeSq;
+        this.lx = 0f;
+        this.ly = 0f;
+        this.lz = 0f;
+        this.linearMagnitudeSq = 0f;
+        this.peak = 0;
+    }
+
+    /** Filter coefficient for a first-order low-pass with time constant {@code tauNs}. */
+    static float alpha(long dtNs, long tauNs) {
+        if (dtNs <= 0) return 1f;
+        return (float) dtNs / (float) (tauNs + dtNs);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.oompa.motion;
+
+/**
+ * Streaming accelerometer pipeline: each sample is written into one reused
+ * {@link MotionFrame}, run through the registered stages and appended to
+ * primitive history buffers. Nothing is allocated per sample.
+ */
+public class MotionPipeline {
+    // A gap this long (screen off, listener re-registered...) invalidates filter state
+    private static final long MAX_GAP_NS = 500_000_000L;
+
+    private final MotionStage[] stages;
+    private final MotionFrame frame = new MotionFrame();
+    private final FloatRingBuffer magnitudeHistory;   // filtered |a|², newest first
+    private final FloatRingBuffer intervalHistory;    // sample spacing in seconds
+
+    private long lastTimestampNs = Long.MIN_VALUE;
+    private long droppedSamples = 0L;
+
+    public MotionPipeline(int historySize, MotionStage... stages) {
+        this.stages = stages.clone();
+        this.magnitudeHistory = new FloatRingBuffer(historySize);
+        this.intervalHistory = new FloatRingBuffer(historySize);
+    }
+
+    public void onSample(float x, float y, float z, long timestampNs) {
+        long dt;
+        if (lastTimestampNs == Long.MIN_VALUE) {
+            dt = 0L;
+        } else {
+            dt = timestampNs - lastTimestampNs;
+            if (dt <= 0) {
+                // Duplicate or out-of-order sample
+                droppedSamples++;
+                return;
+            }
+            if (dt > MAX_GAP_NS) {
+                resetStages();
+                dt = 0L;
+            }
+        }
+        lastTimestampNs = timestampNs;
+
+        frame.set(x, y, z, timestampNs, dt);
+        for (MotionStage stage : stages) {
+            stage.process(frame);
+        }
+
+        magnitudeHistory.push(frame.filteredMagnitudeSq);
+        intervalHistory.push(dt * 1e-9f);
+    }
+
+    /** Bulk form of {@link #onSample}: x, y, z interleaved, oldest first. */
+    public void onSamples(float[] xyz, long[] timestampsNs, int count) {
+        for (int i = 0, j = 0; i < count; i++, j += 3) {
+            onSample(xyz[j], xyz[j + 1], xyz[j + 2], timestampsNs[i]);
+        }
+    }
+
+    /** Frame for the most recent sample; only valid until the next {@link #onSample}. */
+    public MotionFrame lastFrame() {
+        return frame;
+    }
+
+    public FloatRingBuffer getMagnitudeHistory() {
+        return magnitudeHistory;
+    }
+
+    public FloatRingBuffer getIntervalHistory() {
+        return intervalHistory;
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public void reset() {
+        resetStages();
+        magnitudeHistory.clear();
+        intervalHistory.clear();
+        lastTimestampNs = Long.MIN_VALUE;
+        droppedSamples = 0L;
+    }
+
+    private void resetStages() {
+        for (MotionStage stage : stages) {
+            stage.reset();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.oompa.motion;
+
+/**
+ * One step of the {@link MotionPipeline}. Stages run in registration order and
+ * read/write fields of the shared {@link MotionFrame}.
+ * Implementations must not allocate in {@link #process(MotionFrame)}, and any
+ * time dependence has to go through {@link MotionFrame#dtNs} / {@link MotionFrame#timestampNs}
+ * rather than sample counts, so the result doesn't change with the sensor rate.
+ */
+public interface MotionStage {
+    void process(MotionFrame frame);
+
+    /** Drop all filter/state history, e.g. after a long gap in the stream. */
+    void reset();
+}
@@ -0,0 +1,46 @@
+package com.example.oompa.motion;
+
+/**
+ * Push-ups from the shared vertical-acceleration peaks. The body (and the phone in
+ * a pocket) lies roughly flat, so uprightness is low. Each rep is a smooth down-up
+ * swing: a confirmed min followed by a confirmed max 0.3–1.5 s later,
+ * bigger than a shuffle but far smaller than a jump's landing, with the magnitude
+ * variance staying low throughout.
+ */
+public class PushUpDetector implements ExerciseDetector {
+
+    private static final float MAX_UPRIGHTNESS = 0.35f;   // phone's long edge near horizontal
+    private static final float MIN_SWING = 2f;            // m/s², min to max
+    private static final float MAX_SWING = 8f;            // above this it's an impact, not a push-up
+    private static final float MAX_VARIANCE = 5f;         // (m/s²)², push-ups are smooth; jumps and shaking aren't
+    private static final long MIN_HALF_REP_NS = 300_000_000L;    // faster is a push-off or a jolt
+    private static final long MAX_HALF_REP_NS = 1_500_000_000L;
+    private static final long MIN_INTERVAL_NS = 800_000_000L;
+
+    private long lastRepNs = Long.MIN_VALUE;
+
+    @Override
+    public boolean process(MotionFrame frame, FeatureWindow window) {
+        if (frame.peak <= 0 || frame.uprightness > MAX_UPRIGHTNESS) return false;
+        if (frame.magnitudeVariance > MAX_VARIANCE) return false;
+
+        final long maxNs = frame.peakTimestampNs;
+        // Peaks alternate, so the last min is the one right before this max
+        final long minNs = window.getLastMinNs();
+        if (minNs == Long.MIN_VALUE) return false;
+        long half = maxNs - minNs;
+        if (half < MIN_HALF_REP_NS || half > MAX_HALF_REP_NS) return false;
+
+        float swing = frame.peakValue - window.getLastMin();
+        if (swing < MIN_SWING || swing > MAX_SWING) return false;
+        if (lastRepNs != Long.MIN_VALUE && maxNs - lastRepNs < MIN_INTERVAL_NS) return false;
+
+        lastRepNs = maxNs;
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        lastRepNs = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.oompa.motion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Plays back a recorded accelerometer trace, synchronously, in batches of a fixed
+ * size. Traces are CSV lines of {@code timestampNs,x,y,z}; blank lines and lines
+ * starting with {@code #} are skipped.
+ */
+public class ReplaySensorSource implements SensorSource {
+    private final long[] timestamps;
+    private final float[] samples;     // x, y, z interleaved
+    private final int batchSize;
+
+    private volatile boolean running = false;
+
+    public ReplaySensorSource(long[] timestampsNs, float[] xyz, int batchSize) {
+        if (xyz.length != timestampsNs.length * 3 || batchSize < 1) {
+            throw new IllegalArgumentException("Trace arrays don't match or batchSize < 1");
+        }
+        this.timestamps = timestampsNs;
+        this.samples = xyz;
+        this.batchSize = batchSize;
+    }
+
+    public static ReplaySensorSource fromCsv(Reader reader, int batchSize) throws IOException {
+        long[] ts = new long[256];
+        float[] xyz = new float[256 * 3];
+        int n = 0;
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split(",");
+            if (parts.length != 4) throw new IOException("Bad trace line: " + line);
+            if (n == ts.length) {
+                ts = Arrays.copyOf(ts, n * 2);
+                xyz = Arrays.copyOf(xyz, n * 2 * 3);
+            }
+            ts[n] = Long.parseLong(parts[0].trim());
+            xyz[n * 3] = Float.parseFloat(parts[1].trim());
+            xyz[n * 3 + 1] = Float.parseFloat(parts[2].trim());
+            xyz[n * 3 + 2] = Float.parseFloat(parts[3].trim());
+            n++;
+        }
+        return new ReplaySensorSource(Arrays.copyOf(ts, n), Arrays.copyOf(xyz, n * 3), batchSize);
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    /** Replays the whole trace on the calling thread, then returns. */
+    @Override
+    public void start(Listener listener) {
+        running = true;
+        final float[] xyz = new float[batchSize * 3];
+        final long[] ts = new long[batchSize];
+        for (int from = 0; from < timestamps.length && running; from += batchSize) {
+            int count = Math.min(batchSize, timestamps.length - from);
+            System.arraycopy(timestamps, from, ts, 0, count);
+            System.arraycopy(samples, from * 3, xyz, 0, count * 3);
+            listener.onSamples(xyz, ts, count);
+        }
+        running = false;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isBatching() {
+        return batchSize > 1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.oompa.motion;
+
+/**
+ * Where accelerometer samples come from: the hardware sensor on a device, or a
+ * recorded trace in tests. Samples are delivered in batches so a source backed by
+ * the sensor FIFO can hand over a whole burst in one call.
+ */
+public interface SensorSource {
+
+    interface Listener {
+        /**
+         * {@code count} samples, oldest first. {@code xyz} holds x, y, z interleaved
+         * (3 * count floats, m/s²) and {@code timestampsNs} the matching timestamps.
+         * Both arrays are reused by the source, so copy anything you need to keep.
+         */
+        void onSamples(float[] xyz, long[] timestampsNs, int count);
+    }
+
+    void start(Listener listener);
+
+    /** Stops delivery; samples already buffered are flushed first. */
+    void stop();
+
+    /** True if samples are being batched (by the hardware FIFO or the source itself). */
+    boolean isBatching();
+}
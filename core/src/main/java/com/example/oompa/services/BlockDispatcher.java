@@ -0,0 +1,73 @@
+package com.example.oompa.services;
+
+import java.util.Arrays;
+
+/**
+ * Decides whether a block request should actually reach the screen.
+ * One app launch fires several window-state events, and the unlock-expiry path can
+ * ask to block the same app again within the same second; this coalesces those:
+ * <ul>
+ *     <li>a package already covered by the block screen is never re-blocked;</li>
+ *     <li>requests for the same package within {@code coalesceWindowMillis} of the last
+ *     dispatch for it are dropped.</li>
+ * </ul>
+ * Packages are the interned ids from {@link PackageTable}. Not thread-safe; use from the
+ * thread that delivers accessibility events.
+ */
+public final class BlockDispatcher {
+    private final long coalesceWindowMillis;
+
+    private long[] lastDispatch = new long[64];   // by package id, 0 = never
+    private int showingPackageId = PackageTable.NO_ID;
+    private long dispatched = 0L;
+    private long dropped = 0L;
+
+    public BlockDispatcher(long coalesceWindowMillis) {
+        this.coalesceWindowMillis = coalesceWindowMillis;
+    }
+
+    /**
+     * @param nowMillis monotonic time of the request (event uptimeMillis)
+     * @return true if the caller should show the block now
+     */
+    public boolean offer(int packageId, long nowMillis) {
+        if (packageId < 0) return false;
+        if (packageId == showingPackageId) {
+            dropped++;
+            return false;
+        }
+        if (packageId >= lastDispatch.length) {
+            lastDispatch = Arrays.copyOf(lastDispatch, Math.max(packageId + 1, lastDispatch.length * 2));
+        }
+        long last = lastDispatch[packageId];
+        if (last != 0L && nowMillis - last < coalesceWindowMillis) {
+            dropped++;
+            return false;
+        }
+        lastDispatch[packageId] = nowMillis;
+        dispatched++;
+        return true;
+    }
+
+    /** A block screen is now covering {@code packageId}. */
+    public void onBlockShown(int packageId) {
+        showingPackageId = packageId;
+    }
+
+    /**
+     * The block screen went away (user went home, unlock started...). Any later event for
+     * that package means it really is in front again, so let the next request through.
+     */
+    public void onBlockHidden() {
+        if (showingPackageId >= 0) lastDispatch[showingPackageId] = 0L;
+        showingPackageId = PackageTable.NO_ID;
+    }
+
+    public long getDispatchedCount() {
+        return dispatched;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.oompa.services;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable view of everything the block decision needs. A new instance is
+ * published by {@link BlockerStateEngine} for every change, so readers on any
+ * thread can hold on to one and call {@link #shouldBlock} without locking.
+ *
+ * Packages are interned in a {@link PackageTable}; lock and exempt state are
+ * BitSets over those ids, so a decision is one table probe plus two bit tests.
+ * The compiled {@link LockSchedule} was evaluated when the snapshot was published:
+ * it carries each schedule class's state at that moment and when the next change
+ * is due, so the hot path reads a flag and the caller re-evaluates only once
+ * {@link #getNextScheduleTransition()} has passed. Apps that used up their daily
+ * budget (see {@link UsageAccountant}) are one more BitSet, blocked whether or not
+ * they're in the locked set. Wildcard lock rules ({@link PackagePatterns}) are
+ * checked only for apps the locked set doesn't already cover, and also work for
+ * packages that haven't been interned yet.
+ * The BitSets and arrays are never modified after construction.
+ */
+public final class BlockerSnapshot {
+    public static final BlockerSnapshot EMPTY = new BlockerSnapshot(PackageTable.EMPTY,
+            new BitSet(), new BitSet(), Collections.<String>emptySet(), false, 0L,
+            LockSchedule.ALWAYS, new boolean[]{true}, Long.MAX_VALUE, new BitSet(),
+            PackagePatterns.EMPTY);
+
+    private final PackageTable table;
+    private final BitSet locked;
+    private final BitSet exempt;                // never blocked: ourselves, launchers, system UI
+    private final Set<String> lockedPackages;   // same as locked, for enumeration off the hot path
+    private final boolean unlockActive;
+    private final long unlockDeadline;      // wall millis, 0 = none
+    private final LockSchedule schedule;
+    private final boolean[] scheduleActive; // by schedule class, at the last evaluation
+    private final long nextScheduleTransition;
+    private final BitSet exhausted;             // out of daily budget
+    private final PackagePatterns lockPatterns; // wildcard rules, on top of the locked set
+
+    BlockerSnapshot(PackageTable table, BitSet locked, BitSet exempt, Set<String> lockedPackages,
+                    boolean unlockActive, long unlockDeadline,
+                    LockSchedule schedule, boolean[] scheduleActive, long nextScheduleTransition,
+                    BitSet exhausted, PackagePatterns lockPatterns) {
+        this.table = table;
+        this.locked = locked;
+        this.exempt = exempt;
+        this.lockedPackages = lockedPackages;
+        this.unlockActive = unlockActive;
+        this.unlockDeadline = unlockDeadline;
+        this.schedule = schedule;
+        this.scheduleActive = scheduleActive;
+        this.nextScheduleTransition = nextScheduleTransition;
+        this.exhausted = exhausted;
+        this.lockPatterns = lockPatterns;
+    }
+
+    /**
+     * Block if no exercise unlock is running and the app is either locked with its
+     * schedule on, or out of budget for today.
+     */
+    public boolean shouldBlock(CharSequence packageName) {
+        return shouldBlock(table.indexOf(packageName), packageName);
+    }
+
+    public boolean shouldBlock(int packageId) {
+        return !unlockActive && packageId >= 0 && !exempt.get(packageId)
+                && (exhausted.get(packageId)
+                    || isLocked(packageId) && scheduleActive[schedule.classOf(packageId)]);
+    }
+
+    /**
+     * Decision for an event: {@code packageId} is {@code idOf(packageName)}, so a known
+     * package costs nothing extra, and one we hold no id for can still hit a wildcard
+     * rule (under the schedule for all apps).
+     */
+    public boolean shouldBlock(int packageId, CharSequence packageName) {
+        if (packageId >= 0) return shouldBlock(packageId);
+        return !unlockActive && scheduleActive[0] && lockPatterns.matches(packageName);
+    }
+
+    private boolean isLocked(int packageId) {
+        return locked.get(packageId) || lockPatterns.matches(table.nameOf(packageId));
+    }
+
+    /** Interned id, or {@link PackageTable#NO_ID} for a package we hold no state for. */
+    public int idOf(CharSequence packageName) {
+        return table.indexOf(packageName);
+    }
+
+    public String packageName(int packageId) {
+        return table.nameOf(packageId);
+    }
+
+    public boolean isExempt(int packageId) {
+        return packageId >= 0 && exempt.get(packageId);
+    }
+
+    /** In the locked set or covered by a wildcard rule. */
+    public boolean isLockedPackage(CharSequence packageName) {
+        int id = table.indexOf(packageName);
+        return id >= 0 && locked.get(id) || lockPatterns.matches(packageName);
+    }
+
+    public boolean matchesLockPattern(CharSequence packageName) {
+        return lockPatterns.matches(packageName);
+    }
+
+    public PackagePatterns getLockPatterns() {
+        return lockPatterns;
+    }
+
+    /** Unmodifiable. */
+    public Set<String> getLockedPackages() {
+        return lockedPackages;
+    }
+
+    public int getLockedCount() {
+        return lockedPackages.size();
+    }
+
+    public boolean isUnlockActive() {
+        return unlockActive;
+    }
+
+    public long getUnlockDeadline() {
+        return unlockDeadline;
+    }
+
+    public LockSchedule getSchedule() {
+        return schedule;
+    }
+
+    /** Whether {@code packageName}'s schedule has the lock on at {@code timeMillis}, O(log windows). */
+    public boolean isScheduledLocked(CharSequence packageName, long timeMillis) {
+        return schedule.isLocked(table.indexOf(packageName), timeMillis);
+    }
+
+    /** Schedule classes with the lock on at the last evaluation. */
+    public int getActiveScheduleCount() {
+        int n = 0;
+        for (boolean active : scheduleActive) if (active) n++;
+        return n;
+    }
+
+    /** Wall millis when the schedule state next changes; re-evaluate once it has passed. */
+    public long getNextScheduleTransition() {
+        return nextScheduleTransition;
+    }
+
+    public boolean isOverBudget(int packageId) {
+        return packageId >= 0 && exhausted.get(packageId);
+    }
+
+    public int getOverBudgetCount() {
+        return exhausted.cardinality();
+    }
+
+    // --- Copy-on-write helpers for the engine ---
+    PackageTable table() {
+        return table;
+    }
+
+    BitSet lockedIds() {
+        return locked;
+    }
+
+    BitSet exemptIds() {
+        return exempt;
+    }
+
+    BitSet exhaustedIds() {
+        return exhausted;
+    }
+
+    BlockerSnapshot withLocked(PackageTable table, BitSet locked, Set<String> lockedPackages) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                unlockActive, unlockDeadline, schedule, scheduleActive, nextScheduleTransition, exhausted,
+                lockPatterns);
+    }
+
+    BlockerSnapshot withExempt(PackageTable table, BitSet exempt) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                unlockActive, unlockDeadline, schedule, scheduleActive, nextScheduleTransition, exhausted,
+                lockPatterns);
+    }
+
+    BlockerSnapshot withUnlock(boolean active, long deadline) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                active, deadline, schedule, scheduleActive, nextScheduleTransition, exhausted,
+                lockPatterns);
+    }
+
+    BlockerSnapshot withSchedule(PackageTable table, LockSchedule schedule, boolean[] active, long next) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                unlockActive, unlockDeadline, schedule, active, next, exhausted, lockPatterns);
+    }
+
+    BlockerSnapshot withExhausted(PackageTable table, BitSet exhausted) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                unlockActive, unlockDeadline, schedule, scheduleActive, nextScheduleTransition, exhausted,
+                lockPatterns);
+    }
+
+    BlockerSnapshot withLockPatterns(PackagePatterns lockPatterns) {
+        return new BlockerSnapshot(table, locked, exempt, lockedPackages,
+                unlockActive, unlockDeadline, schedule, scheduleActive, nextScheduleTransition, exhausted,
+                lockPatterns);
+    }
+
+    boolean[] scheduleState() {
+        return scheduleActive;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.oompa.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Single writer for the blocker state. Every mutation builds a new {@link BlockerSnapshot}
+ * and publishes it through a volatile field; writers are serialised, readers never lock.
+ * Shared process-wide so activities, the dialog and the service all see the same state.
+ */
+public final class BlockerStateEngine {
+    private static final BlockerStateEngine instance = new BlockerStateEngine();
+
+    private static final long SCHEDULE_SLACK_MS = 24L * 60 * 60 * 1000;
+    private static final long SCHEDULE_HORIZON_MS = 8 * SCHEDULE_SLACK_MS;   // recompiled a day before it runs out
+
+    private volatile BlockerSnapshot snapshot = BlockerSnapshot.EMPTY;
+    private final Object writeLock = new Object();
+    private List<ScheduleRule> scheduleRules = Collections.emptyList();   // guarded by writeLock
+    private TimeZone scheduleTimeZone = TimeZone.getDefault();
+
+    private BlockerStateEngine() { }
+
+    public static BlockerStateEngine getInstance() {
+        return instance;
+    }
+
+    /** Current state; safe from any thread, never null. */
+    public BlockerSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // --- Writers ---
+    public BlockerSnapshot setLockedPackages(Collection<String> packages) {
+        synchronized (writeLock) {
+            return publish(withLocked(snapshot, new HashSet<>(packages)));
+        }
+    }
+
+    /** Apply a batch of additions and removals as one new snapshot. */
+    public BlockerSnapshot updateLockedPackages(Collection<String> added, Collection<String> removed) {
+        synchronized (writeLock) {
+            Set<String> next = new HashSet<>(snapshot.getLockedPackages());
+            next.removeAll(removed);
+            next.addAll(added);
+            return publish(withLocked(snapshot, next));
+        }
+    }
+
+    /** Packages that are never blocked, whatever the locked set says. */
+    public BlockerSnapshot setExemptPackages(Collection<String> packages) {
+        synchronized (writeLock) {
+            PackageTable table = snapshot.table().internAll(packages);
+            return publish(snapshot.withExempt(table, idsOf(table, packages)));
+        }
+    }
+
+    public BlockerSnapshot setUnlock(boolean active, long deadline) {
+        synchronized (writeLock) {
+            return publish(snapshot.withUnlock(active, deadline));
+        }
+    }
+
+    /**
+     * Replace the wildcard lock rules. The trie is compiled before taking the write
+     * lock and goes live in one snapshot, so readers see the old rules or the new ones.
+     * @throws IllegalArgumentException for a malformed rule; the current rules stay
+     */
+    public BlockerSnapshot setLockPatterns(Collection<String> patterns) {
+        PackagePatterns compiled = PackagePatterns.compile(patterns);
+        synchronized (writeLock) {
+            return publish(snapshot.withLockPatterns(compiled));
+        }
+    }
+
+    /** Make sure {@code packages} have ids (e.g. budgeted apps nobody has locked). */
+    public BlockerSnapshot internPackages(Collection<String> packages) {
+        synchronized (writeLock) {
+            PackageTable table = snapshot.table().internAll(packages);
+            if (table == snapshot.table()) return snapshot;
+            return publish(snapshot.withExhausted(table, snapshot.exhaustedIds()));
+        }
+    }
+
+    /** Ids out of daily budget, from {@link UsageAccountant#exhaustedIds()}. */
+    public BlockerSnapshot setExhausted(BitSet ids) {
+        synchronized (writeLock) {
+            return publish(snapshot.withExhausted(snapshot.table(), ids));
+        }
+    }
+
+    /**
+     * Replace the lock schedule. The rules are compiled over a horizon around
+     * {@code now} and recompiled by {@link #evaluateSchedule} as it runs out.
+     */
+    public BlockerSnapshot setScheduleRules(List<ScheduleRule> rules, TimeZone timeZone, long now) {
+        synchronized (writeLock) {
+            scheduleRules = new ArrayList<>(rules);
+            scheduleTimeZone = timeZone;
+            return publish(compileSchedule(snapshot, now));
+        }
+    }
+
+    /**
+     * Bring the schedule state up to {@code now}: which classes are locked and when
+     * that next changes. Publishes only if something changed; call it once
+     * {@link BlockerSnapshot#getNextScheduleTransition()} has passed, or after the
+     * clock or time zone changed.
+     */
+    public BlockerSnapshot evaluateSchedule(long now) {
+        synchronized (writeLock) {
+            BlockerSnapshot current = snapshot;
+            LockSchedule schedule = current.getSchedule();
+            if (now < schedule.getValidFrom() || now >= schedule.getValidUntil() - SCHEDULE_SLACK_MS) {
+                return publish(compileSchedule(current, now));
+            }
+            boolean[] active = schedule.stateAt(now);
+            long next = schedule.nextTransition(now);
+            if (next == current.getNextScheduleTransition() && Arrays.equals(active, current.scheduleState())) {
+                return current;
+            }
+            return publish(current.withSchedule(current.table(), schedule, active, next));
+        }
+    }
+
+    // Callers hold writeLock
+    private BlockerSnapshot compileSchedule(BlockerSnapshot current, long now) {
+        Set<String> named = new HashSet<>();
+        for (ScheduleRule rule : scheduleRules) named.addAll(rule.getPackages());
+        PackageTable table = current.table().internAll(named);
+        LockSchedule schedule = LockSchedule.compile(scheduleRules, table, scheduleTimeZone,
+                now - SCHEDULE_SLACK_MS, now + SCHEDULE_HORIZON_MS);
+        return current.withSchedule(table, schedule, schedule.stateAt(now), schedule.nextTransition(now));
+    }
+
+    private static BlockerSnapshot withLocked(BlockerSnapshot current, Set<String> packages) {
+        PackageTable table = current.table().internAll(packages);
+        return current.withLocked(table, idsOf(table, packages), Collections.unmodifiableSet(packages));
+    }
+
+    private static BitSet idsOf(PackageTable table, Collection<String> packages) {
+        BitSet ids = new BitSet(table.size());
+        for (String name : packages) {
+            ids.set(table.indexOf(name));
+        }
+        return ids;
+    }
+
+    private BlockerSnapshot publish(BlockerSnapshot next) {
+        snapshot = next;
+        return next;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.oompa.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory owner of the earned-credit balance and the unlock deadline.
+ * Reads and writes only touch atomics; changes are written back to the {@link Store}
+ * in coalesced batches (after {@code maxPendingChanges} changes or {@code maxDelayMillis},
+ * whichever comes first, plus explicit {@link #flush()} calls on lifecycle events).
+ * A crash therefore loses at most one flush window of credits.
+ * Unlock deadline changes are rare and matter more, so they are written through immediately.
+ */
+public class CreditLedger {
+
+    public interface Store {
+        long loadEarnedCredits();
+        long loadUnlockDeadline();   // wall clock millis, 0 = no unlock
+        void writeCreditState(long earnedCredits, long unlockDeadline);
+    }
+
+    public interface DeadlineListener {
+        // wallMillis is 0 when the unlock was cleared
+        void onUnlockDeadlineChanged(long wallMillis);
+    }
+
+    public interface FlushScheduler {
+        // Ask for flush() to be called in delayMillis
+        void scheduleFlush(long delayMillis);
+    }
+
+    private final Store store;
+    private final int maxPendingChanges;
+    private final long maxDelayMillis;
+    private final FlushScheduler scheduler;
+
+    private final AtomicLong earnedCredits;
+    private final AtomicLong unlockDeadline;
+    private volatile DeadlineListener deadlineListener;
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private long flushedVersion = 0L;   // guarded by this
+    private int flushCount = 0;         // guarded by this
+
+    public CreditLedger(Store store, int maxPendingChanges, long maxDelayMillis, FlushScheduler scheduler) {
+        this.store = store;
+        this.maxPendingChanges = maxPendingChanges;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = scheduler;
+        this.earnedCredits = new AtomicLong(store.loadEarnedCredits());
+        this.unlockDeadline = new AtomicLong(store.loadUnlockDeadline());
+    }
+
+    // --- Credits ---
+    public void addCredits(long millis) {
+        earnedCredits.addAndGet(millis);
+        changed(false);
+    }
+
+    public long getEarnedCredits() {
+        return earnedCredits.get();
+    }
+
+    /** Atomically take the whole balance, leaving 0 behind. */
+    public long takeCredits() {
+        long taken = earnedCredits.getAndSet(0L);
+        if (taken != 0L) changed(false);
+        return taken;
+    }
+
+    public void clearCredits() {
+        earnedCredits.set(0L);
+        changed(false);
+    }
+
+    // --- Unlock deadline ---
+    public void setUnlockDeadline(long wallMillis) {
+        unlockDeadline.set(wallMillis);
+        changed(true);
+        notifyDeadline(wallMillis);
+    }
+
+    public void clearUnlockDeadline() {
+        if (unlockDeadline.getAndSet(0L) != 0L) {
+            changed(true);
+            notifyDeadline(0L);
+        }
+    }
+
+    public void setDeadlineListener(DeadlineListener listener) {
+        deadlineListener = listener;
+    }
+
+    private void notifyDeadline(long wallMillis) {
+        DeadlineListener l = deadlineListener;
+        if (l != null) l.onUnlockDeadlineChanged(wallMillis);
+    }
+
+    public long getUnlockDeadline() {
+        return unlockDeadline.get();
+    }
+
+    public long getUnlockRemaining(long nowWallMillis) {
+        long deadline = unlockDeadline.get();
+        return deadline == 0L ? 0L : Math.max(deadline - nowWallMillis, 0L);
+    }
+
+    // --- Write-behind ---
+    private void changed(boolean urgent) {
+        version.incrementAndGet();
+        int pending = pendingChanges.incrementAndGet();
+        if (urgent || pending >= maxPendingChanges) {
+            flush();
+        } else if (pending == 1) {
+            // First change of a new window
+            scheduler.scheduleFlush(maxDelayMillis);
+        }
+    }
+
+    /** Write the current state if anything changed since the last write. Returns true if it wrote. */
+    public synchronized boolean flush() {
+        long v = version.get();
+        if (v == flushedVersion) return false;
+        pendingChanges.set(0);
+        store.writeCreditState(earnedCredits.get(), unlockDeadline.get());
+        flushedVersion = v;
+        flushCount++;
+        if (version.get() != v) {
+            // Something changed while we were writing and may have missed its schedule
+            scheduler.scheduleFlush(maxDelayMillis);
+        }
+        return true;
+    }
+
+    public synchronized int getFlushCount() {
+        return flushCount;
+    }
+}
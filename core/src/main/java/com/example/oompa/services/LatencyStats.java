@@ -0,0 +1,50 @@
+package com.example.oompa.services;
+
+import java.util.Locale;
+
+/**
+ * Running min/mean/max of a latency in milliseconds, e.g. time from an accessibility
+ * event to the block screen being drawn. Not thread-safe; record from one thread.
+ */
+public final class LatencyStats {
+    private long count = 0L;
+    private long totalMillis = 0L;
+    private long minMillis = Long.MAX_VALUE;
+    private long maxMillis = 0L;
+    private long lastMillis = 0L;
+
+    public void record(long millis) {
+        count++;
+        totalMillis += millis;
+        lastMillis = millis;
+        if (millis < minMillis) minMillis = millis;
+        if (millis > maxMillis) maxMillis = millis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    public long getMinMillis() {
+        return count == 0 ? 0L : minMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getMeanMillis() {
+        return count == 0 ? 0.0 : (double) totalMillis / count;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + count + " last=" + lastMillis + "ms min=" + getMinMillis()
+                + "ms mean=" + String.format(Locale.US, "%.1f", getMeanMillis())
+                + "ms max=" + maxMillis + "ms";
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.oompa.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * {@link ScheduleRule}s compiled into sorted lock intervals over a horizon of wall
+ * time. Packages governed by the same set of rules share a schedule class; each
+ * class is one sorted long[] of edges (lock start, lock end, start, end...), so
+ * "is this package locked at t" is a binary search, and the next change of any
+ * class is found the same way. Immutable; recompile when the rules change or the
+ * horizon runs out ({@link #getValidUntil()}).
+ *
+ * Class 0 is every package no rule names specifically. A class with no lock rule
+ * is locked around the clock (minus its exceptions), so with no rules at all the
+ * lock is always on, which is how the app behaved before schedules existed.
+ */
+public final class LockSchedule {
+
+    public static final LockSchedule ALWAYS = new LockSchedule(
+            new long[][]{{Long.MIN_VALUE, Long.MAX_VALUE}}, new int[0], Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final long[][] edges;       // per class, sorted; even index = lock starts
+    private final int[] classOfPackage; // by PackageTable id; ids past the end are class 0
+    private final long validFrom;
+    private final long validUntil;
+
+    private LockSchedule(long[][] edges, int[] classOfPackage, long validFrom, long validUntil) {
+        this.edges = edges;
+        this.classOfPackage = classOfPackage;
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * Compile {@code rules} for wall times in [fromMs, toMs). Every package a rule
+     * names must already be interned in {@code table}.
+     */
+    public static LockSchedule compile(List<ScheduleRule> rules, PackageTable table, TimeZone timeZone,
+                                       long fromMs, long toMs) {
+        if (rules.isEmpty()) return ALWAYS;
+
+        // Which rules govern each named package: the catch-all ones plus those naming it
+        BitSet general = new BitSet();
+        Map<Integer, BitSet> byPackage = new HashMap<>();
+        for (int r = 0; r < rules.size(); r++) {
+            ScheduleRule rule = rules.get(r);
+            if (rule.appliesToAll()) {
+                general.set(r);
+                continue;
+            }
+            for (String name : rule.getPackages()) {
+                int id = table.indexOf(name);
+                if (id < 0) continue;
+                BitSet set = byPackage.get(id);
+                if (set == null) byPackage.put(id, set = new BitSet());
+                set.set(r);
+            }
+        }
+
+        // Packages with identical rule sets share a class (and its edge array)
+        Map<BitSet, Integer> classes = new HashMap<>();
+        List<BitSet> classRules = new ArrayList<>();
+        classes.put(general, 0);
+        classRules.add(general);
+        int[] classOfPackage = new int[table.size()];
+        for (Map.Entry<Integer, BitSet> entry : byPackage.entrySet()) {
+            BitSet set = entry.getValue();
+            set.or(general);
+            Integer c = classes.get(set);
+            if (c == null) {
+                c = classRules.size();
+                classes.put(set, c);
+                classRules.add(set);
+            }
+            classOfPackage[entry.getKey()] = c;
+        }
+
+        long[][] edges = new long[classRules.size()][];
+        for (int c = 0; c < edges.length; c++) {
+            edges[c] = compileClass(rules, classRules.get(c), timeZone, fromMs, toMs);
+        }
+        return new LockSchedule(edges, classOfPackage, fromMs, toMs);
+    }
+
+    private static long[] compileClass(List<ScheduleRule> rules, BitSet applying, TimeZone timeZone,
+                                       long fromMs, long toMs) {
+        List<long[]> locks = new ArrayList<>();
+        List<long[]> exceptions = new ArrayList<>();
+        boolean anyLockRule = false;
+        for (int r = applying.nextSetBit(0); r >= 0; r = applying.nextSetBit(r + 1)) {
+            ScheduleRule rule = rules.get(r);
+            anyLockRule |= rule.isLock();
+            expand(rule, timeZone, fromMs, toMs, rule.isLock() ? locks : exceptions);
+        }
+        if (!anyLockRule) locks.add(new long[]{fromMs, toMs});
+        return subtract(merge(locks), merge(exceptions));
+    }
+
+    // Concrete [start, end) occurrences of one rule inside the horizon
+    private static void expand(ScheduleRule rule, TimeZone timeZone, long fromMs, long toMs, List<long[]> out) {
+        long lo = Math.max(fromMs, rule.getFromMs() != 0 ? rule.getFromMs() : Long.MIN_VALUE);
+        long hi = Math.min(toMs, rule.getUntilMs() != 0 ? rule.getUntilMs() : Long.MAX_VALUE);
+        if (lo >= hi) return;
+
+        // Start a day early so a window running past midnight into the horizon is caught
+        Calendar day = Calendar.getInstance(timeZone);
+        day.setTimeInMillis(lo - DAY_MS);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        while (day.getTimeInMillis() < hi) {
+            // Calendar.MONDAY == 2 ... SUNDAY == 1; rule bits are Monday first
+            int bit = 1 << ((day.get(Calendar.DAY_OF_WEEK) + 5) % 7);
+            if ((rule.getDays() & bit) != 0) {
+                long start = atMinute(day, rule.getStartMinute(), 0);
+                long end = rule.getEndMinute() > rule.getStartMinute()
+                        ? atMinute(day, rule.getEndMinute(), 0)
+                        : atMinute(day, rule.getEndMinute(), 1);
+                start = Math.max(start, lo);
+                end = Math.min(end, hi);
+                if (start < end) out.add(new long[]{start, end});
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    // Wall time of a local minute of day, going through the calendar so DST days come out right
+    private static long atMinute(Calendar day, int minute, int dayOffset) {
+        Calendar c = (Calendar) day.clone();
+        c.add(Calendar.DAY_OF_MONTH, dayOffset + minute / ScheduleRule.MINUTES_PER_DAY);
+        c.set(Calendar.HOUR_OF_DAY, (minute % ScheduleRule.MINUTES_PER_DAY) / 60);
+        c.set(Calendar.MINUTE, minute % 60);
+        return c.getTimeInMillis();
+    }
+
+    // Sorted, disjoint union as a flat edge array
+    private static long[] merge(List<long[]> intervals) {
+        intervals.sort((a, b) -> Long.compare(a[0], b[0]));
+        long[] out = new long[intervals.size() * 2];
+        int n = 0;
+        for (long[] iv : intervals) {
+            if (n > 0 && iv[0] <= out[n - 1]) {
+                out[n - 1] = Math.max(out[n - 1], iv[1]);
+            } else {
+                out[n++] = iv[0];
+                out[n++] = iv[1];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // a minus b, both sorted disjoint edge arrays
+    private static long[] subtract(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i += 2) {
+            long start = a[i];
+            long end = a[i + 1];
+            while (j < b.length && b[j + 1] <= start) j += 2;
+            for (int k = j; k < b.length && b[k] < end; k += 2) {
+                if (b[k] > start) {
+                    out[n++] = start;
+                    out[n++] = b[k];
+                }
+                start = Math.max(start, b[k + 1]);
+            }
+            if (start < end) {
+                out[n++] = start;
+                out[n++] = end;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // --- Queries ---
+
+    public int classCount() {
+        return edges.length;
+    }
+
+    public int classOf(int packageId) {
+        return packageId >= 0 && packageId < classOfPackage.length ? classOfPackage[packageId] : 0;
+    }
+
+    /** O(log n) in the number of windows of that package's class. */
+    public boolean isLocked(int packageId, long timeMs) {
+        return isClassLocked(classOf(packageId), timeMs);
+    }
+
+    public boolean isClassLocked(int scheduleClass, long timeMs) {
+        // Locked when an odd number of edges are at or before t
+        return (edgesAtOrBefore(edges[scheduleClass], timeMs) & 1) == 1;
+    }
+
+    /** Lock state of every class at {@code timeMs}, indexed by class. */
+    public boolean[] stateAt(long timeMs) {
+        boolean[] state = new boolean[edges.length];
+        for (int c = 0; c < edges.length; c++) {
+            state[c] = isClassLocked(c, timeMs);
+        }
+        return state;
+    }
+
+    /**
+     * First wall time after {@code timeMs} at which any class changes state, or
+     * {@link #getValidUntil()} if nothing changes before the horizon ends.
+     */
+    public long nextTransition(long timeMs) {
+        long next = validUntil;
+        for (long[] e : edges) {
+            int i = edgesAtOrBefore(e, timeMs);
+            if (i < e.length && e[i] < next) next = e[i];
+        }
+        return next;
+    }
+
+    public long getValidFrom() {
+        return validFrom;
+    }
+
+    /** Past this the schedule has to be recompiled; Long.MAX_VALUE for {@link #ALWAYS}. */
+    public long getValidUntil() {
+        return validUntil;
+    }
+
+    /** Packages (by id) with a schedule of their own, for logging. */
+    public int namedPackageCount() {
+        int n = 0;
+        for (int c : classOfPackage) if (c != 0) n++;
+        return n;
+    }
+
+    private static int edgesAtOrBefore(long[] e, long timeMs) {
+        int lo = 0, hi = e.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (e[mid] <= timeMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.oompa.services;
+
+import com.example.oompa.App;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes one locked-app record as a short string: {@code selected|icon|name}.
+ * The package name is the record key, so it isn't repeated in the value.
+ * The name goes last so it may itself contain the separator.
+ */
+public final class LockedAppCodec {
+    private static final char SEP = '|';
+    private static final Type LEGACY_LIST_TYPE = new TypeToken<ArrayList<App>>(){}.getType();
+
+    private LockedAppCodec() { }
+
+    public static String encode(App app) {
+        String name = app.getAppName() != null ? app.getAppName() : "";
+        return new StringBuilder(name.length() + 16)
+                .append(app.getSelected() ? '1' : '0')
+                .append(SEP)
+                .append(app.getAppIcon())
+                .append(SEP)
+                .append(name)
+                .toString();
+    }
+
+    /** Returns null for a malformed record. */
+    public static App decode(String packageName, String value) {
+        if (value == null || value.length() < 4 || value.charAt(1) != SEP) return null;
+        int iconEnd = value.indexOf(SEP, 2);
+        if (iconEnd < 0) return null;
+        int icon;
+        try {
+            icon = Integer.parseInt(value.substring(2, iconEnd));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new App(packageName, value.substring(iconEnd + 1), isSelected(value), icon);
+    }
+
+    /**
+     * Parses the old whole-list Gson blob (the {@code locked_apps} pref key).
+     * Returns an empty list for null input.
+     */
+    public static List<App> decodeLegacyJson(String json) throws JsonParseException {
+        if (json == null) return new ArrayList<>();
+        List<App> apps = new Gson().fromJson(json, LEGACY_LIST_TYPE);
+        return apps != null ? apps : new ArrayList<>();
+    }
+
+    /** Reads just the selected flag without decoding the rest. */
+    public static boolean isSelected(String value) {
+        return value != null && !value.isEmpty() && value.charAt(0) == '1';
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.oompa.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Lock rules that cover more than one package name: {@code com.facebook.*} or
+ * {@code com.google.android.apps.youtube*} match every name starting with the part
+ * before the star; a rule without a star matches one name exactly. A star is only
+ * allowed at the end.
+ *
+ * The rules are compiled into a character trie flattened into arrays (each node's
+ * outgoing edges sorted by char), so {@link #matches} walks the name once, never
+ * allocates, and costs the same with three rules or three hundred. Immutable;
+ * {@link BlockerStateEngine} swaps in a new instance when the rules change.
+ */
+public final class PackagePatterns {
+    public static final PackagePatterns EMPTY = compile(Collections.<String>emptyList());
+
+    private static final byte ACCEPT_EXACT = 1;
+    private static final byte ACCEPT_PREFIX = 2;
+
+    private final List<String> patterns;   // as given, for persistence and display
+    private final int[] firstEdge;         // node -> first edge; node + 1 -> end
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+    private final byte[] accept;           // by node
+
+    private PackagePatterns(List<String> patterns, int[] firstEdge, char[] edgeChar, int[] edgeTarget,
+                            byte[] accept) {
+        this.patterns = patterns;
+        this.firstEdge = firstEdge;
+        this.edgeChar = edgeChar;
+        this.edgeTarget = edgeTarget;
+        this.accept = accept;
+    }
+
+    /** @throws IllegalArgumentException for a star anywhere but the end */
+    public static PackagePatterns compile(Collection<String> rules) {
+        // Build as nested maps, then flatten; rules change rarely and there are few of them
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Byte> accepts = new ArrayList<>();
+        children.add(new TreeMap<Character, Integer>());
+        accepts.add((byte) 0);
+
+        TreeSet<String> unique = new TreeSet<>(rules);
+        for (String rule : unique) {
+            int star = rule.indexOf('*');
+            if (star >= 0 && star != rule.length() - 1) {
+                throw new IllegalArgumentException("'*' only allowed at the end: " + rule);
+            }
+            String literal = star >= 0 ? rule.substring(0, star) : rule;
+            int node = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                Integer next = children.get(node).get(literal.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<Character, Integer>());
+                    accepts.add((byte) 0);
+                    children.get(node).put(literal.charAt(i), next);
+                }
+                node = next;
+            }
+            accepts.set(node, (byte) (accepts.get(node) | (star >= 0 ? ACCEPT_PREFIX : ACCEPT_EXACT)));
+        }
+
+        int nodes = children.size();
+        int[] firstEdge = new int[nodes + 1];
+        char[] edgeChar = new char[nodes - 1];
+        int[] edgeTarget = new int[nodes - 1];
+        byte[] accept = new byte[nodes];
+        int edge = 0;
+        for (int node = 0; node < nodes; node++) {
+            firstEdge[node] = edge;
+            accept[node] = accepts.get(node);
+            for (Map.Entry<Character, Integer> e : children.get(node).entrySet()) {
+                edgeChar[edge] = e.getKey();
+                edgeTarget[edge] = e.getValue();
+                edge++;
+            }
+        }
+        firstEdge[nodes] = edge;
+        return new PackagePatterns(Collections.unmodifiableList(new ArrayList<>(unique)),
+                firstEdge, edgeChar, edgeTarget, accept);
+    }
+
+    /** Whether any rule covers {@code packageName}. O(name length), no allocation. */
+    public boolean matches(CharSequence packageName) {
+        if (packageName == null || edgeChar.length == 0 && accept[0] == 0) return false;
+        int node = 0;
+        for (int i = 0, n = packageName.length(); i < n; i++) {
+            if ((accept[node] & ACCEPT_PREFIX) != 0) return true;
+            node = child(node, packageName.charAt(i));
+            if (node < 0) return false;
+        }
+        return accept[node] != 0;
+    }
+
+    private int child(int node, char c) {
+        int i = Arrays.binarySearch(edgeChar, firstEdge[node], firstEdge[node + 1], c);
+        return i >= 0 ? edgeTarget[i] : -1;
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /** Sorted, without duplicates. */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+}
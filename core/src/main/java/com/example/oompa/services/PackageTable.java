@@ -0,0 +1,97 @@
+package com.example.oompa.services;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Interning table mapping package names to dense int ids (0, 1, 2...).
+ * Lookups take any CharSequence, e.g. AccessibilityEvent.getPackageName(), and
+ * compare it in place, so probing never copies the name.
+ *
+ * Instances are immutable: {@link #internAll} returns a new table that keeps every
+ * existing id, so an id stays valid for the life of the process.
+ */
+public final class PackageTable {
+    public static final int NO_ID = -1;
+
+    static final PackageTable EMPTY = new PackageTable(new String[0], new int[16]);
+
+    private final String[] names;   // id -> name
+    private final int[] slots;      // open addressing, holds id + 1 (0 = empty); length is a power of two
+
+    private PackageTable(String[] names, int[] slots) {
+        this.names = names;
+        this.slots = slots;
+    }
+
+    /** Id of {@code name}, or {@link #NO_ID}. Never allocates. */
+    public int indexOf(CharSequence name) {
+        if (name == null) return NO_ID;
+        return lookup(names, slots, name);
+    }
+
+    public String nameOf(int id) {
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /** Table that also contains every name in {@code toAdd}; {@code this} if nothing was new. */
+    public PackageTable internAll(Collection<String> toAdd) {
+        int missing = 0;
+        for (String name : toAdd) {
+            if (indexOf(name) == NO_ID) missing++;   // upper bound, toAdd may repeat names
+        }
+        if (missing == 0) return this;
+
+        String[] nextNames = Arrays.copyOf(names, names.length + missing);
+        int capacity = slots.length;
+        while (capacity < nextNames.length * 2) capacity <<= 1;   // keep load <= 0.5
+        int[] nextSlots = new int[capacity];
+        for (int id = 0; id < names.length; id++) {
+            place(nextSlots, names[id], id);
+        }
+        int count = names.length;
+        for (String name : toAdd) {
+            if (lookup(nextNames, nextSlots, name) == NO_ID) {
+                nextNames[count] = name;
+                place(nextSlots, name, count);
+                count++;
+            }
+        }
+        if (count < nextNames.length) nextNames = Arrays.copyOf(nextNames, count);
+        return new PackageTable(nextNames, nextSlots);
+    }
+
+    private static int lookup(String[] names, int[] slots, CharSequence name) {
+        int mask = slots.length - 1;
+        for (int i = hash(name) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) return NO_ID;
+            if (names[slot - 1].contentEquals(name)) return slot - 1;
+        }
+    }
+
+    private static void place(int[] slots, String name, int id) {
+        int mask = slots.length - 1;
+        int i = hash(name) & mask;
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = id + 1;
+    }
+
+    // Same value as String.hashCode(), so String probes use the cached hash
+    static int hash(CharSequence name) {
+        int h;
+        if (name instanceof String) {
+            h = name.hashCode();
+        } else {
+            h = 0;
+            for (int i = 0, n = name.length(); i < n; i++) {
+                h = 31 * h + name.charAt(i);
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.oompa.services;
+
+/**
+ * Idle/active bookkeeping for the accelerometer rate, without the sensor calls.
+ * The pipeline's ActivityMonitor reports idle and active; significant motion, where
+ * the device has it, is a second way to wake. Whichever wake comes first restores
+ * the full rate and the other one is then a no-op, so the rate only changes on a
+ * real transition. Each method returns true when the caller has to change the rate.
+ */
+public final class SamplingRatePolicy {
+    private volatile boolean idle = false;
+    private long idleCount = 0L;
+    private long varianceWakes = 0L;
+    private long motionWakes = 0L;
+
+    /** ActivityMonitor changed state; runs on the sensor thread. */
+    public boolean onActivityChanged(boolean active) {
+        if (active) {
+            if (!idle) return false;
+            idle = false;
+            varianceWakes++;
+            return true;
+        }
+        if (idle) return false;
+        idle = true;
+        idleCount++;
+        return true;
+    }
+
+    /** Significant motion fired; call on the sensor thread too. */
+    public boolean onSignificantMotion() {
+        // A trigger that lands after the variance already woke us is stale
+        if (!idle) return false;
+        idle = false;
+        motionWakes++;
+        return true;
+    }
+
+    /** Session over: back to the full-rate state without counting a wake. */
+    public void stop() {
+        idle = false;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    public long getIdleCount() {
+        return idleCount;
+    }
+
+    public long getVarianceWakes() {
+        return varianceWakes;
+    }
+
+    public long getMotionWakes() {
+        return motionWakes;
+    }
+}
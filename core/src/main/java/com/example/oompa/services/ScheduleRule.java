@@ -0,0 +1,140 @@
+package com.example.oompa.services;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One line of a lock schedule, as the user wrote it: on these weekdays, between
+ * these local times, lock (or, for an exception, don't lock) these apps.
+ * An empty package list means every locked app; one package is a per-app rule,
+ * several make a group. {@code fromMs}/{@code untilMs} bound the rule to a date
+ * range (0 = open), which is how one-off exceptions such as a holiday are written.
+ * Rules are compiled into a {@link LockSchedule}; they're never evaluated directly.
+ */
+public final class ScheduleRule {
+    // Weekday bits, Monday first
+    public static final int MONDAY = 1;
+    public static final int TUESDAY = 1 << 1;
+    public static final int WEDNESDAY = 1 << 2;
+    public static final int THURSDAY = 1 << 3;
+    public static final int FRIDAY = 1 << 4;
+    public static final int SATURDAY = 1 << 5;
+    public static final int SUNDAY = 1 << 6;
+    public static final int WEEKDAYS = MONDAY | TUESDAY | WEDNESDAY | THURSDAY | FRIDAY;
+    public static final int WEEKEND = SATURDAY | SUNDAY;
+    public static final int EVERY_DAY = WEEKDAYS | WEEKEND;
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final Type LIST_TYPE = new TypeToken<ArrayList<ScheduleRule>>(){}.getType();
+
+    private final List<String> packages;
+    private final int days;
+    private final int startMinute;   // local minute of day
+    private final int endMinute;     // exclusive; <= startMinute runs past midnight
+    private final boolean lock;      // false = exception, carves the window out of the lock
+    private final long fromMs;       // wall millis, 0 = no lower bound
+    private final long untilMs;      // wall millis, 0 = no upper bound
+
+    public ScheduleRule(List<String> packages, int days, int startMinute, int endMinute,
+                        boolean lock, long fromMs, long untilMs) {
+        if (startMinute < 0 || startMinute >= MINUTES_PER_DAY || endMinute < 0 || endMinute > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("minutes " + startMinute + ".." + endMinute);
+        }
+        this.packages = packages != null ? new ArrayList<>(packages) : new ArrayList<>();
+        this.days = days & EVERY_DAY;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.lock = lock;
+        this.fromMs = fromMs;
+        this.untilMs = untilMs;
+    }
+
+    /** Lock {@code packages} (empty = all locked apps) on {@code days} from start to end. */
+    public static ScheduleRule lock(List<String> packages, int days, int startMinute, int endMinute) {
+        return new ScheduleRule(packages, days, startMinute, endMinute, true, 0L, 0L);
+    }
+
+    /** Leave {@code packages} unlocked on {@code days} from start to end, whatever the lock rules say. */
+    public static ScheduleRule exception(List<String> packages, int days, int startMinute, int endMinute) {
+        return new ScheduleRule(packages, days, startMinute, endMinute, false, 0L, 0L);
+    }
+
+    /** Same rule, only in effect between two wall times (0 = open). */
+    public ScheduleRule between(long fromMs, long untilMs) {
+        return new ScheduleRule(packages, days, startMinute, endMinute, lock, fromMs, untilMs);
+    }
+
+    /** Unmodifiable; empty means every locked app. */
+    public List<String> getPackages() {
+        return packages != null ? Collections.unmodifiableList(packages) : Collections.<String>emptyList();
+    }
+
+    public boolean appliesToAll() {
+        return packages == null || packages.isEmpty();
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    public boolean isLock() {
+        return lock;
+    }
+
+    public long getFromMs() {
+        return fromMs;
+    }
+
+    public long getUntilMs() {
+        return untilMs;
+    }
+
+    // --- Persistence (one JSON list in prefs; schedules are small and rarely written) ---
+    public static String toJson(List<ScheduleRule> rules) {
+        return new Gson().toJson(rules, LIST_TYPE);
+    }
+
+    /**
+     * Returns an empty list for null input. Rules the constructor would reject (minutes
+     * out of range) are dropped, and null entries with them.
+     */
+    public static List<ScheduleRule> fromJson(String json) throws JsonParseException {
+        List<ScheduleRule> valid = new ArrayList<>();
+        if (json == null) return valid;
+        List<ScheduleRule> rules = new Gson().fromJson(json, LIST_TYPE);
+        if (rules == null) return valid;
+        // Gson fills the fields directly and skips the constructor's checks; rebuild through it
+        for (ScheduleRule rule : rules) {
+            if (rule == null) continue;
+            try {
+                valid.add(rule.rebuilt());
+            } catch (IllegalArgumentException e) {
+                // Hand-edited or from a newer version; one bad rule shouldn't drop the rest
+            }
+        }
+        return valid;
+    }
+
+    private ScheduleRule rebuilt() {
+        List<String> names = new ArrayList<>();
+        if (packages != null) {
+            for (String name : packages) if (name != null) names.add(name);
+        }
+        return new ScheduleRule(names, days, startMinute, endMinute, lock, fromMs, untilMs);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.oompa.services;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Foreground time per app for the current day, charged from window transitions:
+ * each {@link #onForeground} bills the time since the previous one to the app that
+ * was in front. Totals and budgets are long[]s indexed by {@link PackageTable} id,
+ * so a transition is a couple of array writes and no allocation.
+ *
+ * Budgets aren't checked per event. Only the app in front can use up time, so when
+ * a budgeted app comes to the front its exhaustion time is computed once and exposed
+ * as {@link #getDeadline()}; the caller arms one timer for it and calls
+ * {@link #checkDeadline} when it fires.
+ *
+ * Times are {@code SystemClock.elapsedRealtime()} millis, which keep counting in deep
+ * sleep and don't jump with the wall clock. Not thread-safe; the blocker service
+ * drives it from its main thread.
+ */
+public final class UsageAccountant {
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private long[] usedMs = new long[16];
+    private long[] budgetMs = new long[16];   // 0 = no budget
+    private final BitSet exhausted = new BitSet();
+
+    private int current = PackageTable.NO_ID;
+    private long since;
+    private long deadline = NO_DEADLINE;
+
+    /** Daily allowance for {@code packageId}; 0 removes it. */
+    public void setBudget(int packageId, long dailyMs) {
+        ensureCapacity(packageId);
+        budgetMs[packageId] = Math.max(0L, dailyMs);
+        updateExhausted(packageId);
+        updateDeadline();
+    }
+
+    public void clearBudgets() {
+        Arrays.fill(budgetMs, 0L);
+        exhausted.clear();
+        deadline = NO_DEADLINE;
+    }
+
+    /** Put back a total saved earlier today, e.g. after the service restarted. */
+    public void restore(int packageId, long used) {
+        ensureCapacity(packageId);
+        usedMs[packageId] = used;
+        updateExhausted(packageId);
+        updateDeadline();
+    }
+
+    /**
+     * {@code packageId} (or NO_ID for anything we don't track) came to the front at
+     * {@code now}. Returns true if that changed the exhausted set, which only happens
+     * when a deadline was overslept.
+     */
+    public boolean onForeground(int packageId, long now) {
+        boolean changed = charge(now);
+        current = packageId;
+        updateDeadline();
+        return changed;
+    }
+
+    /**
+     * The app in front left at some point we got no event for. Ends its stretch without
+     * billing it: all we know is that it was in front at the last transition, and
+     * charging up to {@code now} could use up a budget on time it never had. Never
+     * changes the exhausted set.
+     */
+    public void leave(long now) {
+        since = now;
+        current = PackageTable.NO_ID;
+        updateDeadline();
+    }
+
+    /** Call when the timer for {@link #getDeadline()} fires; true if an app ran out. */
+    public boolean checkDeadline(long now) {
+        if (now < deadline) return false;
+        boolean changed = charge(now);
+        updateDeadline();
+        return changed;
+    }
+
+    /** Start a new day: totals and exhaustion clear, budgets stay. */
+    public void resetDay(long now) {
+        Arrays.fill(usedMs, 0L);
+        exhausted.clear();
+        since = now;
+        updateDeadline();
+    }
+
+    /** elapsedRealtime at which the app in front runs out, or {@link #NO_DEADLINE}. */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public int getCurrent() {
+        return current;
+    }
+
+    /** Today's total, including the running stretch if the app is in front now. */
+    public long getUsedMs(int packageId, long now) {
+        if (packageId < 0 || packageId >= usedMs.length) return 0L;
+        long used = usedMs[packageId];
+        if (packageId == current) used += now - since;
+        return used;
+    }
+
+    public long getBudgetMs(int packageId) {
+        return packageId >= 0 && packageId < budgetMs.length ? budgetMs[packageId] : 0L;
+    }
+
+    public boolean isExhausted(int packageId) {
+        return packageId >= 0 && exhausted.get(packageId);
+    }
+
+    /** Copy of the exhausted ids, for publishing in a snapshot. */
+    public BitSet exhaustedIds() {
+        return (BitSet) exhausted.clone();
+    }
+
+    // Bill [since, now) to the app in front
+    private boolean charge(long now) {
+        int id = current;
+        long elapsed = now - since;
+        since = now;
+        if (id < 0 || elapsed <= 0) return false;
+        ensureCapacity(id);
+        usedMs[id] += elapsed;
+        return updateExhausted(id);
+    }
+
+    private boolean updateExhausted(int id) {
+        boolean out = budgetMs[id] > 0 && usedMs[id] >= budgetMs[id];
+        if (out == exhausted.get(id)) return false;
+        exhausted.set(id, out);
+        return true;
+    }
+
+    private void updateDeadline() {
+        int id = current;
+        if (id < 0 || id >= budgetMs.length || budgetMs[id] == 0 || exhausted.get(id)) {
+            deadline = NO_DEADLINE;
+        } else {
+            deadline = since + (budgetMs[id] - usedMs[id]);
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < usedMs.length) return;
+        int size = usedMs.length;
+        while (size <= id) size <<= 1;
+        usedMs = Arrays.copyOf(usedMs, size);
+        budgetMs = Arrays.copyOf(budgetMs, size);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.oompa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the counter with synthetic 50 Hz traces: standing still is gravity plus
+ * sensor noise, a jump is push-off, free fall and a landing spike.
+ */
+public class ExerciseCounterTest {
+
+    // Vertical acceleration of one jump at 50 Hz, m/s² (shape taken from the recorded trace)
+    private static final float[] JUMP = {13.9f, 14.8f, 11.7f, 5.0f, 3.3f, 4.2f, 7.9f, 18.4f, 19.8f, 11.8f};
+    private static final int JUMP_PERIOD = 25;   // 2 jumps/s
+    private static final long DT_NS = 20_000_000L;
+    private static final long JACK_MS = Exercise.JUMPING_JACK.creditMillisPerRep;
+
+    // ExerciseCounter is a process-wide singleton, possibly created by another test class
+    private final ExerciseCounter counter = ExerciseCounter.getInstance(null);
+    private final Random noise = new Random(1);
+    private long timeNs = 1_000_000_000L;
+    private long credited;
+
+    @Before
+    public void setUp() {
+        counter.reset();
+        counter.setCreditSink(millis -> credited += millis);
+    }
+
+    @After
+    public void tearDown() {
+        counter.setOnActivityChangedListener(null);
+    }
+
+    private void sample(float z) {
+        counter.onSample((float) noise.nextGaussian() * 0.2f, (float) noise.nextGaussian() * 0.2f,
+                z + (float) noise.nextGaussian() * 0.2f, timeNs);
+        timeNs += DT_NS;
+    }
+
+    private void stand(double seconds) {
+        for (int i = 0; i < seconds * 50; i++) sample(9.81f);
+    }
+
+    private void jump(int count) {
+        for (int j = 0; j < count; j++) {
+            for (int i = 0; i < JUMP_PERIOD; i++) sample(i < JUMP.length ? JUMP[i] : 9.81f);
+        }
+    }
+
+    @Test
+    public void set_creditsEveryJack() {
+        stand(2);
+        jump(20);
+        stand(1);
+        assertEquals(10, counter.getJumpingJackCount());
+        assertEquals(10 * JACK_MS, credited);
+        assertEquals(0, counter.getRejectedJacks());
+    }
+
+    @Test
+    public void restThenSet_creditsEveryJack() {
+        final boolean[] wentIdle = {false};
+        final boolean[] wokeUp = {false};
+        counter.setOnActivityChangedListener(active -> {
+            if (active) wokeUp[0] = true;
+            else wentIdle[0] = true;
+        });
+        stand(2);
+        jump(20);
+        stand(15);   // long enough to go idle; the cadence window is all stillness now
+        assertTrue(wentIdle[0]);
+        jump(20);
+        stand(1);
+
+        assertTrue(wokeUp[0]);
+        assertEquals(20, counter.getJumpingJackCount());
+        assertEquals(20 * JACK_MS, credited);
+        assertEquals(0, counter.getRejectedJacks());
+    }
+
+    @Test
+    public void reset_startsASessionFromZero() {
+        // Irregular bumps: counted as jacks, but not rhythmic enough to earn
+        stand(2);
+        for (int gap : new int[]{40, 22, 70, 31, 90, 25, 55, 120, 28, 66, 35, 80, 24, 100, 45, 60, 27, 85}) {
+            jump(1);
+            stand(gap / 50.0);
+        }
+        stand(6);
+        jump(1);
+        assertTrue(counter.getRejectedJacks() > 0);
+
+        counter.reset();
+        assertEquals(0, counter.getRejectedJacks());
+        assertEquals(0, counter.getJumpingJackCount());
+        assertEquals(0, counter.getJumpCount());
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.oompa.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // One visited record: time, type, aux, packageHash, value
+    private static List<long[]> scan(EventLog log, long from, long to) throws IOException {
+        List<long[]> out = new ArrayList<>();
+        log.scan(from, to, (t, type, aux, pkg, value) -> out.add(new long[]{t, type, aux, pkg, value}));
+        return out;
+    }
+
+    private static List<long[]> scanAll(EventLog log) throws IOException {
+        return scan(log, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static File lastSegment(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".log"));
+        Arrays.sort(files);
+        return files[files.length - 1];
+    }
+
+    @Test
+    public void appendThenScan_returnsRecordsInOrder() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 2, 0, 1);
+        log.append(T0 + 10, EventLog.TYPE_BLOCK, 0, EventLog.packageHash("com.video"), 0);
+        log.append(T0 + 20, EventLog.TYPE_UNLOCK, 0, 0, 90_000);
+
+        List<long[]> all = scanAll(log);   // scan flushes the pending batch itself
+        assertEquals(3, all.size());
+        assertArrayEquals(new long[]{T0, EventLog.TYPE_REP, 2, 0, 1}, all.get(0));
+        assertArrayEquals(new long[]{T0 + 10, EventLog.TYPE_BLOCK, 0, "com.video".hashCode(), 0}, all.get(1));
+        assertArrayEquals(new long[]{T0 + 20, EventLog.TYPE_UNLOCK, 0, 0, 90_000}, all.get(2));
+        log.close();
+    }
+
+    @Test
+    public void scan_rangeIsHalfOpen() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 16);
+        for (int i = 0; i < 100; i++) log.append(T0 + i * 1000L, EventLog.TYPE_REP, 0, 0, i);
+
+        List<long[]> range = scan(log, T0 + 10_000, T0 + 20_000);
+        assertEquals(10, range.size());
+        assertEquals(10, range.get(0)[4]);
+        assertEquals(19, range.get(9)[4]);
+        assertTrue(scan(log, T0 + 200_000, Long.MAX_VALUE).isEmpty());
+        assertTrue(scan(log, Long.MIN_VALUE, T0).isEmpty());
+        log.close();
+    }
+
+    @Test
+    public void batching_writesWhenFull() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 4);
+        for (int i = 0; i < 5; i++) log.append(T0 + i, EventLog.TYPE_REP, 0, 0, 1);
+        assertEquals(1, log.pendingRecords());
+        log.flush();
+        assertEquals(0, log.pendingRecords());
+        assertEquals(EventLog.HEADER_SIZE + 5 * EventLog.RECORD_SIZE, lastSegment(folder.getRoot()).length());
+        log.close();
+    }
+
+    @Test
+    public void clockStepBack_pinsTime() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        assertEquals(T0 + 5_000, log.append(T0 + 5_000, EventLog.TYPE_REP, 0, 0, 1));
+        assertEquals(T0 + 5_000, log.append(T0, EventLog.TYPE_REP, 0, 0, 2));   // returns what it stored
+        List<long[]> all = scanAll(log);
+        assertEquals(T0 + 5_000, all.get(1)[0]);
+        log.close();
+    }
+
+    @Test
+    public void rollsAfterADay() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + DAY - 1, EventLog.TYPE_REP, 0, 0, 2);
+        assertEquals(1, log.segmentCount());
+        log.append(T0 + DAY, EventLog.TYPE_REP, 0, 0, 3);
+        assertEquals(2, log.segmentCount());
+
+        // The binary search and segment skipping work across the boundary
+        assertEquals(3, scanAll(log).size());
+        List<long[]> second = scan(log, T0 + DAY - 1, Long.MAX_VALUE);
+        assertEquals(2, second.size());
+        assertEquals(2, second.get(0)[4]);
+        log.close();
+    }
+
+    @Test
+    public void rollsAfterMaxRecords() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 1024);
+        for (int i = 0; i <= EventLog.MAX_SEGMENT_RECORDS; i++) {
+            log.append(T0 + i / 100, EventLog.TYPE_REP, 0, 0, 1);
+        }
+        assertEquals(2, log.segmentCount());
+        assertEquals(EventLog.MAX_SEGMENT_RECORDS + 1, scanAll(log).size());
+        log.close();
+    }
+
+    @Test
+    public void reopen_continuesTheLastSegment() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + MINUTE, EventLog.TYPE_REP, 0, 0, 2);
+        log.close();
+
+        EventLog reopened = new EventLog(folder.getRoot(), 8);
+        assertEquals(1, reopened.segmentCount());
+        reopened.append(T0 + 2 * MINUTE, EventLog.TYPE_REP, 0, 0, 3);
+        reopened.append(T0, EventLog.TYPE_REP, 0, 0, 4);   // older than what's on disk: pinned
+        List<long[]> all = scanAll(reopened);
+        assertEquals(4, all.size());
+        assertEquals(1, reopened.segmentCount());
+        assertEquals(T0 + 2 * MINUTE, all.get(3)[0]);
+        reopened.close();
+    }
+
+    @Test
+    public void tornTail_isTruncatedOnReopen() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + 1, EventLog.TYPE_REP, 0, 0, 2);
+        log.close();
+        File segment = lastSegment(folder.getRoot());
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7});   // half a record from a crash mid-write
+        }
+
+        EventLog reopened = new EventLog(folder.getRoot(), 8);
+        assertEquals(EventLog.HEADER_SIZE + 2 * EventLog.RECORD_SIZE, segment.length());
+        reopened.append(T0 + 2, EventLog.TYPE_REP, 0, 0, 3);
+        List<long[]> all = scanAll(reopened);
+        assertEquals(3, all.size());
+        assertEquals(3, all.get(2)[4]);
+        reopened.close();
+    }
+
+    @Test
+    public void compact_mergesRepsAndCreditsPerMinute() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        int app = EventLog.packageHash("com.video");
+        // Minute 0: interleaved exercises, a block in the middle
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + 1_000, EventLog.TYPE_REP, 1, 0, 1);
+        log.append(T0 + 2_000, EventLog.TYPE_BLOCK, 0, app, 0);
+        log.append(T0 + 3_000, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + 4_000, EventLog.TYPE_CREDIT, 0, 0, 60_000);
+        log.append(T0 + 5_000, EventLog.TYPE_CREDIT, 0, 0, 60_000);
+        log.append(T0 + 6_000, EventLog.TYPE_REP, 1, 0, 1);
+        // Minute 1: not merged into minute 0
+        log.append(T0 + MINUTE, EventLog.TYPE_REP, 0, 0, 1);
+        // Next day, so the first segment is closed
+        log.append(T0 + DAY, EventLog.TYPE_REP, 0, 0, 1);
+        long before = log.sizeBytes();
+
+        log.compact(T0 + 2 * DAY, Long.MIN_VALUE);
+        List<long[]> all = scanAll(log);
+        assertEquals(6, all.size());
+        assertArrayEquals(new long[]{T0, EventLog.TYPE_REP, 0, 0, 2}, all.get(0));
+        assertArrayEquals(new long[]{T0 + 1_000, EventLog.TYPE_REP, 1, 0, 2}, all.get(1));
+        assertArrayEquals(new long[]{T0 + 2_000, EventLog.TYPE_BLOCK, 0, app, 0}, all.get(2));
+        assertArrayEquals(new long[]{T0 + 4_000, EventLog.TYPE_CREDIT, 0, 0, 120_000}, all.get(3));
+        assertArrayEquals(new long[]{T0 + MINUTE, EventLog.TYPE_REP, 0, 0, 1}, all.get(4));
+        assertTrue(log.sizeBytes() < before);
+
+        // Already compacted segments are left alone
+        log.compact(T0 + 2 * DAY, Long.MIN_VALUE);
+        assertEquals(6, scanAll(log).size());
+        log.close();
+    }
+
+    @Test
+    public void compact_leavesTheOpenSegment() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + 1, EventLog.TYPE_REP, 0, 0, 1);
+        log.compact(Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(1, log.segmentCount());
+        assertEquals(2, scanAll(log).size());
+        log.close();
+    }
+
+    @Test
+    public void compact_dropsSegmentsPastRetention() throws IOException {
+        EventLog log = new EventLog(folder.getRoot(), 8);
+        log.append(T0, EventLog.TYPE_REP, 0, 0, 1);
+        log.append(T0 + DAY, EventLog.TYPE_REP, 0, 0, 2);
+        log.append(T0 + 2 * DAY, EventLog.TYPE_REP, 0, 0, 3);
+        assertEquals(3, log.segmentCount());
+
+        log.compact(Long.MIN_VALUE, T0 + DAY);   // the first segment ended at T0 + DAY
+        assertEquals(2, log.segmentCount());
+        List<long[]> all = scanAll(log);
+        assertEquals(2, all.size());
+        assertEquals(2, all.get(0)[4]);
+
+        // Survives a reopen, and new segments keep numbering after the last one
+        log.close();
+        EventLog reopened = new EventLog(folder.getRoot(), 8);
+        reopened.append(T0 + 3 * DAY, EventLog.TYPE_REP, 0, 0, 4);
+        assertEquals(3, reopened.segmentCount());
+        assertEquals(3, scanAll(reopened).size());
+        reopened.close();
+    }
+}
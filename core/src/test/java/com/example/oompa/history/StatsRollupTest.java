@@ -0,0 +1,234 @@
+package com.example.oompa.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class StatsRollupTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long at(TimeZone tz, int year, int month, int day, int hour, int minute) {
+        GregorianCalendar c = new GregorianCalendar(tz);
+        c.clear();
+        c.set(year, month - 1, day, hour, minute);
+        return c.getTimeInMillis();
+    }
+
+    // Monday 16 March 2026, 10:00 UTC
+    private static final long MONDAY = at(UTC, 2026, 3, 16, 10, 0);
+
+    private static void addReps(StatsRollup stats, EventLog log, long timeMs, int reps) throws IOException {
+        long stored = log != null ? log.append(timeMs, EventLog.TYPE_REP, 0, 0, reps) : timeMs;
+        stats.add(stored, EventLog.TYPE_REP, 0, 0, reps);
+    }
+
+    private static void assertSameTotals(StatsRollup expected, StatsRollup actual, long endMs) {
+        assertEquals(expected.getWatermarkMs(), actual.getWatermarkMs());
+        long[] e = new long[60];
+        long[] a = new long[60];
+        for (int unit = StatsRollup.HOUR; unit <= StatsRollup.WEEK; unit++) {
+            for (int metric = 0; metric < StatsRollup.METRIC_COUNT; metric++) {
+                expected.series(unit, metric, endMs, e);
+                actual.series(unit, metric, endMs, a);
+                assertArrayEquals("unit " + unit + " metric " + metric, e, a);
+            }
+        }
+    }
+
+    @Test
+    public void add_countsIntoHourDayAndWeek() {
+        StatsRollup stats = new StatsRollup(UTC);
+        stats.add(MONDAY, EventLog.TYPE_REP, 0, 0, 10);
+        stats.add(MONDAY + 20 * 60_000, EventLog.TYPE_REP, 0, 0, 5);
+        stats.add(MONDAY + 2 * HOUR, EventLog.TYPE_UNLOCK, 0, 0, 90_000);
+        stats.add(MONDAY + 3 * HOUR, EventLog.TYPE_SESSION_START, 0, 0, 0);   // not a metric
+
+        assertEquals(15, stats.get(StatsRollup.HOUR, StatsRollup.REPS, MONDAY));
+        assertEquals(0, stats.get(StatsRollup.HOUR, StatsRollup.REPS, MONDAY + HOUR));
+        assertEquals(15, stats.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY));
+        assertEquals(1, stats.get(StatsRollup.DAY, StatsRollup.UNLOCKS, MONDAY));
+        assertEquals(90_000, stats.get(StatsRollup.WEEK, StatsRollup.UNLOCK_MS, MONDAY));
+        assertEquals(0, stats.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY + DAY));
+        assertEquals(MONDAY + 3 * HOUR, stats.getWatermarkMs());
+    }
+
+    @Test
+    public void week_startsOnMonday() {
+        StatsRollup stats = new StatsRollup(UTC);
+        long sundayLate = at(UTC, 2026, 3, 15, 23, 59);
+        long mondayEarly = at(UTC, 2026, 3, 16, 0, 0);
+        long nextSunday = at(UTC, 2026, 3, 22, 23, 59);
+        stats.add(sundayLate, EventLog.TYPE_REP, 0, 0, 1);
+        stats.add(mondayEarly, EventLog.TYPE_REP, 0, 0, 10);
+        stats.add(nextSunday, EventLog.TYPE_REP, 0, 0, 100);
+
+        assertEquals(1, stats.get(StatsRollup.WEEK, StatsRollup.REPS, sundayLate));
+        assertEquals(110, stats.get(StatsRollup.WEEK, StatsRollup.REPS, mondayEarly));
+        assertEquals(110, stats.get(StatsRollup.WEEK, StatsRollup.REPS, nextSunday));
+        assertEquals(0, stats.get(StatsRollup.WEEK, StatsRollup.REPS, nextSunday + 60_000));
+    }
+
+    @Test
+    public void week_usesLocalTime() {
+        // Monday 00:30 in New York is still Sunday in UTC
+        TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        StatsRollup stats = new StatsRollup(newYork);
+        long sunday = at(newYork, 2026, 3, 15, 23, 30);
+        long monday = at(newYork, 2026, 3, 16, 0, 30);
+        stats.add(sunday, EventLog.TYPE_REP, 0, 0, 1);
+        stats.add(monday, EventLog.TYPE_REP, 0, 0, 10);
+
+        assertEquals(1, stats.get(StatsRollup.WEEK, StatsRollup.REPS, sunday));
+        assertEquals(10, stats.get(StatsRollup.WEEK, StatsRollup.REPS, monday));
+        assertEquals(10, stats.get(StatsRollup.DAY, StatsRollup.REPS, monday));
+    }
+
+    @Test
+    public void hourRing_rollsOverAndIgnoresOlderBuckets() {
+        StatsRollup stats = new StatsRollup(UTC);
+        long later = MONDAY + 14 * DAY;   // same hour slot, one lap of the ring later
+        stats.add(MONDAY, EventLog.TYPE_REP, 0, 0, 3);
+        stats.add(later, EventLog.TYPE_REP, 0, 0, 7);
+
+        assertEquals(0, stats.get(StatsRollup.HOUR, StatsRollup.REPS, MONDAY));   // slot reused
+        assertEquals(7, stats.get(StatsRollup.HOUR, StatsRollup.REPS, later));
+        assertEquals(3, stats.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY));    // day ring is longer
+
+        // A late record for the overwritten hour doesn't clobber the newer one
+        stats.add(MONDAY + 60_000, EventLog.TYPE_REP, 0, 0, 5);
+        assertEquals(7, stats.get(StatsRollup.HOUR, StatsRollup.REPS, later));
+        assertEquals(0, stats.get(StatsRollup.HOUR, StatsRollup.REPS, MONDAY));
+        assertEquals(8, stats.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY));
+    }
+
+    @Test
+    public void series_oldestFirstWithGapsAsZero() {
+        StatsRollup stats = new StatsRollup(UTC);
+        stats.add(MONDAY - 2 * DAY, EventLog.TYPE_CREDIT, 0, 0, 1000);
+        stats.add(MONDAY, EventLog.TYPE_CREDIT, 0, 0, 3000);
+
+        long[] out = new long[4];
+        stats.series(StatsRollup.DAY, StatsRollup.CREDIT_MS, MONDAY, out);
+        assertArrayEquals(new long[]{0, 1000, 0, 3000}, out);
+    }
+
+    @Test
+    public void appTable_growsPastInitialSize() {
+        StatsRollup stats = new StatsRollup(UTC);
+        int apps = 100;   // the table starts at 64 slots and stays at most half full
+        for (int i = 0; i < apps; i++) {
+            int hash = EventLog.packageHash("com.app" + i);
+            for (int n = 0; n <= i % 3; n++) stats.add(MONDAY + i, EventLog.TYPE_BLOCK, 0, hash, 0);
+        }
+
+        for (int i = 0; i < apps; i++) {
+            int hash = EventLog.packageHash("com.app" + i);
+            assertEquals(i % 3 + 1, stats.getAppBlocks(StatsRollup.DAY, hash, MONDAY));
+            assertEquals(i % 3 + 1, stats.getAppBlocks(StatsRollup.WEEK, hash, MONDAY));
+            assertEquals(0, stats.getAppBlocks(StatsRollup.DAY, hash, MONDAY + DAY));
+        }
+        assertEquals(0, stats.getAppBlocks(StatsRollup.DAY, EventLog.packageHash("com.other"), MONDAY));
+
+        int[] hashes = new int[apps];
+        int[] counts = new int[apps];
+        assertEquals(apps, stats.getBlockedApps(StatsRollup.DAY, MONDAY, hashes, counts));
+        long total = 0;
+        for (int c : counts) total += c;
+        assertEquals(stats.get(StatsRollup.DAY, StatsRollup.BLOCKS, MONDAY), total);
+
+        // Short arrays are filled as far as they go; the count is still the whole
+        assertEquals(apps, stats.getBlockedApps(StatsRollup.WEEK, MONDAY, new int[3], new int[3]));
+    }
+
+    @Test
+    public void saveThenLoad_roundTrips() throws IOException {
+        File stateFile = folder.newFile("stats.bin");
+        EventLog log = new EventLog(folder.newFolder("log"), 8);
+        StatsRollup stats = new StatsRollup(UTC);
+        for (int i = 0; i < 50; i++) addReps(stats, log, MONDAY + i * HOUR, i);
+        for (int i = 0; i < 40; i++) {
+            int hash = EventLog.packageHash("com.app" + i);
+            long t = log.append(MONDAY + 50 * HOUR, EventLog.TYPE_BLOCK, 0, hash, 0);
+            stats.add(t, EventLog.TYPE_BLOCK, 0, hash, 0);
+        }
+        stats.save(stateFile);
+
+        StatsRollup loaded = new StatsRollup(UTC);
+        loaded.load(stateFile, log);
+        assertSameTotals(stats, loaded, MONDAY + 50 * HOUR);
+        assertEquals(1, loaded.getAppBlocks(StatsRollup.DAY, EventLog.packageHash("com.app39"), MONDAY + 50 * HOUR));
+        log.close();
+    }
+
+    @Test
+    public void load_replaysPastWatermarkWithoutDoubleCounting() throws IOException {
+        File stateFile = folder.newFile("stats.bin");
+        EventLog log = new EventLog(folder.newFolder("log"), 8);
+        StatsRollup stats = new StatsRollup(UTC);
+        addReps(stats, log, MONDAY, 1);
+        addReps(stats, log, MONDAY, 2);
+        stats.save(stateFile);
+
+        // Logged after the save: one in the watermark's millisecond, one later
+        log.append(MONDAY, EventLog.TYPE_REP, 0, 0, 4);
+        log.append(MONDAY + HOUR, EventLog.TYPE_REP, 0, 0, 8);
+
+        StatsRollup loaded = new StatsRollup(UTC);
+        loaded.load(stateFile, log);
+        assertEquals(7, loaded.get(StatsRollup.HOUR, StatsRollup.REPS, MONDAY));
+        assertEquals(15, loaded.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY));
+
+        StatsRollup rebuilt = new StatsRollup(UTC);
+        rebuilt.load(new File(folder.getRoot(), "missing.bin"), log);
+        assertSameTotals(rebuilt, loaded, MONDAY + HOUR);
+        log.close();
+    }
+
+    @Test
+    public void load_truncatedFile_rebuildsFromLog() throws IOException {
+        File stateFile = folder.newFile("stats.bin");
+        EventLog log = new EventLog(folder.newFolder("log"), 8);
+        StatsRollup stats = new StatsRollup(UTC);
+        for (int i = 0; i < 10; i++) addReps(stats, log, MONDAY + i * DAY, 5);
+        stats.save(stateFile);
+        try (RandomAccessFile raf = new RandomAccessFile(stateFile, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        StatsRollup loaded = new StatsRollup(UTC);
+        loaded.load(stateFile, log);
+        assertSameTotals(stats, loaded, MONDAY + 9 * DAY);
+        log.close();
+    }
+
+    @Test
+    public void load_afterClockStepBack_countsEachRecordOnce() throws IOException {
+        File stateFile = folder.newFile("stats.bin");
+        EventLog log = new EventLog(folder.newFolder("log"), 8);
+        StatsRollup stats = new StatsRollup(UTC);
+        addReps(stats, log, MONDAY + 5_000, 1);
+        addReps(stats, log, MONDAY, 2);   // the log pins this to MONDAY + 5000
+        stats.save(stateFile);
+        log.append(MONDAY, EventLog.TYPE_REP, 0, 0, 4);
+
+        StatsRollup loaded = new StatsRollup(UTC);
+        loaded.load(stateFile, log);
+        assertEquals(7, loaded.get(StatsRollup.DAY, StatsRollup.REPS, MONDAY));
+        assertEquals(MONDAY + 5_000, loaded.getWatermarkMs());
+        log.close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.oompa.motion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the monitor frames with a chosen {@code magnitudeVariance}, as the
+ * {@link FeatureWindow} would write it, at 50 Hz.
+ */
+public class ActivityMonitorTest {
+
+    private static final long DT_NS = 20_000_000L;
+    private static final long IDLE_AFTER_NS = 2_000_000_000L;
+    private static final float STILL = 0.01f;
+    private static final float BETWEEN = 1f;     // above IDLE_VARIANCE, below ACTIVE_VARIANCE
+    private static final float MOVING = 4f;
+
+    private final ActivityMonitor monitor = new ActivityMonitor(IDLE_AFTER_NS);
+    private final MotionFrame frame = new MotionFrame();
+    private final List<Boolean> changes = new ArrayList<>();
+    private long timeNs = 1_000_000_000L;
+
+    @Before
+    public void setUp() {
+        monitor.setListener(changes::add);
+    }
+
+    private void feed(float variance, double seconds) {
+        for (int i = 0; i < seconds * 50; i++) {
+            frame.timestampNs = timeNs;
+            frame.magnitudeVariance = variance;
+            monitor.process(frame);
+            timeNs += DT_NS;
+        }
+    }
+
+    private void goIdle() {
+        feed(STILL, 2.1);
+        assertFalse(monitor.isActive());
+        changes.clear();
+    }
+
+    @Test
+    public void startsActive() {
+        assertTrue(monitor.isActive());
+        feed(STILL, 0.02);   // the first frame only primes it
+        assertTrue(monitor.isActive());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void stillForTheTimeout_goesIdleOnce() {
+        feed(STILL, 1.9);
+        assertTrue(monitor.isActive());
+        feed(STILL, 0.2);
+        assertFalse(monitor.isActive());
+        feed(STILL, 5);
+        assertEquals(1, changes.size());
+        assertFalse(changes.get(0));
+    }
+
+    @Test
+    public void movementRestartsTheIdleTimer() {
+        feed(STILL, 1.5);
+        feed(MOVING, 0.02);
+        feed(STILL, 1.9);
+        assertTrue(monitor.isActive());
+        feed(STILL, 0.2);
+        assertFalse(monitor.isActive());
+    }
+
+    @Test
+    public void betweenTheThresholds_keepsItActive() {
+        // Not quiet enough to count toward idle
+        feed(BETWEEN, 10);
+        assertTrue(monitor.isActive());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void betweenTheThresholds_doesNotWakeIt() {
+        goIdle();
+        feed(BETWEEN, 10);
+        assertFalse(monitor.isActive());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void firstActiveSample_wakesIt() {
+        goIdle();
+        feed(MOVING, 0.02);
+        assertTrue(monitor.isActive());
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0));
+
+        // And the idle timer starts over from that sample
+        feed(STILL, 1.9);
+        assertTrue(monitor.isActive());
+        feed(STILL, 0.2);
+        assertFalse(monitor.isActive());
+    }
+
+    @Test
+    public void reset_isActiveAgainWithoutTellingTheListener() {
+        goIdle();
+        monitor.reset();
+        assertTrue(monitor.isActive());
+        assertTrue(changes.isEmpty());
+
+        // Primes again on the next frame, so the full timeout applies
+        feed(STILL, 1.9);
+        assertTrue(monitor.isActive());
+        feed(STILL, 0.2);
+        assertFalse(monitor.isActive());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DetectorEngineTest {
+
+    private static final long DT_NS = 20_000_000L;
+    private static final float G = 9.81f;
+
+    /** Fires on every {@code every}-th sample; counts resets. */
+    private static class EveryNth implements ExerciseDetector {
+        final int every;
+        int seen;
+        int resets;
+
+        EveryNth(int every) {
+            this.every = every;
+        }
+
+        @Override
+        public boolean process(MotionFrame frame, FeatureWindow window) {
+            return ++seen % every == 0;
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @Test
+    public void register_handsOutIdsInOrder() {
+        DetectorEngine engine = new DetectorEngine(new FeatureWindow(8));
+        EveryNth a = new EveryNth(1);
+        EveryNth b = new EveryNth(1);
+        assertEquals(0, engine.register(a));
+        assertEquals(1, engine.register(b));
+        assertEquals(2, engine.getDetectorCount());
+        assertSame(a, engine.getDetector(0));
+        assertSame(b, engine.getDetector(1));
+    }
+
+    @Test
+    public void process_reportsWhichDetectorFiredAndWhen() {
+        DetectorEngine engine = new DetectorEngine(new FeatureWindow(8));
+        engine.register(new EveryNth(2));
+        engine.register(new EveryNth(3));
+        List<long[]> reps = new ArrayList<>();
+        engine.setListener((id, t) -> reps.add(new long[]{id, t}));
+
+        MotionFrame frame = new MotionFrame();
+        for (int i = 1; i <= 6; i++) {
+            frame.timestampNs = i * 100L;
+            engine.process(frame);
+        }
+        assertEquals(5, reps.size());
+        assertArrayEquals(new long[]{0, 200}, reps.get(0));
+        assertArrayEquals(new long[]{1, 300}, reps.get(1));
+        assertArrayEquals(new long[]{0, 400}, reps.get(2));
+        assertArrayEquals(new long[]{0, 600}, reps.get(3));   // same sample, registration order
+        assertArrayEquals(new long[]{1, 600}, reps.get(4));
+    }
+
+    @Test
+    public void process_withoutListener_stillRunsEveryDetector() {
+        DetectorEngine engine = new DetectorEngine(new FeatureWindow(8));
+        EveryNth a = new EveryNth(1);
+        engine.register(a);
+        engine.process(new MotionFrame());
+        assertEquals(1, a.seen);
+    }
+
+    @Test
+    public void reset_reachesEveryDetector() {
+        DetectorEngine engine = new DetectorEngine(new FeatureWindow(8));
+        EveryNth a = new EveryNth(1);
+        EveryNth b = new EveryNth(1);
+        engine.register(a);
+        engine.register(b);
+        engine.reset();
+        assertEquals(1, a.resets);
+        assertEquals(1, b.resets);
+    }
+
+    // Whole traces through the same detector set ExerciseCounter registers
+
+    private interface Trace {
+        float[] at(int i);
+    }
+
+    private static final int SQUAT = 1, PUSH_UP = 2, KNEE = 3;   // ids, in ExerciseCounter's order; 0 is jumps
+
+    private static int[] run(Trace trace, int samples) {
+        FeatureWindow window = new FeatureWindow(128);
+        DetectorEngine engine = new DetectorEngine(window);
+        engine.register(new JumpDetector());
+        engine.register(LegLiftDetector.squats());
+        engine.register(new PushUpDetector());
+        engine.register(LegLiftDetector.highKnees());
+        int[] counts = new int[4];
+        engine.setListener((id, t) -> counts[id]++);
+        MotionPipeline pipeline = new MotionPipeline(128, new LowPassFilter(10_000_000L),
+                new GravityFilter(800_000_000L), window, engine);
+
+        Random noise = new Random(1);
+        for (int i = 0; i < samples; i++) {
+            float[] v = trace.at(i);
+            pipeline.onSample(v[0] + (float) noise.nextGaussian() * 0.2f, v[1] + (float) noise.nextGaussian() * 0.2f,
+                    v[2] + (float) noise.nextGaussian() * 0.2f, 1_000_000_000L + i * DT_NS);
+        }
+        return counts;
+    }
+
+    /** Phone in a front pocket, thigh {@code angle} radians off vertical. */
+    private static float[] thigh(double angle) {
+        return new float[]{0f, (float) (G * Math.cos(angle)), (float) (G * Math.sin(angle))};
+    }
+
+    @Test
+    public void squatTrace_onlySquats() {
+        // 2 s standing, then 10 reps of 2.5 s: 0.6 s down, 0.8 s hold, 0.6 s up, 0.5 s standing
+        int[] counts = run(i -> {
+            if (i < 100) return thigh(0);
+            int k = (i - 100) % 125;
+            double a = k < 30 ? k / 30.0 : k < 70 ? 1 : k < 100 ? 1 - (k - 70) / 30.0 : 0;
+            return thigh(a * 1.4);
+        }, 100 + 125 * 10);
+        assertArrayEquals(new int[]{0, 10, 0, 0}, counts);
+    }
+
+    @Test
+    public void pushUpTrace_onlyPushUps() {
+        // Lying flat, 10 reps at 0.6 Hz
+        int[] counts = run(i -> {
+            if (i < 100) return new float[]{0f, 0f, G};
+            double t = (i - 100) * 0.02;
+            return new float[]{0f, 0f, (float) (G - 2.5 * Math.sin(2 * Math.PI * 0.6 * t))};
+        }, 100 + (int) (10 / 0.6 / 0.02));
+        assertArrayEquals(new int[]{0, 0, 10, 0}, counts);
+    }
+
+    @Test
+    public void highKneeTrace_kneesNotSquatsOrPushUps() {
+        // 2 s standing, then 20 lifts: 0.16 s up and down with a jolt along the thigh, 0.44 s standing
+        int[] counts = run(i -> {
+            if (i < 100) return thigh(0);
+            int k = (i - 100) % 30;
+            if (k >= 8) return thigh(0);
+            float[] v = thigh(1.4 * Math.sin(Math.PI * k / 8.0));
+            v[1] += 4 * (float) Math.sin(2 * Math.PI * k / 8.0);
+            return v;
+        }, 100 + 30 * 20);
+        // The jolts can also pass for landings, so the jump count isn't checked here
+        assertEquals(20, counts[KNEE]);
+        assertEquals(0, counts[SQUAT]);
+        assertEquals(0, counts[PUSH_UP]);
+    }
+
+    @Test
+    public void stillPhone_nothing() {
+        assertArrayEquals(new int[4], run(i -> thigh(0), 500));
+        assertArrayEquals(new int[4], run(i -> new float[]{0f, 0f, G}, 500));
+    }
+}
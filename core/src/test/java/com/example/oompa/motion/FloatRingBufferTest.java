@@ -0,0 +1,79 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FloatRingBufferTest {
+
+    @Test
+    public void get_isByAgeNewestFirst() {
+        FloatRingBuffer buffer = new FloatRingBuffer(4);
+        buffer.push(1f);
+        buffer.push(2f);
+        buffer.push(3f);
+        assertEquals(3, buffer.size());
+        assertFalse(buffer.isFull());
+        assertEquals(3f, buffer.get(0), 0f);
+        assertEquals(2f, buffer.get(1), 0f);
+        assertEquals(1f, buffer.get(2), 0f);
+        assertEquals(3f, buffer.newest(), 0f);
+        assertEquals(1f, buffer.oldest(), 0f);
+    }
+
+    @Test
+    public void push_pastCapacity_overwritesTheOldest() {
+        FloatRingBuffer buffer = new FloatRingBuffer(3);
+        for (int i = 1; i <= 7; i++) buffer.push(i);
+        assertTrue(buffer.isFull());
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.capacity());
+        assertEquals(7f, buffer.get(0), 0f);
+        assertEquals(6f, buffer.get(1), 0f);
+        assertEquals(5f, buffer.get(2), 0f);
+        assertEquals(5f, buffer.oldest(), 0f);
+    }
+
+    @Test
+    public void get_afterEveryPush_acrossTheWrap() {
+        // Every head position, including the one right at the end of the array
+        FloatRingBuffer buffer = new FloatRingBuffer(5);
+        for (int n = 1; n <= 13; n++) {
+            buffer.push(n);
+            for (int age = 0; age < buffer.size(); age++) {
+                assertEquals(n - age, buffer.get(age), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void get_outsideTheHeldValues_throws() {
+        FloatRingBuffer buffer = new FloatRingBuffer(3);
+        assertThrows(IndexOutOfBoundsException.class, buffer::newest);
+        buffer.push(1f);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(-1));
+        for (int i = 0; i < 5; i++) buffer.push(i);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+    }
+
+    @Test
+    public void clear_emptiesAndRestarts() {
+        FloatRingBuffer buffer = new FloatRingBuffer(2);
+        buffer.push(1f);
+        buffer.push(2f);
+        buffer.push(3f);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertThrows(IndexOutOfBoundsException.class, buffer::oldest);
+        buffer.push(4f);
+        assertEquals(4f, buffer.newest(), 0f);
+        assertEquals(4f, buffer.oldest(), 0f);
+    }
+
+    @Test
+    public void capacity_mustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new FloatRingBuffer(0));
+        assertThrows(IllegalArgumentException.class, () -> new FloatRingBuffer(-1));
+    }
+}
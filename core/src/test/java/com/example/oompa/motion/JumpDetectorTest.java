@@ -0,0 +1,141 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the detector filtered magnitudes directly at 50 Hz; it only reads
+ * {@code filteredMagnitude} and the timestamps, so no upstream stages are needed.
+ */
+public class JumpDetectorTest {
+
+    private static final long DT_NS = 20_000_000L;
+    private static final float G = 9.81f;
+    // |a| of one jump, m/s² (push-off, free fall, landing)
+    private static final float[] JUMP = {13.9f, 14.8f, 11.7f, 5.0f, 3.3f, 4.2f, 7.9f, 18.4f, 19.8f, 11.8f};
+
+    private final JumpDetector detector = new JumpDetector();
+    private final FeatureWindow window = new FeatureWindow(8);
+    private final MotionFrame frame = new MotionFrame();
+    private final Random noise = new Random(1);
+    private long timeNs = 1_000_000_000L;
+    private boolean first = true;
+
+    /** Returns how many reps the detector reported over these samples. */
+    private int feed(float... magnitudes) {
+        int reps = 0;
+        for (float m : magnitudes) {
+            frame.timestampNs = timeNs;
+            frame.dtNs = first ? 0L : DT_NS;
+            frame.filteredMagnitude = m;
+            if (detector.process(frame, window)) reps++;
+            first = false;
+            timeNs += DT_NS;
+        }
+        return reps;
+    }
+
+    private int stand(double seconds) {
+        int reps = 0;
+        for (int i = 0; i < seconds * 50; i++) reps += feed(G + (float) noise.nextGaussian() * 0.1f);
+        return reps;
+    }
+
+    private static float[] hold(float m, int samples) {
+        float[] out = new float[samples];
+        Arrays.fill(out, m);
+        return out;
+    }
+
+    @Test
+    public void jump_isCounted() {
+        assertEquals(0, stand(1));
+        assertEquals(1, feed(JUMP));
+        assertEquals(0, stand(1.5));
+        assertEquals(1, detector.getAcceptedJumps());
+        assertEquals(0, detector.getRejectedJumps());
+        assertEquals(G, detector.getBaseline(), 0.2f);
+    }
+
+    @Test
+    public void warmUp_noDetections() {
+        // Jumping from the very first sample: the baseline hasn't settled yet
+        assertEquals(0, feed(JUMP));
+        assertEquals(0, detector.getAcceptedJumps() + detector.getRejectedJumps());
+    }
+
+    @Test
+    public void subThresholdBump_isIgnored() {
+        stand(1);
+        // 1.5 m/s² either side of g: below MIN_RISE / MIN_DIP, so never even a candidate
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, feed(11.3f, 11.3f, 8.3f, 8.3f, 8.3f, 11.3f, G, G, G, G));
+        }
+        assertEquals(0, detector.getAcceptedJumps());
+        assertEquals(0, detector.getRejectedJumps());
+    }
+
+    @Test
+    public void landingInsideRefractoryGate_isRejected() {
+        stand(1);
+        // Second landing 60 ms after the first: too fast for a jump, it's shaking
+        assertEquals(1, feed(14.8f, 4.0f, 4.0f, 18.4f, 18.4f, 4.0f, 18.4f));
+        stand(1);
+        assertEquals(1, detector.getAcceptedJumps());
+        assertEquals(1, detector.getRejectedJumps());
+    }
+
+    @Test
+    public void flightTooLong_isRejected() {
+        stand(1);
+        // 900 ms between push-off and landing is a slow swing, not a jump
+        int reps = feed(14.8f);
+        reps += feed(hold(4.0f, 44));
+        reps += feed(18.4f);
+        assertEquals(0, reps);
+        assertEquals(0, detector.getAcceptedJumps());
+        assertEquals(1, detector.getRejectedJumps());
+    }
+
+    @Test
+    public void reset_keepsWhatItLearned() {
+        stand(1);
+        assertEquals(1, feed(JUMP));
+        stand(1);
+        float baseline = detector.getBaseline();
+        float noiseFloor = detector.getNoiseFloor();
+
+        detector.reset();
+        assertEquals(baseline, detector.getBaseline(), 0f);
+        assertEquals(noiseFloor, detector.getNoiseFloor(), 0f);
+        // No new warm-up: the very next jump counts
+        assertEquals(1, feed(JUMP));
+        assertEquals(2, detector.getAcceptedJumps());
+    }
+
+    @Test
+    public void reset_dropsTheHalfFinishedJump() {
+        stand(1);
+        feed(14.8f, 4.0f, 4.0f);   // in the air
+        detector.reset();
+        // Back on the ground, so this spike is a push-off, not a landing
+        assertEquals(0, feed(18.4f));
+        stand(1.5);
+        assertEquals(0, detector.getAcceptedJumps());
+        assertEquals(0, detector.getRejectedJumps());
+    }
+
+    @Test
+    public void reset_clearsTheRefractoryGate() {
+        stand(1);
+        assertEquals(1, feed(14.8f, 4.0f, 4.0f, 18.4f));
+        detector.reset();
+        // Same 80 ms spacing as a rejected landing, but the gap forgot the last one
+        assertEquals(1, feed(14.8f, 4.0f, 4.0f, 18.4f));
+        assertEquals(0, detector.getRejectedJumps());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the detector with the uprightness feature directly at 50 Hz:
+ * 1 is the thigh vertical, 0 horizontal.
+ */
+public class LegLiftDetectorTest {
+
+    private static final long DT_NS = 20_000_000L;
+    private static final float STRAIGHT = 0.95f;
+    private static final float LIFTED = 0.1f;
+
+    private final MotionFrame frame = new MotionFrame();
+    private long timeNs = 1_000_000_000L;
+
+    /** Returns how many reps were reported over {@code samples} samples at uprightness {@code u}. */
+    private int feed(LegLiftDetector detector, float u, int samples) {
+        int reps = 0;
+        for (int i = 0; i < samples; i++) {
+            frame.timestampNs = timeNs;
+            frame.uprightness = u;
+            if (detector.process(frame, null)) reps++;
+            timeNs += DT_NS;
+        }
+        return reps;
+    }
+
+    /** Standing, then {@code count} lifts of {@code liftSamples} each followed by {@code standSamples}. */
+    private int lifts(LegLiftDetector detector, int count, int liftSamples, int standSamples) {
+        int reps = feed(detector, STRAIGHT, 50);
+        for (int i = 0; i < count; i++) {
+            reps += feed(detector, LIFTED, liftSamples);
+            reps += feed(detector, STRAIGHT, standSamples);
+        }
+        return reps;
+    }
+
+    @Test
+    public void squats_countedOnStandingUp() {
+        LegLiftDetector squats = LegLiftDetector.squats();
+        assertEquals(0, feed(squats, STRAIGHT, 50));
+        assertEquals(0, feed(squats, LIFTED, 50));     // holding the squat
+        assertEquals(1, feed(squats, STRAIGHT, 1));    // the rep lands as the thigh straightens
+        assertEquals(10, lifts(squats, 10, 50, 50));
+    }
+
+    @Test
+    public void squats_rejectFlicksAndSitting() {
+        LegLiftDetector squats = LegLiftDetector.squats();
+        assertEquals(0, lifts(squats, 10, 10, 40));    // 0.2 s: a high knee, not a squat
+        assertEquals(0, lifts(squats, 1, 300, 50));    // 6 s: sat down
+    }
+
+    @Test
+    public void highKnees_countEveryLift() {
+        LegLiftDetector knees = LegLiftDetector.highKnees();
+        assertEquals(20, lifts(knees, 20, 10, 20));
+    }
+
+    @Test
+    public void highKnees_rejectSlowLifts() {
+        LegLiftDetector knees = LegLiftDetector.highKnees();
+        assertEquals(0, lifts(knees, 10, 50, 50));     // a squat's 1 s hold
+        assertEquals(0, lifts(knees, 10, 2, 20));      // 40 ms: a jolt, not a lift
+    }
+
+    @Test
+    public void highKnees_tooCloseTogether_onlyEveryOtherCounts() {
+        // 100 ms up, 40 ms down: the 250 ms spacing gate lets every second one through
+        LegLiftDetector knees = LegLiftDetector.highKnees();
+        assertEquals(5, lifts(knees, 10, 5, 2));
+    }
+
+    @Test
+    public void betweenTheThresholds_isNeitherUpNorDown() {
+        LegLiftDetector squats = LegLiftDetector.squats();
+        feed(squats, STRAIGHT, 50);
+        assertEquals(0, feed(squats, 0.5f, 100));
+        assertEquals(0, feed(squats, STRAIGHT, 50));
+
+        // And a lift that only comes back to 0.5 hasn't finished
+        feed(squats, LIFTED, 50);
+        assertEquals(0, feed(squats, 0.5f, 50));
+        assertEquals(1, feed(squats, STRAIGHT, 50));
+    }
+
+    @Test
+    public void startingLifted_notCounted() {
+        LegLiftDetector squats = LegLiftDetector.squats();
+        assertEquals(0, feed(squats, LIFTED, 50));
+        assertEquals(0, feed(squats, STRAIGHT, 50));
+        assertEquals(1, lifts(squats, 1, 50, 50));
+    }
+
+    @Test
+    public void reset_dropsTheHalfFinishedRep() {
+        LegLiftDetector squats = LegLiftDetector.squats();
+        feed(squats, STRAIGHT, 50);
+        feed(squats, LIFTED, 50);
+        squats.reset();
+        assertEquals(0, feed(squats, STRAIGHT, 50));
+        assertEquals(1, lifts(squats, 1, 50, 50));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MotionPipelineTest {
+
+    private static final long DT_NS = 20_000_000L;
+
+    /** Records what it saw into a shared log, tagged with its name. */
+    private static class Recorder implements MotionStage {
+        final String name;
+        final List<String> log;
+        final List<Long> dts = new ArrayList<>();
+        int resets;
+
+        Recorder(String name, List<String> log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        @Override
+        public void process(MotionFrame frame) {
+            log.add(name);
+            dts.add(frame.dtNs);
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @Test
+    public void stages_runInRegistrationOrder() {
+        List<String> log = new ArrayList<>();
+        MotionPipeline pipeline = new MotionPipeline(4,
+                new Recorder("a", log), new Recorder("b", log), new Recorder("c", log));
+        pipeline.onSample(0f, 0f, 9.81f, 1_000L);
+        pipeline.onSample(0f, 0f, 9.81f, 2_000L);
+        assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"), log);
+    }
+
+    @Test
+    public void laterStages_seeEarlierWrites() {
+        MotionStage doubler = new MotionStage() {
+            @Override
+            public void process(MotionFrame frame) {
+                frame.fz = frame.z * 2f;
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+        float[] seen = new float[1];
+        MotionStage reader = new MotionStage() {
+            @Override
+            public void process(MotionFrame frame) {
+                seen[0] = frame.fz;
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+        new MotionPipeline(4, doubler, reader).onSample(0f, 0f, 3f, 1L);
+        assertEquals(6f, seen[0], 0f);
+    }
+
+    @Test
+    public void dt_isZeroOnTheFirstFrameThenTheSpacing() {
+        Recorder stage = new Recorder("a", new ArrayList<>());
+        MotionPipeline pipeline = new MotionPipeline(4, stage);
+        pipeline.onSample(0f, 0f, 9.81f, 5_000_000_000L);
+        assertEquals(0L, pipeline.lastFrame().dtNs);
+        pipeline.onSample(0f, 0f, 9.81f, 5_000_000_000L + DT_NS);
+        pipeline.onSample(0f, 0f, 9.81f, 5_000_000_000L + 3 * DT_NS);
+        assertEquals(Arrays.asList(0L, DT_NS, 2 * DT_NS), stage.dts);
+        assertEquals(0.04f, pipeline.getIntervalHistory().newest(), 1e-6f);
+        assertEquals(0f, pipeline.getIntervalHistory().oldest(), 0f);
+    }
+
+    @Test
+    public void duplicateOrOutOfOrderSamples_dropped() {
+        Recorder stage = new Recorder("a", new ArrayList<>());
+        MotionPipeline pipeline = new MotionPipeline(4, stage);
+        pipeline.onSample(0f, 0f, 1f, 1_000L);
+        pipeline.onSample(0f, 0f, 2f, 1_000L);
+        pipeline.onSample(0f, 0f, 3f, 500L);
+        assertEquals(1, stage.dts.size());
+        assertEquals(2, pipeline.getDroppedSamples());
+        assertEquals(1, pipeline.getMagnitudeHistory().size());
+        assertEquals(1f, pipeline.lastFrame().z, 0f);
+    }
+
+    @Test
+    public void longGap_resetsTheStagesAndRestartsDt() {
+        Recorder stage = new Recorder("a", new ArrayList<>());
+        MotionPipeline pipeline = new MotionPipeline(4, stage);
+        pipeline.onSample(0f, 0f, 9.81f, 0L);
+        pipeline.onSample(0f, 0f, 9.81f, DT_NS);
+        pipeline.onSample(0f, 0f, 9.81f, DT_NS + 600_000_000L);
+        assertEquals(1, stage.resets);
+        assertEquals(0L, pipeline.lastFrame().dtNs);
+        assertEquals(3, pipeline.getMagnitudeHistory().size());   // history survives, only the filters restart
+    }
+
+    @Test
+    public void history_holdsTheFilteredMagnitudeSquared() {
+        MotionPipeline pipeline = new MotionPipeline(2);
+        pipeline.onSample(3f, 4f, 0f, 1L);
+        pipeline.onSample(0f, 0f, 2f, 2L);
+        pipeline.onSample(1f, 0f, 0f, 3L);
+        FloatRingBuffer history = pipeline.getMagnitudeHistory();
+        assertEquals(2, history.size());
+        assertEquals(1f, history.get(0), 0f);
+        assertEquals(4f, history.get(1), 0f);
+    }
+
+    @Test
+    public void onSamples_sameAsOneAtATime() {
+        float[] xyz = {0f, 0f, 9f, 1f, 0f, 9f, 0f, 2f, 9f, 0f, 0f, 12f};
+        long[] ts = {0L, DT_NS, 2 * DT_NS, 3 * DT_NS};
+
+        MotionPipeline single = new MotionPipeline(8, new LowPassFilter(50_000_000L), new GravityFilter(800_000_000L));
+        for (int i = 0; i < ts.length; i++) {
+            single.onSample(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], ts[i]);
+        }
+        MotionPipeline batched = new MotionPipeline(8, new LowPassFilter(50_000_000L), new GravityFilter(800_000_000L));
+        batched.onSamples(xyz, ts, ts.length);
+
+        for (int age = 0; age < ts.length; age++) {
+            assertEquals(single.getMagnitudeHistory().get(age), batched.getMagnitudeHistory().get(age), 0f);
+        }
+        assertEquals(single.lastFrame().lz, batched.lastFrame().lz, 0f);
+    }
+
+    @Test
+    public void reset_startsOverFromTheFirstFrame() {
+        Recorder stage = new Recorder("a", new ArrayList<>());
+        MotionPipeline pipeline = new MotionPipeline(4, stage);
+        pipeline.onSample(0f, 0f, 9.81f, 1_000L);
+        pipeline.onSample(0f, 0f, 9.81f, 1_000L);
+        pipeline.reset();
+        assertEquals(1, stage.resets);
+        assertEquals(0, pipeline.getDroppedSamples());
+        assertEquals(0, pipeline.getMagnitudeHistory().size());
+        assertEquals(0, pipeline.getIntervalHistory().size());
+
+        // An earlier timestamp is fine now: it's a new stream
+        pipeline.onSample(0f, 0f, 9.81f, 500L);
+        assertEquals(0L, pipeline.lastFrame().dtNs);
+        assertEquals(2, stage.dts.size());
+    }
+}
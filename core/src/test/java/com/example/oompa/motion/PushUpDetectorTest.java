@@ -0,0 +1,85 @@
+package com.example.oompa.motion;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs synthetic traces through the real filter chain, since the detector works
+ * from the peaks the {@link FeatureWindow} confirms. Lying flat means gravity on z.
+ */
+public class PushUpDetectorTest {
+
+    private static final long DT_NS = 20_000_000L;
+    private static final float G = 9.81f;
+
+    private final FeatureWindow window = new FeatureWindow(128);
+    private final DetectorEngine engine = new DetectorEngine(window);
+    private final MotionPipeline pipeline = new MotionPipeline(128,
+            new LowPassFilter(10_000_000L), new GravityFilter(800_000_000L), window, engine);
+    private final Random noise = new Random(1);
+    private long timeNs = 1_000_000_000L;
+    private int reps;
+
+    public PushUpDetectorTest() {
+        engine.register(new PushUpDetector());
+        engine.setListener((id, t) -> reps++);
+    }
+
+    private void sample(float x, float y, float z) {
+        pipeline.onSample(x + (float) noise.nextGaussian() * 0.2f, y + (float) noise.nextGaussian() * 0.2f,
+                z + (float) noise.nextGaussian() * 0.2f, timeNs);
+        timeNs += DT_NS;
+    }
+
+    /** Lying flat, then {@code count} swings of the given amplitude along gravity. */
+    private void lyingSwings(double hz, float amplitude, int count) {
+        for (int i = 0; i < 100; i++) sample(0f, 0f, G);
+        int samples = (int) (count / hz * 50);
+        for (int i = 0; i < samples; i++) {
+            sample(0f, 0f, G - amplitude * (float) Math.sin(2 * Math.PI * hz * i * 0.02));
+        }
+    }
+
+    @Test
+    public void pushUps_counted() {
+        lyingSwings(0.6, 2.5f, 10);
+        assertEquals(10, reps);
+    }
+
+    @Test
+    public void lyingStill_noReps() {
+        lyingSwings(0.6, 0f, 10);
+        assertEquals(0, reps);
+    }
+
+    @Test
+    public void shuffle_tooSmall() {
+        lyingSwings(0.6, 0.5f, 10);
+        assertEquals(0, reps);
+    }
+
+    @Test
+    public void shaking_tooFast() {
+        lyingSwings(3, 2.5f, 30);
+        assertEquals(0, reps);
+    }
+
+    @Test
+    public void impacts_tooBig() {
+        lyingSwings(0.6, 6f, 10);
+        assertEquals(0, reps);
+    }
+
+    @Test
+    public void standingBounce_notAPushUp() {
+        // Same swing, but with the phone upright: knee bends, not push-ups
+        for (int i = 0; i < 100; i++) sample(0f, G, 0f);
+        for (int i = 0; i < 10 / 0.6 * 50; i++) {
+            sample(0f, G - 2.5f * (float) Math.sin(2 * Math.PI * 0.6 * i * 0.02), 0f);
+        }
+        assertEquals(0, reps);
+    }
+}
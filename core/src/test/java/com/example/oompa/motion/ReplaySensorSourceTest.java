@@ -0,0 +1,95 @@
+package com.example.oompa.motion;
+
+import com.example.oompa.ExerciseCounter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays recorded accelerometer traces (test resources) through the detector,
+ * the same way the device feeds it from the hardware FIFO.
+ */
+public class ReplaySensorSourceTest {
+
+    // ExerciseCounter is a process-wide singleton, possibly created by another test class
+    private static final AtomicLong credits = new AtomicLong();
+    private static final ExerciseCounter counter = ExerciseCounter.getInstance(credits::addAndGet);
+
+    @Before
+    public void setUp() {
+        counter.reset();
+        counter.setCreditSink(credits::addAndGet);
+        credits.set(0L);
+    }
+
+    private static ReplaySensorSource trace(String name, int batchSize) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                ReplaySensorSourceTest.class.getResourceAsStream("/traces/" + name), StandardCharsets.UTF_8)) {
+            return ReplaySensorSource.fromCsv(reader, batchSize);
+        }
+    }
+
+    private static int countJumps(ReplaySensorSource source) {
+        final int[] jumps = {0};
+        FeatureWindow features = new FeatureWindow(128);
+        DetectorEngine engine = new DetectorEngine(features);
+        engine.register(new JumpDetector());
+        engine.setListener((id, t) -> jumps[0]++);
+        MotionPipeline pipeline = new MotionPipeline(128,
+                new LowPassFilter(10_000_000L),
+                new GravityFilter(800_000_000L),
+                features,
+                engine);
+        source.start(pipeline::onSamples);
+        return jumps[0];
+    }
+
+    @Test
+    public void parsesTrace() throws IOException {
+        assertEquals(650, trace("jumping_50hz.csv", 1).size());
+    }
+
+    @Test
+    public void jumpingTrace_countsEveryJump() throws IOException {
+        assertEquals(20, countJumps(trace("jumping_50hz.csv", 15)));
+    }
+
+    @Test
+    public void batchSize_doesNotChangeResult() throws IOException {
+        int perSample = countJumps(trace("jumping_50hz.csv", 1));
+        assertEquals(perSample, countJumps(trace("jumping_50hz.csv", 15)));
+        assertEquals(perSample, countJumps(trace("jumping_50hz.csv", 64)));
+    }
+
+    @Test
+    public void jumpingTrace_earnsCredit() throws IOException {
+        trace("jumping_50hz.csv", 15).start(counter);
+        assertEquals(10, counter.getJumpingJackCount());
+        assertEquals(10L * 60 * 1000, credits.get());
+        assertEquals(2f, counter.getCadenceHz(), 0.25f);
+    }
+
+    @Test
+    public void shakingTrace_earnsNothing() throws IOException {
+        trace("shaking_50hz.csv", 15).start(counter);
+        assertEquals(0L, credits.get());
+    }
+
+    @Test
+    public void stop_endsReplayEarly() throws IOException {
+        final ReplaySensorSource source = trace("jumping_50hz.csv", 10);
+        final int[] batches = {0};
+        source.start((xyz, ts, count) -> {
+            if (++batches[0] == 3) source.stop();
+        });
+        assertEquals(3, batches[0]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.oompa.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlockDispatcherTest {
+
+    private BlockDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        dispatcher = new BlockDispatcher(750L);
+    }
+
+    @Test
+    public void burstWithinWindow_dispatchesOnce() {
+        assertTrue(dispatcher.offer(3, 1_000L));
+        assertFalse(dispatcher.offer(3, 1_200L));
+        assertFalse(dispatcher.offer(3, 1_749L));
+        assertEquals(1, dispatcher.getDispatchedCount());
+        assertEquals(2, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void afterWindow_dispatchesAgain() {
+        assertTrue(dispatcher.offer(3, 1_000L));
+        assertTrue(dispatcher.offer(3, 1_750L));
+    }
+
+    @Test
+    public void otherPackages_areIndependent() {
+        assertTrue(dispatcher.offer(3, 1_000L));
+        assertTrue(dispatcher.offer(4, 1_010L));
+    }
+
+    @Test
+    public void showing_dropsEvenAfterWindow() {
+        assertTrue(dispatcher.offer(3, 1_000L));
+        dispatcher.onBlockShown(3);
+        assertFalse(dispatcher.offer(3, 60_000L));
+    }
+
+    @Test
+    public void hide_letsNextRequestThrough() {
+        assertTrue(dispatcher.offer(3, 1_000L));
+        dispatcher.onBlockShown(3);
+        dispatcher.onBlockHidden();
+        assertTrue(dispatcher.offer(3, 1_100L));   // inside the old window, but the screen went away
+    }
+
+    @Test
+    public void hideWithNothingShowing_isHarmless() {
+        dispatcher.onBlockHidden();
+        assertTrue(dispatcher.offer(0, 1L));
+    }
+
+    @Test
+    public void noId_isNeverDispatched() {
+        assertFalse(dispatcher.offer(PackageTable.NO_ID, 1_000L));
+        assertEquals(0, dispatcher.getDispatchedCount());
+    }
+
+    @Test
+    public void largeIds_growTheTable() {
+        assertTrue(dispatcher.offer(5_000, 1_000L));
+        assertFalse(dispatcher.offer(5_000, 1_001L));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.oompa.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class BlockerSnapshotTest {
+
+    // The engine is a process-wide singleton; put every piece of state back first
+    private final BlockerStateEngine engine = BlockerStateEngine.getInstance();
+
+    @Before
+    public void setUp() {
+        engine.setUnlock(false, 0L);
+        engine.setExemptPackages(Collections.singleton("com.android.launcher"));
+        engine.setLockedPackages(Arrays.asList("com.video", "com.chat"));
+        engine.setExhausted(new BitSet());
+        engine.setLockPatterns(Collections.<String>emptyList());
+        engine.setScheduleRules(Collections.<ScheduleRule>emptyList(), TimeZone.getTimeZone("UTC"), 0L);
+    }
+
+    @Test
+    public void emptySnapshot_blocksNothing() {
+        assertFalse(BlockerSnapshot.EMPTY.shouldBlock("com.video"));
+        assertFalse(BlockerSnapshot.EMPTY.shouldBlock(PackageTable.NO_ID));
+    }
+
+    @Test
+    public void lockedPackages_areBlocked() {
+        BlockerSnapshot s = engine.snapshot();
+        assertTrue(s.shouldBlock("com.video"));
+        assertTrue(s.shouldBlock(new StringBuilder("com.chat")));
+        assertFalse(s.shouldBlock("com.maps"));
+        assertFalse(s.shouldBlock((CharSequence) null));
+        assertEquals(2, s.getLockedCount());
+    }
+
+    @Test
+    public void exempt_winsOverLocked() {
+        BlockerSnapshot s = engine.setLockedPackages(Arrays.asList("com.video", "com.android.launcher"));
+        assertFalse(s.shouldBlock("com.android.launcher"));
+        assertTrue(s.isExempt(s.idOf("com.android.launcher")));
+    }
+
+    @Test
+    public void unlock_blocksNothing() {
+        BlockerSnapshot s = engine.setUnlock(true, 60_000L);
+        assertFalse(s.shouldBlock("com.video"));
+        assertTrue(s.isUnlockActive());
+        assertEquals(60_000L, s.getUnlockDeadline());
+        assertTrue(engine.setUnlock(false, 0L).shouldBlock("com.video"));
+    }
+
+    @Test
+    public void exhausted_blocksUnlockedApps() {
+        BlockerSnapshot s = engine.internPackages(Collections.singleton("com.maps"));
+        BitSet out = new BitSet();
+        out.set(s.idOf("com.maps"));
+        s = engine.setExhausted(out);
+        assertTrue(s.shouldBlock("com.maps"));
+        assertTrue(s.isOverBudget(s.idOf("com.maps")));
+        assertFalse(engine.setUnlock(true, 1L).shouldBlock("com.maps"));
+    }
+
+    @Test
+    public void exhausted_doesNotBeatExempt() {
+        BlockerSnapshot s = engine.snapshot();
+        BitSet out = new BitSet();
+        out.set(s.idOf("com.android.launcher"));
+        assertFalse(engine.setExhausted(out).shouldBlock("com.android.launcher"));
+    }
+
+    @Test
+    public void updates_publishNewSnapshots() {
+        BlockerSnapshot before = engine.snapshot();
+        BlockerSnapshot after = engine.updateLockedPackages(
+                Collections.singleton("com.maps"), Collections.singleton("com.video"));
+        assertNotSame(before, after);
+        assertSame(after, engine.snapshot());
+        assertTrue(before.shouldBlock("com.video"));     // old readers keep their view
+        assertFalse(after.shouldBlock("com.video"));
+        assertTrue(after.shouldBlock("com.maps"));
+    }
+
+    @Test
+    public void ids_stayStableAcrossUpdates() {
+        int id = engine.snapshot().idOf("com.video");
+        engine.setLockedPackages(Arrays.asList("com.a", "com.b", "com.c"));
+        assertEquals(id, engine.snapshot().idOf("com.video"));
+        assertEquals("com.video", engine.snapshot().packageName(id));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.oompa.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CreditLedgerTest {
+
+    // Records every write and every flush request instead of touching prefs or a Handler
+    private static final class FakeStore implements CreditLedger.Store {
+        long earned;
+        long deadline;
+        int writes;
+
+        @Override public long loadEarnedCredits() { return earned; }
+        @Override public long loadUnlockDeadline() { return deadline; }
+        @Override public void writeCreditState(long earnedCredits, long unlockDeadline) {
+            earned = earnedCredits;
+            deadline = unlockDeadline;
+            writes++;
+        }
+    }
+
+    private FakeStore store;
+    private List<Long> scheduled;
+    private CreditLedger ledger;
+
+    @Before
+    public void setUp() {
+        store = new FakeStore();
+        store.earned = 5_000L;
+        scheduled = new ArrayList<>();
+        ledger = new CreditLedger(store, 3, 10_000L, scheduled::add);
+    }
+
+    @Test
+    public void loadsStoredState() {
+        assertEquals(5_000L, ledger.getEarnedCredits());
+        assertEquals(0L, ledger.getUnlockDeadline());
+    }
+
+    @Test
+    public void creditChanges_areBatched() {
+        ledger.addCredits(1_000L);
+        ledger.addCredits(1_000L);
+        assertEquals(0, store.writes);
+        assertEquals(1, scheduled.size());      // only the first change of a window schedules
+        assertEquals(10_000L, (long) scheduled.get(0));
+
+        ledger.addCredits(1_000L);               // third change hits maxPendingChanges
+        assertEquals(1, store.writes);
+        assertEquals(8_000L, store.earned);
+    }
+
+    @Test
+    public void scheduledFlush_writesOnlyWhenChanged() {
+        ledger.addCredits(1_000L);
+        assertTrue(ledger.flush());
+        assertEquals(6_000L, store.earned);
+        assertFalse(ledger.flush());
+        assertEquals(1, ledger.getFlushCount());
+
+        // A new window schedules again after the flush
+        ledger.addCredits(1_000L);
+        assertEquals(2, scheduled.size());
+    }
+
+    @Test
+    public void deadlineChanges_writeThrough() {
+        List<Long> notified = new ArrayList<>();
+        ledger.setDeadlineListener(notified::add);
+        ledger.setUnlockDeadline(123_456L);
+        assertEquals(1, store.writes);
+        assertEquals(123_456L, store.deadline);
+
+        ledger.clearUnlockDeadline();
+        ledger.clearUnlockDeadline();            // already clear: no write, no callback
+        assertEquals(2, store.writes);
+        assertEquals(0L, store.deadline);
+        assertEquals(2, notified.size());
+        assertEquals(0L, (long) notified.get(1));
+    }
+
+    @Test
+    public void takeCredits_emptiesBalance() {
+        assertEquals(5_000L, ledger.takeCredits());
+        assertEquals(0L, ledger.getEarnedCredits());
+        assertEquals(0L, ledger.takeCredits());
+        ledger.flush();
+        assertEquals(0L, store.earned);
+    }
+
+    @Test
+    public void unlockRemaining_neverNegative() {
+        ledger.setUnlockDeadline(10_000L);
+        assertEquals(4_000L, ledger.getUnlockRemaining(6_000L));
+        assertEquals(0L, ledger.getUnlockRemaining(20_000L));
+    }
+}
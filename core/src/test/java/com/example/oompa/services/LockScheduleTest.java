@@ -0,0 +1,224 @@
+package com.example.oompa.services;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class LockScheduleTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone LONDON = TimeZone.getTimeZone("Europe/London");
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+
+    private static final PackageTable TABLE = PackageTable.EMPTY.internAll(
+            Arrays.asList("com.video", "com.chat", "com.game", "com.mail"));
+    private static final int VIDEO = TABLE.indexOf("com.video");
+    private static final int CHAT = TABLE.indexOf("com.chat");
+    private static final int GAME = TABLE.indexOf("com.game");
+    private static final int MAIL = TABLE.indexOf("com.mail");
+
+    private static long at(TimeZone tz, int year, int month, int day, int hour, int minute) {
+        GregorianCalendar c = new GregorianCalendar(tz);
+        c.clear();
+        c.set(year, month - 1, day, hour, minute);
+        return c.getTimeInMillis();
+    }
+
+    private static int minute(int hour, int minute) {
+        return hour * 60 + minute;
+    }
+
+    // Monday 16 March 2026, midnight UTC
+    private static final long MONDAY = at(UTC, 2026, 3, 16, 0, 0);
+
+    private static LockSchedule week(TimeZone tz, long from, ScheduleRule... rules) {
+        return LockSchedule.compile(Arrays.asList(rules), TABLE, tz, from, from + 7 * DAY);
+    }
+
+    @Test
+    public void noRules_alwaysLocked() {
+        LockSchedule schedule = LockSchedule.compile(Collections.<ScheduleRule>emptyList(), TABLE, UTC,
+                MONDAY, MONDAY + 7 * DAY);
+        assertSame(LockSchedule.ALWAYS, schedule);
+        assertTrue(schedule.isLocked(VIDEO, MONDAY));
+        assertTrue(schedule.isLocked(PackageTable.NO_ID, MONDAY + 100 * DAY));
+        assertEquals(Long.MAX_VALUE, schedule.nextTransition(MONDAY));
+        assertEquals(Long.MAX_VALUE, schedule.getValidUntil());
+    }
+
+    @Test
+    public void dailyWindow_lockedInsideOnly() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, minute(9, 0), minute(17, 0)));
+        long nine = MONDAY + 9 * HOUR;
+        long five = MONDAY + 17 * HOUR;
+        assertFalse(schedule.isLocked(VIDEO, nine - 1));
+        assertTrue(schedule.isLocked(VIDEO, nine));
+        assertTrue(schedule.isLocked(VIDEO, five - 1));
+        assertFalse(schedule.isLocked(VIDEO, five));   // end is exclusive
+        assertEquals(nine, schedule.nextTransition(MONDAY));
+        assertEquals(five, schedule.nextTransition(nine));
+        assertEquals(nine + DAY, schedule.nextTransition(five));
+    }
+
+    @Test
+    public void overnightWindow_runsPastMidnight() {
+        // Compiled from Tuesday: Monday's window still covers Tuesday's small hours
+        long tuesday = MONDAY + DAY;
+        LockSchedule schedule = week(UTC, tuesday,
+                ScheduleRule.lock(null, ScheduleRule.MONDAY, minute(22, 0), minute(6, 0)));
+        assertTrue(schedule.isLocked(VIDEO, tuesday));
+        assertTrue(schedule.isLocked(VIDEO, tuesday + 6 * HOUR - 1));
+        assertFalse(schedule.isLocked(VIDEO, tuesday + 6 * HOUR));
+        assertFalse(schedule.isLocked(VIDEO, tuesday + 23 * HOUR));   // Tuesday isn't in the rule
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + 7 * DAY + 23 * HOUR));
+    }
+
+    @Test
+    public void weekdayBits_mondayFirst() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.WEEKDAYS, minute(9, 0), minute(17, 0)));
+        for (int d = 0; d < 7; d++) {
+            assertEquals("day " + d, d < 5, schedule.isLocked(VIDEO, MONDAY + d * DAY + 12 * HOUR));
+        }
+    }
+
+    @Test
+    public void exception_carvesOutOfLock() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, 0, ScheduleRule.MINUTES_PER_DAY),
+                ScheduleRule.exception(null, ScheduleRule.EVERY_DAY, minute(12, 0), minute(13, 0)));
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + 11 * HOUR));
+        assertFalse(schedule.isLocked(VIDEO, MONDAY + 12 * HOUR + 30 * 60_000));
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + 13 * HOUR));
+        assertEquals(MONDAY + 12 * HOUR, schedule.nextTransition(MONDAY));
+    }
+
+    @Test
+    public void onlyExceptions_lockedAroundTheClockOtherwise() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.exception(null, ScheduleRule.WEEKEND, 0, ScheduleRule.MINUTES_PER_DAY));
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + 3 * HOUR));
+        assertFalse(schedule.isLocked(VIDEO, MONDAY + 5 * DAY + 3 * HOUR));
+        assertEquals(MONDAY + 5 * DAY, schedule.nextTransition(MONDAY));
+    }
+
+    @Test
+    public void datedException_onlyInItsRange() {
+        // A holiday on Wednesday
+        long wednesday = MONDAY + 2 * DAY;
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.WEEKDAYS, minute(9, 0), minute(17, 0)),
+                ScheduleRule.exception(null, ScheduleRule.EVERY_DAY, 0, ScheduleRule.MINUTES_PER_DAY)
+                        .between(wednesday, wednesday + DAY));
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + DAY + 10 * HOUR));
+        assertFalse(schedule.isLocked(VIDEO, wednesday + 10 * HOUR));
+        assertTrue(schedule.isLocked(VIDEO, wednesday + DAY + 10 * HOUR));
+    }
+
+    @Test
+    public void datedRule_outsideHorizon_contributesNothing() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, minute(9, 0), minute(17, 0))
+                        .between(MONDAY + 30 * DAY, 0L));
+        for (int d = 0; d < 7; d++) assertFalse(schedule.isLocked(VIDEO, MONDAY + d * DAY + 12 * HOUR));
+        assertEquals(MONDAY + 7 * DAY, schedule.nextTransition(MONDAY));
+    }
+
+    @Test
+    public void perAppAndGroupRules_getTheirOwnClasses() {
+        LockSchedule schedule = week(UTC, MONDAY,
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, minute(9, 0), minute(17, 0)),
+                ScheduleRule.lock(Collections.singletonList("com.video"), ScheduleRule.EVERY_DAY,
+                        minute(20, 0), minute(22, 0)),
+                ScheduleRule.exception(Arrays.asList("com.chat", "com.game", "com.not.installed"),
+                        ScheduleRule.EVERY_DAY, minute(12, 0), minute(13, 0)));
+
+        assertEquals(3, schedule.classCount());
+        assertEquals(0, schedule.classOf(MAIL));
+        assertEquals(0, schedule.classOf(PackageTable.NO_ID));
+        assertEquals(0, schedule.classOf(TABLE.size() + 5));   // interned after compiling
+        assertEquals(schedule.classOf(CHAT), schedule.classOf(GAME));
+        assertNotEquals(schedule.classOf(VIDEO), schedule.classOf(CHAT));
+        assertEquals(3, schedule.namedPackageCount());
+
+        long noonish = MONDAY + 12 * HOUR + 30 * 60_000;
+        long evening = MONDAY + 21 * HOUR;
+        assertTrue(schedule.isLocked(MAIL, noonish));
+        assertFalse(schedule.isLocked(CHAT, noonish));
+        assertTrue(schedule.isLocked(VIDEO, noonish));      // the general rule still applies
+        assertTrue(schedule.isLocked(VIDEO, evening));
+        assertFalse(schedule.isLocked(MAIL, evening));
+
+        boolean[] state = schedule.stateAt(evening);
+        assertTrue(state[schedule.classOf(VIDEO)]);
+        assertFalse(state[0]);
+
+        // The earliest change of any class
+        assertEquals(MONDAY + 12 * HOUR, schedule.nextTransition(MONDAY + 9 * HOUR));
+        assertEquals(MONDAY + 20 * HOUR, schedule.nextTransition(MONDAY + 17 * HOUR));
+    }
+
+    @Test
+    public void horizon_boundsTheSchedule() {
+        long from = MONDAY + 3 * HOUR;
+        LockSchedule schedule = LockSchedule.compile(
+                Collections.singletonList(ScheduleRule.lock(null, ScheduleRule.MONDAY, minute(9, 0), minute(17, 0))),
+                TABLE, UTC, from, from + 8 * DAY);
+        assertEquals(from, schedule.getValidFrom());
+        assertEquals(from + 8 * DAY, schedule.getValidUntil());
+        assertTrue(schedule.isLocked(VIDEO, MONDAY + 7 * DAY + 10 * HOUR));
+        // Nothing changes after next Monday's window until the horizon ends
+        assertEquals(from + 8 * DAY, schedule.nextTransition(MONDAY + 7 * DAY + 17 * HOUR));
+    }
+
+    @Test
+    public void springForward_windowsFollowLocalTime() {
+        // Europe/London, Sunday 29 March 2026: 01:00 GMT jumps to 02:00 BST
+        long saturday = at(LONDON, 2026, 3, 28, 0, 0);
+        LockSchedule schedule = week(LONDON, saturday,
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, minute(0, 30), minute(3, 0)),
+                ScheduleRule.lock(null, ScheduleRule.EVERY_DAY, minute(9, 0), minute(17, 0)));
+
+        // 00:30 GMT to 03:00 BST is an hour and a half of real time
+        long start = at(UTC, 2026, 3, 29, 0, 30);
+        long end = at(UTC, 2026, 3, 29, 2, 0);
+        assertEquals(start, at(LONDON, 2026, 3, 29, 0, 30));
+        assertEquals(end, at(LONDON, 2026, 3, 29, 3, 0));
+        assertTrue(schedule.isLocked(VIDEO, start));
+        assertTrue(schedule.isLocked(VIDEO, end - 1));
+        assertFalse(schedule.isLocked(VIDEO, end));
+        assertEquals(end, schedule.nextTransition(start));
+
+        // 09:00 is 09:00 UTC the day before, 08:00 UTC on the day
+        assertEquals(at(UTC, 2026, 3, 28, 9, 0), schedule.nextTransition(at(UTC, 2026, 3, 28, 8, 0)));
+        assertEquals(at(UTC, 2026, 3, 29, 8, 0), schedule.nextTransition(end));
+        assertFalse(schedule.isLocked(VIDEO, at(UTC, 2026, 3, 29, 7, 59)));
+        assertTrue(schedule.isLocked(VIDEO, at(UTC, 2026, 3, 29, 8, 0)));
+        assertFalse(schedule.isLocked(VIDEO, at(UTC, 2026, 3, 29, 16, 0)));   // 17:00 BST
+    }
+
+    @Test
+    public void fallBack_windowsFollowLocalTime() {
+        // Europe/London, Sunday 25 October 2026: 02:00 BST falls back to 01:00 GMT
+        long friday = at(LONDON, 2026, 10, 23, 0, 0);
+        LockSchedule schedule = week(LONDON, friday,
+                ScheduleRule.lock(null, ScheduleRule.SUNDAY, 0, minute(3, 0)));
+
+        // 00:00 BST to 03:00 GMT is four hours of real time
+        long start = at(UTC, 2026, 10, 24, 23, 0);
+        long end = at(UTC, 2026, 10, 25, 3, 0);
+        assertFalse(schedule.isLocked(VIDEO, start - 1));
+        assertTrue(schedule.isLocked(VIDEO, start));
+        assertTrue(schedule.isLocked(VIDEO, at(UTC, 2026, 10, 25, 1, 30)));   // the repeated hour
+        assertTrue(schedule.isLocked(VIDEO, end - 1));
+        assertFalse(schedule.isLocked(VIDEO, end));
+        assertEquals(end, schedule.nextTransition(start));
+    }
+}
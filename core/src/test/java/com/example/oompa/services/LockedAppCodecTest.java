@@ -0,0 +1,60 @@
+package com.example.oompa.services;
+
+import com.example.oompa.App;
+import com.google.gson.JsonParseException;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LockedAppCodecTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() {
+        App app = new App("com.example.video", "Video | Shorts", true, 2131165300);
+        String value = LockedAppCodec.encode(app);
+        App decoded = LockedAppCodec.decode("com.example.video", value);
+
+        assertEquals("com.example.video", decoded.getPackageName());
+        assertEquals("Video | Shorts", decoded.getAppName());   // separator inside the name
+        assertTrue(decoded.getSelected());
+        assertEquals(2131165300, decoded.getAppIcon());
+        assertTrue(LockedAppCodec.isSelected(value));
+    }
+
+    @Test
+    public void roundTrip_nullNameBecomesEmpty() {
+        App decoded = LockedAppCodec.decode("p", LockedAppCodec.encode(new App("p", null, false, 0)));
+        assertEquals("", decoded.getAppName());
+        assertFalse(decoded.getSelected());
+    }
+
+    @Test
+    public void corruptRecords_decodeToNull() {
+        assertNull(LockedAppCodec.decode("p", null));
+        assertNull(LockedAppCodec.decode("p", ""));
+        assertNull(LockedAppCodec.decode("p", "1|"));
+        assertNull(LockedAppCodec.decode("p", "1x12|Name"));
+        assertNull(LockedAppCodec.decode("p", "1|12"));
+        assertNull(LockedAppCodec.decode("p", "1|abc|Name"));
+        assertFalse(LockedAppCodec.isSelected(""));
+    }
+
+    @Test
+    public void legacyJson_parses() {
+        List<App> apps = LockedAppCodec.decodeLegacyJson(
+                "[{\"packageName\":\"com.a\",\"appName\":\"A\",\"isSelected\":true,\"appIcon\":7}]");
+        assertEquals(1, apps.size());
+        assertEquals("com.a", apps.get(0).getPackageName());
+        assertTrue(LockedAppCodec.decodeLegacyJson(null).isEmpty());
+        assertTrue(LockedAppCodec.decodeLegacyJson("null").isEmpty());
+    }
+
+    @Test
+    public void legacyJson_corruptThrows() {
+        assertThrows(JsonParseException.class,
+                () -> LockedAppCodec.decodeLegacyJson("[{\"packageName\":"));
+    }
+}
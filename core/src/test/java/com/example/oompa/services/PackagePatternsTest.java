@@ -0,0 +1,110 @@
+package com.example.oompa.services;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PackagePatternsTest {
+
+    private static PackagePatterns of(String... rules) {
+        return PackagePatterns.compile(Arrays.asList(rules));
+    }
+
+    @Test
+    public void empty_matchesNothing() {
+        assertTrue(PackagePatterns.EMPTY.isEmpty());
+        assertFalse(PackagePatterns.EMPTY.matches("com.a"));
+        assertFalse(PackagePatterns.EMPTY.matches(""));
+        assertFalse(PackagePatterns.EMPTY.matches(null));
+    }
+
+    @Test
+    public void exactRule_matchesOnlyThatName() {
+        PackagePatterns patterns = of("com.video");
+        assertTrue(patterns.matches("com.video"));
+        assertFalse(patterns.matches("com.video.lite"));
+        assertFalse(patterns.matches("com.vide"));
+        assertFalse(patterns.matches("com.chat"));
+    }
+
+    @Test
+    public void prefixRule_matchesEverythingStartingWithIt() {
+        PackagePatterns patterns = of("com.facebook.*");
+        assertTrue(patterns.matches("com.facebook.katana"));
+        assertTrue(patterns.matches("com.facebook.orca"));
+        assertTrue(patterns.matches("com.facebook."));      // the prefix itself, dot included
+        assertFalse(patterns.matches("com.facebook"));      // shorter than the prefix
+        assertFalse(patterns.matches("com.facebookx"));
+        assertFalse(patterns.matches("org.facebook.katana"));
+    }
+
+    @Test
+    public void prefixWithoutDot_matchesTheNameEqualToIt() {
+        PackagePatterns patterns = of("com.google.android.apps.youtube*");
+        assertTrue(patterns.matches("com.google.android.apps.youtube"));
+        assertTrue(patterns.matches("com.google.android.apps.youtube.music"));
+        assertTrue(patterns.matches("com.google.android.apps.youtubekids"));
+        assertFalse(patterns.matches("com.google.android.apps.you"));
+    }
+
+    @Test
+    public void starAlone_matchesEverything() {
+        PackagePatterns patterns = of("*");
+        assertFalse(patterns.isEmpty());
+        assertTrue(patterns.matches("com.a"));
+        assertTrue(patterns.matches(""));
+        assertFalse(patterns.matches(null));
+    }
+
+    @Test
+    public void overlappingRules_bothApply() {
+        PackagePatterns patterns = of("com.a*", "com.a.b");
+        assertTrue(patterns.matches("com.a"));
+        assertTrue(patterns.matches("com.a.b"));
+        assertTrue(patterns.matches("com.a.b.c"));
+        assertTrue(patterns.matches("com.ab"));
+        assertFalse(patterns.matches("com.b"));
+
+        // An exact rule and a prefix ending on the same node
+        PackagePatterns same = of("com.a.b", "com.a.b*");
+        assertTrue(same.matches("com.a.b"));
+        assertTrue(same.matches("com.a.bc"));
+        assertFalse(same.matches("com.a."));
+    }
+
+    @Test
+    public void manyRules_eachMatchesIndependently() {
+        PackagePatterns patterns = of("com.z", "com.m*", "com.a", "org.*", "com.mail");
+        assertTrue(patterns.matches("com.z"));
+        assertTrue(patterns.matches("com.a"));
+        assertTrue(patterns.matches("com.music"));
+        assertTrue(patterns.matches("org.x"));
+        assertFalse(patterns.matches("com.b"));
+        assertFalse(patterns.matches("com.zz"));
+        assertFalse(patterns.matches("net.x"));
+    }
+
+    @Test
+    public void matches_acceptsAnyCharSequence() {
+        PackagePatterns patterns = of("com.video");
+        assertTrue(patterns.matches(new StringBuilder("com.video")));
+    }
+
+    @Test
+    public void starNotAtEnd_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> of("com.*.lite"));
+        assertThrows(IllegalArgumentException.class, () -> of("*.facebook"));
+        assertThrows(IllegalArgumentException.class, () -> of("com.a**"));
+        assertThrows(IllegalArgumentException.class, () -> of("com.ok*", "com.*bad"));
+    }
+
+    @Test
+    public void getPatterns_sortedWithoutDuplicates() {
+        PackagePatterns patterns = of("org.*", "com.a", "org.*", "com.a*");
+        assertEquals(Arrays.asList("com.a", "com.a*", "org.*"), patterns.getPatterns());
+        assertEquals(Collections.<String>emptyList(), PackagePatterns.EMPTY.getPatterns());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.oompa.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PackageTableTest {
+
+    @Test
+    public void empty_findsNothing() {
+        assertEquals(PackageTable.NO_ID, PackageTable.EMPTY.indexOf("com.a"));
+        assertEquals(PackageTable.NO_ID, PackageTable.EMPTY.indexOf(null));
+        assertNull(PackageTable.EMPTY.nameOf(0));
+        assertNull(PackageTable.EMPTY.nameOf(PackageTable.NO_ID));
+    }
+
+    @Test
+    public void internAll_assignsDenseIds() {
+        PackageTable table = PackageTable.EMPTY.internAll(Arrays.asList("com.a", "com.b", "com.a"));
+        assertEquals(2, table.size());
+        assertEquals("com.a", table.nameOf(table.indexOf("com.a")));
+        assertEquals("com.b", table.nameOf(table.indexOf("com.b")));
+        assertTrue(table.indexOf("com.a") != table.indexOf("com.b"));
+    }
+
+    @Test
+    public void internAll_nothingNew_returnsSameTable() {
+        PackageTable table = PackageTable.EMPTY.internAll(Arrays.asList("com.a", "com.b"));
+        assertSame(table, table.internAll(Arrays.asList("com.b", "com.a")));
+    }
+
+    @Test
+    public void growth_keepsExistingIds() {
+        PackageTable table = PackageTable.EMPTY.internAll(Arrays.asList("com.a", "com.b"));
+        int a = table.indexOf("com.a");
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) many.add("com.vendor" + i + ".app");
+        PackageTable grown = table.internAll(many);
+
+        assertEquals(1002, grown.size());
+        assertEquals(a, grown.indexOf("com.a"));
+        for (int i = 0; i < 1000; i++) {
+            String name = "com.vendor" + i + ".app";
+            assertEquals(name, grown.nameOf(grown.indexOf(name)));
+        }
+        // The old table is untouched
+        assertEquals(PackageTable.NO_ID, table.indexOf("com.vendor5.app"));
+    }
+
+    @Test
+    public void charSequenceProbe_matchesString() {
+        PackageTable table = PackageTable.EMPTY.internAll(Arrays.asList("com.google.android.youtube", "com.a"));
+        StringBuilder probe = new StringBuilder("com.google.android.youtube");
+        assertEquals(table.indexOf("com.google.android.youtube"), table.indexOf(probe));
+        assertEquals(PackageTable.hash("com.google.android.youtube"), PackageTable.hash(probe));
+        assertEquals(PackageTable.NO_ID, table.indexOf(new StringBuilder("com.google.android")));
+    }
+
+    @Test
+    public void collidingHashes_bothFound() {
+        // "Aa" and "BB" share String.hashCode()
+        PackageTable table = PackageTable.EMPTY.internAll(Arrays.asList("Aa", "BB"));
+        assertEquals("Aa", table.nameOf(table.indexOf(new StringBuilder("Aa"))));
+        assertEquals("BB", table.nameOf(table.indexOf(new StringBuilder("BB"))));
+    }
+}
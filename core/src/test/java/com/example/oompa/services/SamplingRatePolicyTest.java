@@ -0,0 +1,90 @@
+package com.example.oompa.services;
+
+import com.example.oompa.motion.ActivityMonitor;
+import com.example.oompa.motion.MotionFrame;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplingRatePolicyTest {
+
+    @Test
+    public void idleThenVariance_changesTheRateTwice() {
+        SamplingRatePolicy policy = new SamplingRatePolicy();
+        assertFalse(policy.onActivityChanged(true));    // already at full rate
+        assertTrue(policy.onActivityChanged(false));
+        assertTrue(policy.isIdle());
+        assertFalse(policy.onActivityChanged(false));   // already idle
+        assertTrue(policy.onActivityChanged(true));
+        assertFalse(policy.isIdle());
+        assertEquals(1, policy.getIdleCount());
+        assertEquals(1, policy.getVarianceWakes());
+        assertEquals(0, policy.getMotionWakes());
+    }
+
+    @Test
+    public void significantMotion_isAnExtraWake() {
+        SamplingRatePolicy policy = new SamplingRatePolicy();
+        policy.onActivityChanged(false);
+        assertTrue(policy.onSignificantMotion());
+        assertFalse(policy.isIdle());
+        // The variance catching up afterwards doesn't touch the rate again
+        assertFalse(policy.onActivityChanged(true));
+        assertEquals(1, policy.getMotionWakes());
+        assertEquals(0, policy.getVarianceWakes());
+    }
+
+    @Test
+    public void lateSignificantMotion_isIgnored() {
+        SamplingRatePolicy policy = new SamplingRatePolicy();
+        assertFalse(policy.onSignificantMotion());
+        policy.onActivityChanged(false);
+        policy.onActivityChanged(true);
+        assertFalse(policy.onSignificantMotion());
+        assertEquals(0, policy.getMotionWakes());
+    }
+
+    @Test
+    public void stop_leavesNothingIdle() {
+        SamplingRatePolicy policy = new SamplingRatePolicy();
+        policy.onActivityChanged(false);
+        policy.stop();
+        assertFalse(policy.isIdle());
+        assertFalse(policy.onSignificantMotion());
+        assertEquals(0, policy.getVarianceWakes() + policy.getMotionWakes());
+    }
+
+    @Test
+    public void followsTheActivityMonitor() {
+        SamplingRatePolicy policy = new SamplingRatePolicy();
+        ActivityMonitor monitor = new ActivityMonitor(1_000_000_000L);
+        int[] rateChanges = {0};
+        monitor.setListener(active -> {
+            if (policy.onActivityChanged(active)) rateChanges[0]++;
+        });
+
+        MotionFrame frame = new MotionFrame();
+        long t = 0L;
+        float[] variances = {0f, 4f, 0f, 4f};
+        double[] seconds = {1.5, 0.1, 1.5, 0.1};
+        for (int phase = 0; phase < variances.length; phase++) {
+            for (int i = 0; i < seconds[phase] * 50; i++) {
+                frame.timestampNs = t;
+                frame.magnitudeVariance = variances[phase];
+                monitor.process(frame);
+                t += 20_000_000L;
+            }
+            if (phase == 2) {
+                assertTrue(policy.isIdle());
+                assertTrue(policy.onSignificantMotion());   // woken before the variance saw the rep
+            }
+        }
+
+        assertFalse(policy.isIdle());
+        assertEquals(2, policy.getIdleCount());
+        assertEquals(1, policy.getVarianceWakes());
+        assertEquals(1, policy.getMotionWakes());
+        assertEquals(3, rateChanges[0]);   // idle, variance wake, idle; the motion wake was the caller's
+    }
+}
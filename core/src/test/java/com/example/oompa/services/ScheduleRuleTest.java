@@ -0,0 +1,61 @@
+package com.example.oompa.services;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScheduleRuleTest {
+
+    @Test
+    public void json_roundTrips() {
+        List<ScheduleRule> rules = Arrays.asList(
+                ScheduleRule.lock(Collections.singletonList("com.video"), ScheduleRule.WEEKDAYS, 540, 1020),
+                ScheduleRule.exception(null, ScheduleRule.EVERY_DAY, 0, ScheduleRule.MINUTES_PER_DAY)
+                        .between(1_000L, 2_000L));
+
+        List<ScheduleRule> back = ScheduleRule.fromJson(ScheduleRule.toJson(rules));
+        assertEquals(2, back.size());
+        assertEquals(Collections.singletonList("com.video"), back.get(0).getPackages());
+        assertEquals(ScheduleRule.WEEKDAYS, back.get(0).getDays());
+        assertEquals(540, back.get(0).getStartMinute());
+        assertEquals(1020, back.get(0).getEndMinute());
+        assertTrue(back.get(0).isLock());
+        assertTrue(back.get(1).appliesToAll());
+        assertFalse(back.get(1).isLock());
+        assertEquals(1_000L, back.get(1).getFromMs());
+        assertEquals(2_000L, back.get(1).getUntilMs());
+    }
+
+    @Test
+    public void fromJson_nullOrEmpty() {
+        assertTrue(ScheduleRule.fromJson(null).isEmpty());
+        assertTrue(ScheduleRule.fromJson("null").isEmpty());
+        assertTrue(ScheduleRule.fromJson("[]").isEmpty());
+    }
+
+    @Test
+    public void fromJson_dropsRulesTheConstructorWouldReject() {
+        String json = "[{\"days\":127,\"startMinute\":-5,\"endMinute\":60,\"lock\":true},"
+                + "{\"days\":127,\"startMinute\":60,\"endMinute\":1441,\"lock\":true},"
+                + "null,"
+                + "{\"days\":1,\"startMinute\":540,\"endMinute\":1020,\"lock\":true}]";
+        List<ScheduleRule> rules = ScheduleRule.fromJson(json);
+        assertEquals(1, rules.size());
+        assertEquals(540, rules.get(0).getStartMinute());
+    }
+
+    @Test
+    public void fromJson_normalizesFields() {
+        // Unknown day bits masked off, missing and null package names cleaned up
+        String json = "[{\"days\":255,\"startMinute\":0,\"endMinute\":60,\"lock\":true},"
+                + "{\"packages\":[\"com.a\",null],\"days\":1,\"startMinute\":0,\"endMinute\":60,\"lock\":false}]";
+        List<ScheduleRule> rules = ScheduleRule.fromJson(json);
+        assertEquals(ScheduleRule.EVERY_DAY, rules.get(0).getDays());
+        assertTrue(rules.get(0).appliesToAll());
+        assertEquals(Collections.singletonList("com.a"), rules.get(1).getPackages());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.oompa.services;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class UsageAccountantTest {
+
+    private static final int VIDEO = 0;
+    private static final int CHAT = 1;
+    private static final int FAR = 100;   // past the initial array size
+
+    @Test
+    public void onForeground_billsTheAppThatWasInFront() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.onForeground(VIDEO, 1_000);
+        usage.onForeground(CHAT, 4_000);
+        usage.onForeground(PackageTable.NO_ID, 4_500);
+        usage.onForeground(VIDEO, 10_000);   // nothing billed for the untracked stretch
+
+        assertEquals(3_000, usage.getUsedMs(VIDEO, 10_000));
+        assertEquals(3_500, usage.getUsedMs(VIDEO, 10_500));   // running stretch included
+        assertEquals(500, usage.getUsedMs(CHAT, 10_500));
+        assertEquals(VIDEO, usage.getCurrent());
+        assertEquals(0, usage.getUsedMs(PackageTable.NO_ID, 10_500));
+    }
+
+    @Test
+    public void noBudget_noDeadline() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.onForeground(VIDEO, 0);
+        assertEquals(UsageAccountant.NO_DEADLINE, usage.getDeadline());
+        assertFalse(usage.checkDeadline(Long.MAX_VALUE - 1));
+        assertFalse(usage.isExhausted(VIDEO));
+    }
+
+    @Test
+    public void deadline_isWhenTheAppInFrontRunsOut() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 5_000);
+        usage.onForeground(VIDEO, 1_000);
+        usage.onForeground(CHAT, 3_000);
+        assertEquals(UsageAccountant.NO_DEADLINE, usage.getDeadline());   // CHAT has no budget
+
+        usage.onForeground(VIDEO, 7_000);
+        assertEquals(10_000, usage.getDeadline());   // 3 s left
+        assertFalse(usage.checkDeadline(9_999));
+        assertFalse(usage.isExhausted(VIDEO));
+        assertTrue(usage.checkDeadline(10_000));
+        assertTrue(usage.isExhausted(VIDEO));
+        assertEquals(UsageAccountant.NO_DEADLINE, usage.getDeadline());
+        assertFalse(usage.checkDeadline(20_000));   // already out
+    }
+
+    @Test
+    public void oversleptDeadline_caughtOnNextTransition() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 1_000);
+        usage.onForeground(VIDEO, 0);
+        assertTrue(usage.onForeground(CHAT, 5_000));
+        assertTrue(usage.isExhausted(VIDEO));
+        assertFalse(usage.onForeground(VIDEO, 6_000));
+    }
+
+    @Test
+    public void restore_countsTowardTheBudget() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 5_000);
+        usage.restore(VIDEO, 4_000);
+        usage.onForeground(VIDEO, 100);
+        assertEquals(1_100, usage.getDeadline());
+
+        usage.restore(FAR, 9_000);
+        usage.setBudget(FAR, 9_000);
+        assertTrue(usage.isExhausted(FAR));
+        assertEquals(9_000, usage.getUsedMs(FAR, 0));
+    }
+
+    @Test
+    public void setBudget_raisingOrRemovingClearsExhaustion() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 1_000);
+        usage.restore(VIDEO, 2_000);
+        assertTrue(usage.isExhausted(VIDEO));
+
+        usage.setBudget(VIDEO, 3_000);
+        assertFalse(usage.isExhausted(VIDEO));
+        usage.onForeground(VIDEO, 0);
+        assertEquals(1_000, usage.getDeadline());
+
+        usage.setBudget(VIDEO, 0);
+        assertEquals(UsageAccountant.NO_DEADLINE, usage.getDeadline());
+        assertEquals(0, usage.getBudgetMs(VIDEO));
+
+        usage.setBudget(CHAT, 1_000);
+        usage.restore(CHAT, 1_000);
+        usage.clearBudgets();
+        assertFalse(usage.isExhausted(CHAT));
+        assertEquals(0, usage.getBudgetMs(CHAT));
+    }
+
+    @Test
+    public void resetDay_clearsTotalsKeepsBudgets() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 5_000);
+        usage.setBudget(CHAT, 1_000);
+        usage.restore(CHAT, 1_000);
+        usage.onForeground(VIDEO, 0);
+        usage.onForeground(VIDEO, 4_000);
+        assertTrue(usage.isExhausted(CHAT));
+
+        usage.resetDay(10_000);   // still in front over midnight; billing restarts there
+        assertFalse(usage.isExhausted(CHAT));
+        assertEquals(0, usage.getUsedMs(CHAT, 10_000));
+        assertEquals(2_000, usage.getUsedMs(VIDEO, 12_000));
+        assertEquals(5_000, usage.getBudgetMs(VIDEO));
+        assertEquals(15_000, usage.getDeadline());
+    }
+
+    @Test
+    public void leave_endsTheStretchWithoutBilling() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(VIDEO, 1_000);
+        usage.restore(VIDEO, 500);
+        usage.onForeground(VIDEO, 0);
+
+        usage.leave(60_000);   // long past the deadline, but we don't know when it went
+        assertEquals(PackageTable.NO_ID, usage.getCurrent());
+        assertEquals(500, usage.getUsedMs(VIDEO, 60_000));
+        assertFalse(usage.isExhausted(VIDEO));
+        assertEquals(UsageAccountant.NO_DEADLINE, usage.getDeadline());
+
+        // Billing picks up normally from the next transition
+        usage.onForeground(VIDEO, 70_000);
+        assertEquals(70_500, usage.getDeadline());
+    }
+
+    @Test
+    public void exhaustedIds_isACopy() {
+        UsageAccountant usage = new UsageAccountant();
+        usage.setBudget(FAR, 1_000);
+        usage.restore(FAR, 1_000);
+        BitSet ids = usage.exhaustedIds();
+        assertTrue(ids.get(FAR));
+        ids.clear();
+        assertTrue(usage.isExhausted(FAR));
+        assertFalse(usage.isExhausted(PackageTable.NO_ID));
+    }
+}